@@ -0,0 +1,83 @@
+package taskA;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Reads lines from a stream of bytes, returning each one as a slice of its
+ * own buffer. Nothing is decoded or copied per line; the buffer is refilled
+ * in large blocks and only lines that cross the end of a block are moved.
+ * A line ends at \n, and a \r just before it is dropped, like BufferedReader.
+ */
+public class ByteLineReader implements LineStream {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final InputStream in;
+    private byte[] buffer = new byte[BUFFER_SIZE];
+    private int position = 0;
+    private int limit = 0;
+    private boolean eof = false;
+    private final Line line = new Line();
+
+    /**
+     * Constructor for the reader.
+     * @param in Stream to read, closed when the reader is closed
+     */
+    public ByteLineReader(InputStream in) {
+        this.in = in;
+    }
+
+    @Override
+    public Line readLine() throws IOException {
+        int scanFrom = position;
+        while (true) {
+            for (int i = scanFrom; i < limit; i++) {
+                if (buffer[i] == '\n') {
+                    int end = i > position && buffer[i - 1] == '\r' ? i - 1 : i;
+                    line.set(buffer, position, end - position);
+                    position = i + 1;
+                    return line;
+                }
+            }
+
+            if (eof) {
+                if (position == limit) return null;
+                line.set(buffer, position, limit - position);
+                position = limit;
+                return line;
+            }
+
+            scanFrom = limit - position;
+            fill();
+        }
+    }
+
+    /**
+     * Moves the unread bytes to the front of the buffer, growing it if one
+     * line fills it completely, and reads more bytes after them.
+     */
+    private void fill() throws IOException {
+        int remaining = limit - position;
+        if (remaining == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        } else if (position > 0) {
+            System.arraycopy(buffer, position, buffer, 0, remaining);
+        }
+        position = 0;
+        limit = remaining;
+
+        int n = in.read(buffer, limit, buffer.length - limit);
+        if (n < 0) {
+            eof = true;
+        } else {
+            limit += n;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
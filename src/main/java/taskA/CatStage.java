@@ -0,0 +1,29 @@
+package taskA;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * cat command: Reads the file and outputs the contents.
+ */
+public class CatStage implements Stage {
+
+    private final String fileName;
+
+    /**
+     * Constructor for the cat stage.
+     * @param args Command line arguments
+     */
+    public CatStage(List<String> args) {
+        if (args.size() != 1) {
+            throw new IllegalArgumentException("Usage: cat filename");
+        }
+        fileName = args.get(0);
+    }
+
+    @Override
+    public LineStream open(LineStream input) throws IOException {
+        if (input != null) input.close();
+        return FileCache.session().open(fileName);
+    }
+}
@@ -0,0 +1,103 @@
+package taskA;
+
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * An output stream that collects pipeline output in one large buffer and
+ * hands it to a channel in big writes, instead of flushing after every line
+ * the way System.out.println does. Used for standard output and, through a
+ * FileChannel, for files named with > or >>.
+ */
+public class ChannelOutput extends OutputStream {
+
+    static final int BUFFER_SIZE = 1024 * 1024;
+
+    private final WritableByteChannel channel;
+    private final boolean closeChannel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+    /**
+     * Constructor for the output.
+     * @param channel Channel to write to
+     * @param closeChannel True to close the channel when this stream is closed
+     */
+    public ChannelOutput(WritableByteChannel channel, boolean closeChannel) {
+        this.channel = channel;
+        this.closeChannel = closeChannel;
+    }
+
+    /**
+     * Creates an output for the standard output of the process. Closing it
+     * only flushes it.
+     * @return Buffered standard output
+     */
+    public static ChannelOutput standardOutput() {
+        return new ChannelOutput(Channels.newChannel(new FileOutputStream(FileDescriptor.out)), false);
+    }
+
+    /**
+     * Creates an output that writes to a file.
+     * @param file File to write
+     * @param append True to add to the end of the file (>>), false to replace it (>)
+     * @return Buffered output for the file
+     * @throws IOException If the file cannot be opened
+     */
+    public static ChannelOutput toFile(Path file, boolean append) throws IOException {
+        FileChannel channel = append
+                ? FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)
+                : FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING);
+        return new ChannelOutput(channel, true);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (!buffer.hasRemaining()) drain();
+        buffer.put((byte) b);
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        if (length > buffer.remaining()) {
+            drain();
+            if (length > buffer.capacity()) {
+                // too big to be worth copying, write it straight through
+                ByteBuffer direct = ByteBuffer.wrap(bytes, offset, length);
+                while (direct.hasRemaining()) channel.write(direct);
+                return;
+            }
+        }
+        buffer.put(bytes, offset, length);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        drain();
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            drain();
+        } finally {
+            if (closeChannel) channel.close();
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package taskA;
+
+/**
+ * One field of a loaded Table, stored for every row as a primitive array.
+ * A column can give each value as text, as the number sort -n would read
+ * from it, and as its rank in the alphabetical order of the column's
+ * distinct values, so queries compare ints instead of strings wherever the
+ * order of the text is all that matters.
+ *
+ * Rows that do not have the field hold a filler value; the Table knows how
+ * many fields every row has, and callers only ask for fields that exist.
+ */
+public interface Column {
+
+    /**
+     * Gets the kind of column, for the tables command.
+     * @return text, price or date
+     */
+    String kind();
+
+    /**
+     * Gets a value as text, compared the same way as sort compares it.
+     * @param row Row number
+     * @return Text of the value
+     */
+    String text(int row);
+
+    /**
+     * Appends a value as it appeared in the file.
+     * @param row Row number
+     * @param out Builder to append to
+     */
+    void appendTo(int row, LineBuilder out);
+
+    /**
+     * Gets the place of a value in the alphabetical order of the distinct
+     * values of the column. Two rows have the same rank exactly when their
+     * values have the same text.
+     * @param row Row number
+     * @return Rank from 0 to distinct() - 1
+     */
+    int rank(int row);
+
+    /**
+     * Gets the number of distinct values in the column.
+     * @return Number of ranks
+     */
+    int distinct();
+
+    /**
+     * Gets a value as a number, as SortOrder.parseNumber would read it.
+     * @param row Row number
+     * @return Numeric value
+     */
+    double number(int row);
+
+    /**
+     * Gets the memory used by the column, roughly.
+     * @return Size in bytes
+     */
+    long footprint();
+}
@@ -0,0 +1,94 @@
+package taskA;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One node of a parsed pipeline: a command name and its arguments.
+ * A node made by the Planner from several commands keeps the originals as its
+ * parts, so that the fused stage can still be configured from their arguments.
+ */
+public class Command {
+
+    private final String name;
+    private final List<String> args;
+    private final List<Command> parts;
+
+    /**
+     * Constructor for a command as typed by the user.
+     * @param name Command name, such as cut
+     * @param args Arguments of the command
+     */
+    public Command(String name, List<String> args) {
+        this(name, args, Collections.emptyList());
+    }
+
+    /**
+     * Constructor for a node that fuses several commands.
+     * @param name Name of the fused node
+     * @param args Arguments of the node
+     * @param parts Commands that were fused, in pipeline order
+     */
+    public Command(String name, List<String> args, List<Command> parts) {
+        this.name = name;
+        this.args = Collections.unmodifiableList(new ArrayList<>(args));
+        this.parts = Collections.unmodifiableList(new ArrayList<>(parts));
+    }
+
+    /**
+     * Parses one command of a pipeline, such as "cut -f 1 -d ,".
+     * @param text Text of the command
+     * @return Parsed command
+     */
+    public static Command parse(String text) {
+        List<String> tokens = new ArrayList<>(List.of(text.trim().split("\\s+")));
+        String name = tokens.remove(0);
+        return new Command(name, tokens);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public List<String> getArgs() {
+        return args;
+    }
+
+    public List<Command> getParts() {
+        return parts;
+    }
+
+    /**
+     * Creates a copy of this command with a file argument added at the end.
+     * @param fileName File to read
+     * @return New command
+     */
+    public Command withFile(String fileName) {
+        List<String> newArgs = new ArrayList<>(args);
+        newArgs.add(fileName);
+        return new Command(name, newArgs, parts);
+    }
+
+    /**
+     * Creates a copy of this command without its file argument.
+     * @param fileName File argument to remove
+     * @return New command
+     */
+    public Command withoutFile(String fileName) {
+        List<String> newArgs = new ArrayList<>(args);
+        newArgs.remove(newArgs.lastIndexOf(fileName));
+        return new Command(name, newArgs, parts);
+    }
+
+    @Override
+    public String toString() {
+        if (!parts.isEmpty()) {
+            List<String> texts = new ArrayList<>();
+            for (Command part : parts) texts.add(part.toString());
+            return name + (args.isEmpty() ? "" : " " + String.join(" ", args))
+                    + "(" + String.join(" | ", texts) + ")";
+        }
+        return args.isEmpty() ? name : name + " " + String.join(" ", args);
+    }
+}
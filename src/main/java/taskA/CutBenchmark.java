@@ -0,0 +1,133 @@
+package taskA;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Benchmark comparing the old cut, which split every line with a regex and
+ * joined an ArrayList of parts, against the FieldScanner used by CutStage,
+ * which cuts byte ranges out of a Line into a reused buffer.
+ * Both cut the same generated wide CSV lines, and the time and bytes
+ * allocated per line are printed for each.
+ *
+ * Usage: java taskA.CutBenchmark [lines] [columns]
+ */
+public class CutBenchmark {
+
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int MEASURED_ROUNDS = 10;
+
+    // results are kept here so the JIT cannot drop the work being measured
+    private static volatile long sink;
+
+    /**
+     * Main method to run the benchmark.
+     * @param args Number of lines and number of columns per line
+     */
+    public static void main(String[] args) {
+        int lines = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        int columns = args.length > 1 ? Integer.parseInt(args[1]) : 40;
+
+        String[] input = generate(lines, columns, new Random(1032));
+        Line[] encoded = new Line[input.length];
+        for (int i = 0; i < input.length; i++) encoded[i] = Line.of(input[i]);
+        int[] fields = {1, 3, columns / 2, columns - 1};
+
+        CutStage stage = new CutStage(List.of("-f", "1,3," + (columns / 2) + "," + (columns - 1)));
+        FieldScanner scanner = new FieldScanner(",");
+        LineBuilder buffer = new LineBuilder();
+
+        System.out.printf("Cutting %d fields from %d lines of %d columns%n", fields.length, lines, columns);
+        System.out.printf("%-14s %12s %14s%n", "path", "ns/line", "bytes/line");
+
+        report("split + join", input, () -> {
+            long length = 0;
+            for (String line : input) length += splitCut(line, fields, ",").length();
+            return length;
+        });
+        report("FieldScanner", input, () -> {
+            long length = 0;
+            for (Line line : encoded) length += stage.cut(line, scanner, buffer).length();
+            return length;
+        });
+    }
+
+    /**
+     * One benchmarked way of cutting all of the input.
+     */
+    private interface Round {
+        long run();
+    }
+
+    /**
+     * Runs a round repeatedly and prints the median time and allocation per line.
+     * @param name Name of the path being measured
+     * @param input Lines being cut
+     * @param round Work to measure
+     */
+    private static void report(String name, String[] input, Round round) {
+        double[] times = new double[MEASURED_ROUNDS];
+        long allocated = 0;
+
+        for (int i = 0; i < WARMUP_ROUNDS + MEASURED_ROUNDS; i++) {
+            long bytesBefore = allocatedBytes();
+            long start = System.nanoTime();
+            sink += round.run();
+            long elapsed = System.nanoTime() - start;
+            long bytes = allocatedBytes() - bytesBefore;
+
+            if (i >= WARMUP_ROUNDS) {
+                times[i - WARMUP_ROUNDS] = (double) elapsed / input.length;
+                allocated += bytes;
+            }
+        }
+
+        Arrays.sort(times);
+        System.out.printf("%-14s %12.1f %14.1f%n", name, times[MEASURED_ROUNDS / 2],
+                (double) allocated / MEASURED_ROUNDS / input.length);
+    }
+
+    /**
+     * Bytes allocated so far by the current thread, or 0 if the JVM cannot tell.
+     */
+    private static long allocatedBytes() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return 0;
+    }
+
+    /**
+     * The way cut used to work: a regex split, a list of parts and a join.
+     */
+    private static String splitCut(String line, int[] fields, String delimiter) {
+        String[] parts = line.split(delimiter);
+        List<String> temp = new ArrayList<>();
+
+        for (int i : fields) {
+            if (i >= 1 && i < parts.length) {
+                temp.add(parts[i - 1]);
+            }
+        }
+        return String.join(delimiter, temp);
+    }
+
+    private static String[] generate(int count, int columns, Random random) {
+        String[] lines = new String[count];
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            line.setLength(0);
+            for (int c = 0; c < columns; c++) {
+                if (c > 0) line.append(',');
+                line.append("value").append(random.nextInt(100_000));
+            }
+            lines[i] = line.toString();
+        }
+        return lines;
+    }
+}
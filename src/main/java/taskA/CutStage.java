@@ -0,0 +1,140 @@
+package taskA;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * cut command: Extracts the specified fields from the input.
+ * Lines are split with a FieldScanner and the selected byte ranges are copied
+ * into a reused LineBuilder, so cutting a line allocates nothing.
+ * A file named on the command line that has a LineIndex (see the index
+ * command) is split at the line starts in it and cut on all cores by
+ * ParallelCut.
+ */
+public class CutStage implements Stage {
+
+    private final int[] fields;
+    private final String delimiter;
+    private final String fileName;
+
+    /**
+     * Constructor for the cut stage.
+     * @param args Command line arguments
+     */
+    public CutStage(List<String> args) {
+        String field = null;
+        String delimiter = ",";
+        String fileName = null;
+
+        for (int i = 0; i < args.size(); i++) {
+            String arg = args.get(i);
+            if (arg.equals("-f") && i + 1 < args.size()) {
+                field = args.get(++i);
+            } else if (arg.equals("-d") && i + 1 < args.size()) {
+                delimiter = Stage.unquote(args.get(++i));
+            } else {
+                fileName = arg;
+            }
+        }
+
+        if (field == null || delimiter.isEmpty()) {
+            throw new IllegalArgumentException("Usage: cut -f field [-d delimiter] [filename]");
+        }
+
+        this.fields = parseField(field).stream().mapToInt(Integer::intValue).toArray();
+        this.delimiter = delimiter;
+        this.fileName = fileName;
+    }
+
+    // Getters used by the Planner when it rewrites the pipeline
+
+    int[] getFields() {
+        return fields;
+    }
+
+    String getDelimiter() {
+        return delimiter;
+    }
+
+    String getFileName() {
+        return fileName;
+    }
+
+    @Override
+    public LineStream open(LineStream input) throws IOException {
+        if (input == null && fileName != null && Files.isRegularFile(Paths.get(fileName))) {
+            Path file = Paths.get(fileName);
+            int threads = Runtime.getRuntime().availableProcessors();
+            LineIndex index = threads > 1 ? LineIndex.existing(file) : null;
+            if (index != null) {
+                return ParallelCut.open(this, file, index, threads);
+            }
+        }
+
+        LineStream source = Stage.source(input, fileName);
+        FieldScanner scanner = new FieldScanner(delimiter);
+        LineBuilder buffer = new LineBuilder();
+
+        return new LineStream() {
+            @Override
+            public Line readLine() throws IOException {
+                Line line = source.readLine();
+                return line == null ? null : cut(line, scanner, buffer);
+            }
+
+            @Override
+            public void close() throws IOException {
+                source.close();
+            }
+        };
+    }
+
+    /**
+     * Extracts the selected fields from one line.
+     * @param line Line to cut
+     * @param scanner Scanner to split the line with
+     * @param buffer Reused buffer for the output
+     * @return Selected fields joined by the delimiter, a view over the buffer
+     */
+    Line cut(Line line, FieldScanner scanner, LineBuilder buffer) {
+        int count = scanner.scan(line);
+        byte[] separator = scanner.delimiterBytes();
+        buffer.reset();
+
+        boolean first = true;
+        for (int i : fields) {
+            if (i >= 1 && i <= count) {
+                if (!first) buffer.append(separator, 0, separator.length);
+                buffer.append(line.bytes(), line.offset() + scanner.start(i), scanner.end(i) - scanner.start(i));
+                first = false;
+            }
+        }
+        return buffer.line();
+    }
+
+    /**
+     * Parses the field argument for the cut command.
+     * @param field The field argument
+     * @return List of integers containing the fields
+     */
+    static List<Integer> parseField(String field) {
+        List<Integer> intFields = new ArrayList<>();
+        String[] rawFields = field.split(",");
+        for (String part : rawFields) {
+            if (part.contains("-")) {
+                String[] range = part.split("-");
+
+                for (int i = Integer.parseInt(range[0]); i <= Integer.parseInt(range[1]); i++) {
+                    intFields.add(i);
+                }
+            } else {
+                intFields.add(Integer.parseInt(part));
+            }
+        }
+        return intFields;
+    }
+}
@@ -0,0 +1,127 @@
+package taskA;
+
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * A column of ISO dates (1325-11-25), held as the number of days since
+ * 1970-01-01 in an int per row. Years are four digits, so the order of the
+ * days is also the alphabetical order of the text and ranks need no strings.
+ */
+public class DateColumn implements Column {
+
+    private final int[] days;
+
+    private volatile int[] ranks;
+    private volatile String[] texts;
+    private volatile int distinct;
+
+    private DateColumn(int[] days) {
+        this.days = days;
+    }
+
+    /**
+     * Turns a text column into a date column if all of its values are dates.
+     * @param column Column as read
+     * @return Date column, or null if some value is not a yyyy-mm-dd date
+     */
+    public static DateColumn from(TextColumn column) {
+        byte[][] values = column.values();
+        int[] parsed = new int[values.length];
+        for (int i = 0; i < values.length; i++) {
+            String text = new String(values[i], StandardCharsets.UTF_8);
+            if (text.length() != 10 || !Character.isDigit(text.charAt(0))) return null;
+            try {
+                LocalDate date = LocalDate.parse(text);
+                if (!date.toString().equals(text)) return null;
+                parsed[i] = Math.toIntExact(date.toEpochDay());
+            } catch (DateTimeException | ArithmeticException e) {
+                return null;
+            }
+        }
+        if (values.length == 0) return null;
+
+        int[] codes = column.codes();
+        int[] days = new int[codes.length];
+        for (int row = 0; row < codes.length; row++) {
+            days[row] = parsed[codes[row]];
+        }
+        return new DateColumn(days);
+    }
+
+    @Override
+    public String kind() {
+        return "date";
+    }
+
+    @Override
+    public String text(int row) {
+        if (ranks == null) rankValues();
+        return texts[ranks[row]];
+    }
+
+    @Override
+    public void appendTo(int row, LineBuilder out) {
+        LocalDate date = LocalDate.ofEpochDay(days[row]);
+        appendDigits(out, date.getYear(), 4);
+        out.append((byte) '-');
+        appendDigits(out, date.getMonthValue(), 2);
+        out.append((byte) '-');
+        appendDigits(out, date.getDayOfMonth(), 2);
+    }
+
+    private static void appendDigits(LineBuilder out, int value, int width) {
+        for (int divisor = (int) Math.pow(10, width - 1); divisor > 0; divisor /= 10) {
+            out.append((byte) ('0' + value / divisor % 10));
+        }
+    }
+
+    @Override
+    public int rank(int row) {
+        if (ranks == null) rankValues();
+        return ranks[row];
+    }
+
+    @Override
+    public int distinct() {
+        if (ranks == null) rankValues();
+        return distinct;
+    }
+
+    @Override
+    public double number(int row) {
+        // sort -n reads the digits of the year and stops at the first dash
+        return LocalDate.ofEpochDay(days[row]).getYear();
+    }
+
+    @Override
+    public long footprint() {
+        return 4L * days.length + (ranks == null ? 0 : 4L * ranks.length);
+    }
+
+    private synchronized void rankValues() {
+        if (ranks != null) return;
+
+        int[] unique = days.clone();
+        Arrays.sort(unique);
+        int count = 0;
+        for (int i = 0; i < unique.length; i++) {
+            if (i == 0 || unique[i] != unique[i - 1]) unique[count++] = unique[i];
+        }
+
+        String[] byRank = new String[count];
+        for (int i = 0; i < count; i++) {
+            byRank[i] = LocalDate.ofEpochDay(unique[i]).toString();
+        }
+
+        int[] rank = new int[days.length];
+        for (int row = 0; row < days.length; row++) {
+            rank[row] = Arrays.binarySearch(unique, 0, count, days[row]);
+        }
+        distinct = count;
+        texts = byRank;
+        ranks = rank;
+    }
+}
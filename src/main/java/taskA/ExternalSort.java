@@ -0,0 +1,309 @@
+package taskA;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Sorts a stream that may be larger than the heap.
+ * Lines are collected until the memory budget is used up, then that run is
+ * sorted and spilled to a temporary file. At the end the runs are combined
+ * with a k-way merge on a heap, which is streamed to the next stage one line
+ * at a time. If the whole input fits in the budget nothing is written to disk.
+ * Sorting compares characters, so this is where lines are decoded to Strings;
+ * they are encoded back into a reused buffer on the way out. Runs are read
+ * back with a ByteLineReader, so a line splits in a run file exactly where it
+ * would in the input, and the merged output is the same as an in-memory sort.
+ */
+public class ExternalSort {
+
+    // maximum number of runs merged at once, larger sets are merged in passes
+    static final int MAX_FAN_IN = 64;
+
+    // rough cost of holding one line in memory: the line, its key, the array slot and headers
+    private static final int LINE_OVERHEAD = 96;
+
+    private final long memoryBudget;
+    private final Path tempDir;
+    private final SortOrder order;
+    private final int parallelism;
+
+    private final List<Path> runs = new ArrayList<>();
+
+    /**
+     * Constructor for the external sort.
+     * @param memoryBudget Number of bytes of lines to hold in memory before spilling
+     * @param tempDir Directory for the run files, or null for the system default
+     * @param order Order to sort the lines in
+     * @param parallelism Number of threads used to sort each run in memory
+     */
+    public ExternalSort(long memoryBudget, Path tempDir, SortOrder order, int parallelism) {
+        this.memoryBudget = memoryBudget;
+        this.tempDir = tempDir;
+        this.order = order;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Reads the whole input and returns it in sorted order.
+     * @param source Stream to sort
+     * @return Stream of the sorted lines
+     * @throws IOException If an I/O error occurs
+     */
+    public LineStream sort(LineStream source) throws IOException {
+        List<SortOrder.Key> buffer = new ArrayList<>();
+        long used = 0;
+
+        try {
+            Line input;
+            while ((input = source.readLine()) != null) {
+                String line = input.toString();
+                buffer.add(order.key(line));
+                used += LINE_OVERHEAD + 2L * line.length();
+                if (used >= memoryBudget) {
+                    ParallelSort.sort(buffer, order, parallelism);
+                    runs.add(writeRun(buffer.iterator()));
+                    buffer.clear();
+                    used = 0;
+                }
+            }
+            ParallelSort.sort(buffer, order, parallelism);
+
+            if (runs.isEmpty()) {
+                return fromKeys(buffer.iterator());
+            }
+
+            while (runs.size() + 1 > MAX_FAN_IN) {
+                List<Path> group = new ArrayList<>(runs.subList(0, MAX_FAN_IN));
+                runs.subList(0, MAX_FAN_IN).clear();
+                LineStream merged = merge(group, null);
+                try (merged) {
+                    runs.add(0, writeRun(merged));
+                }
+            }
+
+            // the last run never leaves memory, it is merged straight from the buffer
+            return merge(new ArrayList<>(runs), buffer.iterator());
+        } catch (IOException | RuntimeException e) {
+            deleteRuns(runs);
+            throw e;
+        }
+    }
+
+    /**
+     * Writes sorted lines to a new temporary run file.
+     * @param lines Lines in sorted order
+     * @return Path of the run file
+     * @throws IOException If an I/O error occurs
+     */
+    private Path writeRun(Iterator<SortOrder.Key> lines) throws IOException {
+        Path run = createTempFile();
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(run))) {
+            while (lines.hasNext()) {
+                String line = lines.next().getLine();
+                out.write(line.getBytes(StandardCharsets.UTF_8));
+                endLine(out, !line.isEmpty() && line.charAt(line.length() - 1) == '\r');
+            }
+        }
+        return run;
+    }
+
+    /**
+     * Writes the remaining lines of a stream to a new temporary run file.
+     * @param lines Stream in sorted order
+     * @return Path of the run file
+     * @throws IOException If an I/O error occurs
+     */
+    private Path writeRun(LineStream lines) throws IOException {
+        Path run = createTempFile();
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(run))) {
+            Line line;
+            while ((line = lines.readLine()) != null) {
+                line.writeTo(out);
+                endLine(out, line.length() > 0 && line.byteAt(line.length() - 1) == '\r');
+            }
+        }
+        return run;
+    }
+
+    /**
+     * Ends a line in a run file. ByteLineReader drops a \r just before a \n,
+     * so a line that itself ends in \r gets one more to keep it.
+     * @param out Run file
+     * @param endsWithReturn True if the line ends in \r
+     * @throws IOException If an I/O error occurs
+     */
+    private static void endLine(OutputStream out, boolean endsWithReturn) throws IOException {
+        if (endsWithReturn) out.write('\r');
+        out.write('\n');
+    }
+
+    private Path createTempFile() throws IOException {
+        Path run = tempDir == null
+                ? Files.createTempFile("sort", ".run")
+                : Files.createTempFile(tempDir, "sort", ".run");
+        run.toFile().deleteOnExit();
+        return run;
+    }
+
+    /**
+     * Merges sorted runs with a heap holding the current line of every run.
+     * Every line read back from a run is keyed once as it enters the heap.
+     * Equal lines are taken from the earliest run first, so the merge is stable.
+     * The run files are deleted when the returned stream is closed.
+     * @param files Run files in input order
+     * @param last Sorted lines still in memory, which come after all the files, or null
+     * @return Stream of the merged lines
+     * @throws IOException If an I/O error occurs
+     */
+    private LineStream merge(List<Path> files, Iterator<SortOrder.Key> last) throws IOException {
+        List<LineStream> readers = new ArrayList<>();
+        PriorityQueue<Cursor> heap = new PriorityQueue<>((a, b) -> {
+            int cmp = order.compare(a.key, b.key);
+            return cmp != 0 ? cmp : Integer.compare(a.run, b.run);
+        });
+
+        try {
+            for (int i = 0; i < files.size(); i++) {
+                LineStream reader = new ByteLineReader(Files.newInputStream(files.get(i)));
+                readers.add(reader);
+                Cursor cursor = new Cursor(i, reader, null, order);
+                if (cursor.advance()) heap.add(cursor);
+            }
+            if (last != null) {
+                Cursor cursor = new Cursor(files.size(), null, last, order);
+                if (cursor.advance()) heap.add(cursor);
+            }
+        } catch (IOException e) {
+            closeAll(readers);
+            deleteRuns(files);
+            throw e;
+        }
+
+        LineBuilder output = new LineBuilder();
+        return new LineStream() {
+            @Override
+            public Line readLine() throws IOException {
+                Cursor cursor = heap.poll();
+                if (cursor == null) return null;
+                Line line = output.reset().appendUtf8(cursor.key.getLine()).line();
+                if (cursor.advance()) heap.add(cursor);
+                return line;
+            }
+
+            @Override
+            public void close() {
+                heap.clear();
+                closeAll(readers);
+                deleteRuns(files);
+            }
+        };
+    }
+
+    /**
+     * The current position in one sorted run.
+     */
+    private static class Cursor {
+        final int run;
+        final LineStream reader;
+        final Iterator<SortOrder.Key> memory;
+        final SortOrder order;
+        SortOrder.Key key;
+
+        Cursor(int run, LineStream reader, Iterator<SortOrder.Key> memory, SortOrder order) {
+            this.run = run;
+            this.reader = reader;
+            this.memory = memory;
+            this.order = order;
+        }
+
+        boolean advance() throws IOException {
+            if (reader != null) {
+                Line line = reader.readLine();
+                key = line == null ? null : order.key(line.toString());
+            } else {
+                key = memory.hasNext() ? memory.next() : null;
+            }
+            return key != null;
+        }
+    }
+
+    private static LineStream fromKeys(Iterator<SortOrder.Key> keys) {
+        LineBuilder output = new LineBuilder();
+        return new LineStream() {
+            @Override
+            public Line readLine() {
+                return keys.hasNext() ? output.reset().appendUtf8(keys.next().getLine()).line() : null;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    private static void closeAll(List<LineStream> readers) {
+        for (LineStream reader : readers) {
+            try {
+                reader.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private static void deleteRuns(List<Path> files) {
+        for (Path file : files) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    /**
+     * Parses a memory size the way GNU sort does: a number with an optional
+     * suffix b, K, M, G or T, or % for a share of the maximum heap.
+     * A number without a suffix is in kilobytes.
+     * @param size Size argument, such as 64M
+     * @return Size in bytes
+     */
+    @SuppressWarnings("fallthrough")
+    static long parseSize(String size) {
+        if (size.isEmpty()) throw new IllegalArgumentException("Invalid size: " + size);
+
+        char suffix = Character.toUpperCase(size.charAt(size.length() - 1));
+        String digits = Character.isDigit(suffix) ? size : size.substring(0, size.length() - 1);
+        long value;
+        try {
+            value = Long.parseLong(digits);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid size: " + size);
+        }
+
+        switch (suffix) {
+            case '%':
+                return Runtime.getRuntime().maxMemory() / 100 * value;
+            case 'B':
+                return value;
+            // each larger unit falls through to multiply by 1024 once more
+            case 'T':
+                value *= 1024;
+            case 'G':
+                value *= 1024;
+            case 'M':
+                value *= 1024;
+            case 'K':
+                return value * 1024;
+            default:
+                if (Character.isDigit(suffix)) return value * 1024;
+                throw new IllegalArgumentException("Invalid size: " + size);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package taskA;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Splits a line into fields in a single pass without creating any objects.
+ * The line is scanned as raw bytes, and the byte offsets of the start and end
+ * of every field are recorded in int arrays that are reused from line to line,
+ * so callers copy out only the ranges they need.
+ * Splitting UTF-8 bytes on an ASCII delimiter or quote is safe because those
+ * bytes never occur inside a multi-byte character.
+ *
+ * A field that starts with a double quote runs to its closing quote, so
+ * delimiters inside quoted CSV fields do not split them. A doubled quote
+ * inside a quoted field stands for one quote character.
+ */
+public class FieldScanner {
+
+    private final String delimiter;
+    private final byte[] pattern;
+    private final byte first;
+
+    private int[] starts = new int[16];
+    private int[] ends = new int[16];
+    private int count = 0;
+
+    /**
+     * Constructor for the field scanner.
+     * @param delimiter String that separates fields, taken literally
+     */
+    public FieldScanner(String delimiter) {
+        if (delimiter.isEmpty()) throw new IllegalArgumentException("The delimiter must not be empty");
+        this.delimiter = delimiter;
+        this.pattern = delimiter.getBytes(StandardCharsets.UTF_8);
+        this.first = pattern[0];
+    }
+
+    /**
+     * Finds the fields of a line.
+     * @param line Line to scan
+     * @return Number of fields found, at least 1
+     */
+    public int scan(Line line) {
+        byte[] bytes = line.bytes();
+        int base = line.offset();
+        int length = line.length();
+        int width = pattern.length;
+        int i = 0;
+        count = 0;
+
+        while (true) {
+            int start = i;
+
+            if (i < length && bytes[base + i] == '"') {
+                i++;
+                while (i < length) {
+                    if (bytes[base + i] == '"') {
+                        if (i + 1 < length && bytes[base + i + 1] == '"') {
+                            i += 2;
+                            continue;
+                        }
+                        i++;
+                        break;
+                    }
+                    i++;
+                }
+            }
+
+            while (i < length && !(bytes[base + i] == first && matchesAt(bytes, base + i, base + length))) {
+                i++;
+            }
+
+            record(start, i);
+            if (i >= length) return count;
+            i += width;
+        }
+    }
+
+    private boolean matchesAt(byte[] bytes, int index, int end) {
+        int width = pattern.length;
+        if (width == 1) return true;
+        if (index + width > end) return false;
+        for (int k = 1; k < width; k++) {
+            if (bytes[index + k] != pattern[k]) return false;
+        }
+        return true;
+    }
+
+    private void record(int start, int end) {
+        if (count == starts.length) {
+            starts = Arrays.copyOf(starts, count * 2);
+            ends = Arrays.copyOf(ends, count * 2);
+        }
+        starts[count] = start;
+        ends[count] = end;
+        count++;
+    }
+
+    /**
+     * Gets the number of fields found by the last scan.
+     * @return Field count
+     */
+    public int count() {
+        return count;
+    }
+
+    /**
+     * Gets where a field of the last scanned line starts.
+     * @param field Field number, counting from 1
+     * @return Offset of the first byte of the field within the line
+     */
+    public int start(int field) {
+        return starts[field - 1];
+    }
+
+    /**
+     * Gets where a field of the last scanned line ends.
+     * @param field Field number, counting from 1
+     * @return Offset just past the last byte of the field within the line
+     */
+    public int end(int field) {
+        return ends[field - 1];
+    }
+
+    /**
+     * Gets the delimiter between fields.
+     * @return Delimiter
+     */
+    public String delimiter() {
+        return delimiter;
+    }
+
+    /**
+     * Gets the delimiter between fields as UTF-8 bytes.
+     * @return Delimiter bytes
+     */
+    public byte[] delimiterBytes() {
+        return pattern;
+    }
+}
@@ -0,0 +1,219 @@
+package taskA;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A session-wide cache of the files read by pipelines, so that running many
+ * pipelines against the same file reads it from disk only once.
+ *
+ * Each entry holds the raw bytes of a file and the offset where every line
+ * starts, and lines are handed out as slices of those bytes. Entries are kept
+ * in least recently used order and the oldest are evicted when the total size
+ * goes over the byte budget. An entry is thrown away and the file read again
+ * when the file's size or modification time has changed. Files larger than
+ * the whole budget are streamed from disk without being cached.
+ */
+public class FileCache {
+
+    // the cache shared by every pipeline of the session
+    private static FileCache session = new FileCache(
+            Math.min(256L * 1024 * 1024, Runtime.getRuntime().maxMemory() / 4));
+
+    private final long budget;
+    private final LinkedHashMap<Path, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytesHeld = 0;
+
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+    private long invalidations = 0;
+    private long uncached = 0;
+
+    /**
+     * Constructor for a cache.
+     * @param budget Maximum number of bytes to hold, 0 to disable caching
+     */
+    public FileCache(long budget) {
+        this.budget = budget;
+    }
+
+    /**
+     * Gets the cache of the current session.
+     * @return The session cache
+     */
+    public static FileCache session() {
+        return session;
+    }
+
+    /**
+     * Replaces the session cache with an empty one of a different size.
+     * @param budget Maximum number of bytes to hold, 0 to disable caching
+     */
+    public static void resize(long budget) {
+        session = new FileCache(budget);
+    }
+
+    /**
+     * A cached file: its bytes, where its lines start, and the size and
+     * modification time it had when it was read.
+     */
+    private static final class Entry {
+        final byte[] data;
+        final int[] lineStarts;
+        final int lineCount;
+        final long size;
+        final FileTime modified;
+
+        Entry(byte[] data, int[] lineStarts, int lineCount, long size, FileTime modified) {
+            this.data = data;
+            this.lineStarts = lineStarts;
+            this.lineCount = lineCount;
+            this.size = size;
+            this.modified = modified;
+        }
+
+        long footprint() {
+            return data.length + 4L * lineStarts.length;
+        }
+    }
+
+    /**
+     * Opens a file for reading through the cache.
+     * @param fileName File to read
+     * @return Stream over the lines of the file
+     * @throws IOException If the file cannot be read
+     */
+    public LineStream open(String fileName) throws IOException {
+        Path path = Paths.get(fileName).toAbsolutePath().normalize();
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+
+        synchronized (this) {
+            Entry entry = entries.get(path);
+            if (entry != null) {
+                if (entry.size == attributes.size() && entry.modified.equals(attributes.lastModifiedTime())) {
+                    hits++;
+                    return stream(entry);
+                }
+                entries.remove(path);
+                bytesHeld -= entry.footprint();
+                invalidations++;
+            }
+
+            if (attributes.size() > budget || attributes.size() > Integer.MAX_VALUE - 8) {
+                uncached++;
+                return LineStream.fromFile(fileName);
+            }
+            misses++;
+        }
+
+        // read outside the lock so other stages are not held up by the disk
+        Entry entry = load(path, attributes);
+        if (entry == null) {
+            return LineStream.fromFile(fileName);
+        }
+
+        synchronized (this) {
+            Entry previous = entries.put(path, entry);
+            if (previous != null) bytesHeld -= previous.footprint();
+            bytesHeld += entry.footprint();
+            evict();
+        }
+        return stream(entry);
+    }
+
+    /**
+     * Reads a file and indexes its lines.
+     * @return The entry, or null if the file changed while it was read
+     */
+    private static Entry load(Path path, BasicFileAttributes attributes) throws IOException {
+        byte[] data = Files.readAllBytes(path);
+
+        BasicFileAttributes after = Files.readAttributes(path, BasicFileAttributes.class);
+        if (after.size() != data.length || !after.lastModifiedTime().equals(attributes.lastModifiedTime())) {
+            return null;
+        }
+
+        int[] starts = new int[Math.max(16, data.length / 64)];
+        int count = 0;
+        int start = 0;
+        for (int i = 0; i <= data.length; i++) {
+            if (i == data.length || data[i] == '\n') {
+                if (i == data.length && start == data.length) break;
+                if (count == starts.length) starts = Arrays.copyOf(starts, count * 2);
+                starts[count++] = start;
+                start = i + 1;
+            }
+        }
+        return new Entry(data, Arrays.copyOf(starts, count), count, data.length, after.lastModifiedTime());
+    }
+
+    /**
+     * Removes the least recently used entries until the cache fits its budget.
+     */
+    private void evict() {
+        Iterator<Map.Entry<Path, Entry>> it = entries.entrySet().iterator();
+        while (bytesHeld > budget && it.hasNext()) {
+            bytesHeld -= it.next().getValue().footprint();
+            it.remove();
+            evictions++;
+        }
+    }
+
+    /**
+     * Creates a stream of slices over a cached file. The bytes are never
+     * changed once cached, so any number of streams can share them.
+     */
+    private static LineStream stream(Entry entry) {
+        return new LineStream() {
+            private int next = 0;
+            private final Line line = new Line();
+
+            @Override
+            public Line readLine() {
+                if (next == entry.lineCount) return null;
+
+                int start = entry.lineStarts[next];
+                // a line ends just before the next one starts, the last one may still hold its newline
+                int end = next + 1 < entry.lineCount ? entry.lineStarts[next + 1] - 1 : entry.data.length;
+                boolean newline = end < entry.data.length;
+                if (!newline && end > start && entry.data[end - 1] == '\n') {
+                    end--;
+                    newline = true;
+                }
+                // like ByteLineReader, a \r is only dropped before a newline
+                if (newline && end > start && entry.data[end - 1] == '\r') end--;
+                next++;
+                return line.set(entry.data, start, end - start);
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    /**
+     * Prints the cache statistics for the stats command.
+     */
+    public synchronized void printStats() {
+        long lookups = hits + misses;
+        System.out.println("File cache");
+        System.out.printf("  entries:        %d%n", entries.size());
+        System.out.printf("  bytes held:     %d of %d%n", bytesHeld, budget);
+        System.out.printf("  hits:           %d%n", hits);
+        System.out.printf("  misses:         %d%n", misses);
+        System.out.printf("  hit rate:       %.1f%%%n", lookups == 0 ? 0.0 : 100.0 * hits / lookups);
+        System.out.printf("  invalidations:  %d%n", invalidations);
+        System.out.printf("  evictions:      %d%n", evictions);
+        System.out.printf("  too large:      %d%n", uncached);
+    }
+}
@@ -0,0 +1,65 @@
+package taskA;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Searches lines for a fixed string with the Boyer-Moore-Horspool algorithm,
+ * working on the UTF-8 bytes of the line so nothing is decoded.
+ *
+ * The pattern is compared from its last byte backwards, and after a mismatch
+ * the search moves on by the distance from the last occurrence of the byte
+ * under the end of the pattern to the end of the pattern, so most of the bytes
+ * of a line are never looked at when the pattern is long. UTF-8 never encodes
+ * one character inside another, so a byte match is always a text match.
+ */
+public class FixedStringMatcher implements LineMatcher {
+
+    private final byte[] pattern;
+    private final int[] shift = new int[256];
+
+    /**
+     * Constructor for the matcher, building the shift table.
+     * @param pattern Text to search for
+     */
+    public FixedStringMatcher(String pattern) {
+        this.pattern = pattern.getBytes(StandardCharsets.UTF_8);
+        int m = this.pattern.length;
+        for (int i = 0; i < shift.length; i++) {
+            shift[i] = Math.max(1, m);
+        }
+        for (int i = 0; i < m - 1; i++) {
+            shift[this.pattern[i] & 0xff] = m - 1 - i;
+        }
+    }
+
+    @Override
+    public boolean matches(Line line) {
+        return indexOf(line.bytes(), line.offset(), line.offset() + line.length()) >= 0;
+    }
+
+    /**
+     * Finds the first occurrence of the pattern in part of an array.
+     * @param data Array to search
+     * @param from Index of the first byte to search
+     * @param to Index after the last byte to search
+     * @return Index of the first occurrence, or -1 if there is none
+     */
+    public int indexOf(byte[] data, int from, int to) {
+        int m = pattern.length;
+        if (m == 0) return from;
+
+        int last = m - 1;
+        byte lastByte = pattern[last];
+        int position = from;
+        while (position <= to - m) {
+            byte b = data[position + last];
+            if (b == lastByte) {
+                int i = last - 1;
+                while (i >= 0 && data[position + i] == pattern[i]) i--;
+                if (i < 0) return position;
+            }
+            position += shift[b & 0xff];
+        }
+        return -1;
+    }
+}
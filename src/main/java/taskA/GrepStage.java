@@ -0,0 +1,102 @@
+package taskA;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * grep command: Outputs the lines of the input that contain a pattern.
+ * With -v the lines that do not contain it are output instead, with -F the
+ * pattern is plain text rather than a regular expression, and with -c only
+ * the number of selected lines is output. The pattern is compiled into a
+ * LineMatcher once, when the stage is opened, and lines are tested as they
+ * stream past, so lines that are filtered out never reach the next stage.
+ * Building the stage does not compile it, so the Planner can build one just
+ * to look at its arguments.
+ */
+public class GrepStage implements Stage {
+
+    private static final String USAGE = "Usage: grep [-v] [-F] [-c] pattern [filename]";
+
+    private final boolean invert;
+    private final boolean count;
+    private final String pattern;
+    private final boolean fixed;
+    private final String fileName;
+
+    /**
+     * Constructor for the grep stage.
+     * @param args Command line arguments
+     */
+    public GrepStage(List<String> args) {
+        boolean invert = false;
+        boolean fixed = false;
+        boolean count = false;
+        String pattern = null;
+        String fileName = null;
+
+        for (String arg : args) {
+            if (pattern == null && arg.startsWith("-") && arg.length() > 1) {
+                for (char flag : arg.substring(1).toCharArray()) {
+                    if (flag == 'v') invert = true;
+                    else if (flag == 'F') fixed = true;
+                    else if (flag == 'c') count = true;
+                    else throw new IllegalArgumentException(USAGE);
+                }
+            } else if (pattern == null) {
+                pattern = Stage.unquote(arg);
+            } else {
+                fileName = arg;
+            }
+        }
+
+        if (pattern == null) {
+            throw new IllegalArgumentException(USAGE);
+        }
+
+        this.invert = invert;
+        this.count = count;
+        this.pattern = pattern;
+        this.fixed = fixed;
+        this.fileName = fileName;
+    }
+
+    // Getter used by the Planner when it rewrites the pipeline
+
+    String getFileName() {
+        return fileName;
+    }
+
+    @Override
+    public LineStream open(LineStream input) throws IOException {
+        LineMatcher matcher = LineMatcher.compile(pattern, fixed);
+        LineStream source = Stage.source(input, fileName);
+        return new LineStream() {
+            private boolean counted = false;
+
+            @Override
+            public Line readLine() throws IOException {
+                if (count) {
+                    if (counted) return null;
+                    counted = true;
+                    long selected = 0;
+                    Line line;
+                    while ((line = source.readLine()) != null) {
+                        if (matcher.matches(line) != invert) selected++;
+                    }
+                    return Line.of(String.valueOf(selected));
+                }
+
+                Line line;
+                while ((line = source.readLine()) != null) {
+                    if (matcher.matches(line) != invert) return line;
+                }
+                return null;
+            }
+
+            @Override
+            public void close() throws IOException {
+                source.close();
+            }
+        };
+    }
+}
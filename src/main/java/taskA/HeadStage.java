@@ -0,0 +1,129 @@
+package taskA;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * head command: Outputs the first lines of the input.
+ * head -n N outputs the first N lines (10 by default) and stops reading, so
+ * the stages before it stop too. head -n -K outputs everything but the last K
+ * lines; for a file with a LineIndex the index gives the line count, so the
+ * lines are read up to the right place without holding K lines back in
+ * memory.
+ */
+public class HeadStage implements Stage {
+
+    private static final String USAGE = "Usage: head [-n count | -n -count] [filename]";
+
+    private final long count;
+    private final boolean allButLast;
+    private final String fileName;
+
+    /**
+     * Constructor for the head stage.
+     * @param args Command line arguments
+     */
+    public HeadStage(List<String> args) {
+        String count = "10";
+        String fileName = null;
+
+        for (int i = 0; i < args.size(); i++) {
+            String arg = args.get(i);
+            if (arg.equals("-n") && i + 1 < args.size()) {
+                count = args.get(++i);
+            } else if (arg.startsWith("-") && arg.length() > 1) {
+                throw new IllegalArgumentException(USAGE);
+            } else {
+                fileName = arg;
+            }
+        }
+
+        this.allButLast = count.startsWith("-");
+        this.count = parseCount(allButLast ? count.substring(1) : count, USAGE);
+        this.fileName = fileName;
+    }
+
+    // Getter used by the Planner when it rewrites the pipeline
+
+    String getFileName() {
+        return fileName;
+    }
+
+    @Override
+    public LineStream open(LineStream input) throws IOException {
+        if (!allButLast) {
+            LineStream source = Stage.source(input, fileName);
+            return limit(source, count);
+        }
+
+        if (input == null && fileName != null && Files.isRegularFile(Paths.get(fileName))) {
+            Path file = Paths.get(fileName);
+            LineIndex index = LineIndex.existing(file);
+            if (index != null) {
+                return index.lines(file, 0, Math.max(0, index.getLineCount() - count));
+            }
+        }
+
+        LineStream source = Stage.source(input, fileName);
+        LineRing ring = new LineRing(count);
+        return new LineStream() {
+            @Override
+            public Line readLine() throws IOException {
+                Line line;
+                while ((line = source.readLine()) != null) {
+                    Line out = ring.push(line);
+                    if (out != null) return out;
+                }
+                return null;
+            }
+
+            @Override
+            public void close() throws IOException {
+                source.close();
+            }
+        };
+    }
+
+    /**
+     * Wraps a stream so it ends after a number of lines.
+     * @param source Stream to read
+     * @param count Maximum number of lines
+     * @return Stream over at most count lines of the source
+     */
+    static LineStream limit(LineStream source, long count) {
+        return new LineStream() {
+            private long remaining = count;
+
+            @Override
+            public Line readLine() throws IOException {
+                if (remaining <= 0) return null;
+                remaining--;
+                return source.readLine();
+            }
+
+            @Override
+            public void close() throws IOException {
+                source.close();
+            }
+        };
+    }
+
+    /**
+     * Parses the number of lines given to -n.
+     * @param count Number as typed, without its sign
+     * @param usage Message to give if it is not a number
+     * @return Number of lines
+     */
+    static long parseCount(String count, String usage) {
+        try {
+            long value = Long.parseLong(count);
+            if (value < 0) throw new IllegalArgumentException(usage);
+            return value;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(usage);
+        }
+    }
+}
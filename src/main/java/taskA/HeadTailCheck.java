@@ -0,0 +1,82 @@
+package taskA;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Check of head -n -K and tail -n N on piped input, which keep their lines in
+ * a LineRing. Input of every length around the ring's first slot array and
+ * around the count is run through both stages and compared with the lines
+ * they should give, and every mismatch is printed.
+ *
+ * Usage: java taskA.HeadTailCheck
+ */
+public class HeadTailCheck {
+
+    private static final int[] LENGTHS = {0, 1, 2, 3, 15, 16, 17, 31, 32, 33, 100, 1000};
+    private static final int[] COUNTS = {0, 1, 2, 3, 15, 16, 17, 40};
+
+    /**
+     * Main method to run the check.
+     * @param args Not used
+     * @throws IOException If a stage fails
+     */
+    public static void main(String[] args) throws IOException {
+        int checks = 0;
+        int failures = 0;
+
+        for (int length : LENGTHS) {
+            List<String> input = new ArrayList<>();
+            for (int i = 0; i < length; i++) input.add("line " + i);
+
+            for (int count : COUNTS) {
+                List<String> allButLast = input.subList(0, Math.max(0, length - count));
+                List<String> last = input.subList(Math.max(0, length - count), length);
+
+                failures += check("head -n -" + count, new HeadStage(List.of("-n", "-" + count)), input, allButLast);
+                failures += check("tail -n " + count, new TailStage(List.of("-n", String.valueOf(count))), input, last);
+                checks += 2;
+            }
+        }
+
+        System.out.printf("%d of %d checks passed%n", checks - failures, checks);
+        if (failures > 0) System.exit(1);
+    }
+
+    /**
+     * Runs a stage over piped lines and compares what it gives with what it should.
+     * @return 1 if it gave something else, 0 if not
+     */
+    private static int check(String command, Stage stage, List<String> input, List<String> expected)
+            throws IOException {
+        List<String> output = new ArrayList<>();
+        try (LineStream stream = stage.open(piped(input))) {
+            Line line;
+            while ((line = stream.readLine()) != null) output.add(line.toString());
+        } catch (RuntimeException e) {
+            System.out.printf("%s on %d lines failed: %s%n", command, input.size(), e);
+            return 1;
+        }
+
+        if (output.equals(expected)) return 0;
+        System.out.printf("%s on %d lines gave %d lines, expected %d%n", command, input.size(),
+                output.size(), expected.size());
+        return 1;
+    }
+
+    private static LineStream piped(List<String> input) {
+        return new LineStream() {
+            private int next = 0;
+
+            @Override
+            public Line readLine() {
+                return next < input.size() ? Line.of(input.get(next++)) : null;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+}
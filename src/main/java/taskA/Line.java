@@ -0,0 +1,146 @@
+package taskA;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A line of text as a slice of a byte array, without its newline.
+ *
+ * Stages pass lines around as slices over their own reused buffers, so most
+ * lines are never copied or turned into a String. A line returned by
+ * LineStream.readLine is only valid until the next call to readLine; a stage
+ * that needs to keep it must take a copy. Text is UTF-8 and is only decoded
+ * when a stage really needs characters, for example to sort.
+ */
+public final class Line {
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private byte[] bytes;
+    private int offset;
+    private int length;
+
+    /**
+     * Constructor for an empty line.
+     */
+    public Line() {
+        this(EMPTY, 0, 0);
+    }
+
+    /**
+     * Constructor for a line over part of a byte array. The bytes are not copied.
+     * @param bytes Array holding the line
+     * @param offset Index of the first byte of the line
+     * @param length Number of bytes in the line
+     */
+    public Line(byte[] bytes, int offset, int length) {
+        this.bytes = bytes;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    /**
+     * Creates a line from a String.
+     * @param text Text of the line
+     * @return Line holding the UTF-8 bytes of the text
+     */
+    public static Line of(String text) {
+        byte[] encoded = text.getBytes(StandardCharsets.UTF_8);
+        return new Line(encoded, 0, encoded.length);
+    }
+
+    /**
+     * Points this line at a different slice. Used by streams that return the
+     * same Line object for every line they read.
+     * @param bytes Array holding the line
+     * @param offset Index of the first byte of the line
+     * @param length Number of bytes in the line
+     * @return This line
+     */
+    public Line set(byte[] bytes, int offset, int length) {
+        this.bytes = bytes;
+        this.offset = offset;
+        this.length = length;
+        return this;
+    }
+
+    public byte[] bytes() {
+        return bytes;
+    }
+
+    public int offset() {
+        return offset;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    /**
+     * Gets one byte of the line.
+     * @param index Index within the line
+     * @return The byte
+     */
+    public byte byteAt(int index) {
+        return bytes[offset + index];
+    }
+
+    /**
+     * Creates a copy that owns its bytes, for stages that keep lines.
+     * @return Copy of this line
+     */
+    public Line copy() {
+        return new Line(Arrays.copyOfRange(bytes, offset, offset + length), 0, length);
+    }
+
+    /**
+     * Copies another line into this one, reusing this line's array when it is
+     * big enough. This line must own its array, for example one made by copy().
+     * @param other Line to copy
+     */
+    public void assign(Line other) {
+        if (bytes.length < other.length || bytes == other.bytes) {
+            bytes = new byte[Math.max(other.length, 2 * bytes.length)];
+        }
+        System.arraycopy(other.bytes, other.offset, bytes, 0, other.length);
+        offset = 0;
+        length = other.length;
+    }
+
+    /**
+     * Writes the bytes of the line, without a newline.
+     * @param out Stream to write to
+     * @throws IOException If an I/O error occurs
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(bytes, offset, length);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) return true;
+        if (!(other instanceof Line)) return false;
+        Line line = (Line) other;
+        return Arrays.equals(bytes, offset, offset + length, line.bytes, line.offset, line.offset + line.length);
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 1;
+        for (int i = offset; i < offset + length; i++) {
+            hash = 31 * hash + bytes[i];
+        }
+        return hash;
+    }
+
+    /**
+     * Decodes the line. This is the only place bytes are turned into characters.
+     * @return Text of the line
+     */
+    @Override
+    public String toString() {
+        return new String(bytes, offset, length, StandardCharsets.UTF_8);
+    }
+}
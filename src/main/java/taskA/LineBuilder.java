@@ -0,0 +1,109 @@
+package taskA;
+
+import java.util.Arrays;
+
+/**
+ * A growable byte buffer for building output lines. Stages keep one builder
+ * and reset it for every line, so building a line allocates nothing once the
+ * buffer has grown to the longest line.
+ */
+public class LineBuilder {
+
+    private byte[] data = new byte[256];
+    private int size = 0;
+    private final Line view = new Line();
+
+    /**
+     * Empties the builder.
+     * @return This builder
+     */
+    public LineBuilder reset() {
+        size = 0;
+        return this;
+    }
+
+    /**
+     * Appends part of a byte array.
+     * @param bytes Array to copy from
+     * @param offset Index of the first byte
+     * @param length Number of bytes
+     * @return This builder
+     */
+    public LineBuilder append(byte[] bytes, int offset, int length) {
+        ensure(length);
+        System.arraycopy(bytes, offset, data, size, length);
+        size += length;
+        return this;
+    }
+
+    /**
+     * Appends a whole line.
+     * @param line Line to append
+     * @return This builder
+     */
+    public LineBuilder append(Line line) {
+        return append(line.bytes(), line.offset(), line.length());
+    }
+
+    /**
+     * Appends one byte.
+     * @param b Byte to append
+     * @return This builder
+     */
+    public LineBuilder append(byte b) {
+        ensure(1);
+        data[size++] = b;
+        return this;
+    }
+
+    /**
+     * Appends text encoded as UTF-8, without creating a byte array for it.
+     * @param text Text to append
+     * @return This builder
+     */
+    public LineBuilder appendUtf8(CharSequence text) {
+        ensure(3 * text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                data[size++] = (byte) c;
+            } else if (c < 0x800) {
+                data[size++] = (byte) (0xc0 | (c >> 6));
+                data[size++] = (byte) (0x80 | (c & 0x3f));
+            } else if (Character.isHighSurrogate(c) && i + 1 < text.length()
+                    && Character.isLowSurrogate(text.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, text.charAt(++i));
+                data[size++] = (byte) (0xf0 | (cp >> 18));
+                data[size++] = (byte) (0x80 | ((cp >> 12) & 0x3f));
+                data[size++] = (byte) (0x80 | ((cp >> 6) & 0x3f));
+                data[size++] = (byte) (0x80 | (cp & 0x3f));
+            } else if (Character.isSurrogate(c)) {
+                data[size++] = (byte) '?';
+            } else {
+                data[size++] = (byte) (0xe0 | (c >> 12));
+                data[size++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                data[size++] = (byte) (0x80 | (c & 0x3f));
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Gets the built line as a view over the builder's buffer. The view is
+     * reused and is only valid until the builder is changed.
+     * @return The built line
+     */
+    public Line line() {
+        return view.set(data, 0, size);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private void ensure(int extra) {
+        if (size + extra > data.length) {
+            data = Arrays.copyOf(data, Math.max(size + extra, 2 * data.length));
+        }
+    }
+}
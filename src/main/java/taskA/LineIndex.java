@@ -0,0 +1,306 @@
+package taskA;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+
+/**
+ * Where the lines of a file start, sampled every INTERVAL lines and kept in a
+ * sidecar file next to it (data.csv has its index in data.csv.idx).
+ *
+ * The index is built by one pass over the file when the index command asks
+ * for it, and is read back on later runs, as long as the file still has the
+ * size and modification time recorded in it. Nothing else writes a sidecar,
+ * so commands only ever use one the user has built. It gives the number of
+ * lines of the file straight away, lets a reader jump to any line by seeking
+ * to the sample before it and skipping at most INTERVAL - 1 lines, and splits
+ * the file into ranges that start at the beginning of a line, so that each
+ * range can be handed to a different thread.
+ *
+ * Sidecar layout, big-endian: magic, version, file size, modification time in
+ * milliseconds, interval, line count, whether the file ends with a newline,
+ * number of samples, and then the byte offset of every sampled line.
+ */
+public class LineIndex {
+
+    // lines between two samples
+    static final int INTERVAL = 1024;
+
+    private static final int MAGIC = 0x4c494458; // "LIDX"
+    private static final int VERSION = 1;
+    private static final int BLOCK_SIZE = 64 * 1024;
+
+    private final long size;
+    private final long modified;
+    private final int interval;
+    private final long lineCount;
+    private final boolean endsWithNewline;
+    private final long[] samples;
+
+    private LineIndex(long size, long modified, int interval, long lineCount, boolean endsWithNewline,
+                      long[] samples) {
+        this.size = size;
+        this.modified = modified;
+        this.interval = interval;
+        this.lineCount = lineCount;
+        this.endsWithNewline = endsWithNewline;
+        this.samples = samples;
+    }
+
+    /**
+     * Gets the sidecar file of a file.
+     * @param file Indexed file
+     * @return Path of its index
+     */
+    public static Path sidecar(Path file) {
+        return Paths.get(file + ".idx");
+    }
+
+    /**
+     * Reads the sidecar of a file, if it has one that matches the file.
+     * @param file Indexed file
+     * @return The index, or null if there is none or it is out of date
+     */
+    public static LineIndex existing(Path file) {
+        Path sidecar = sidecar(file);
+        if (!Files.isRegularFile(sidecar)) return null;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(sidecar)))) {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) return null;
+
+            long size = in.readLong();
+            long modified = in.readLong();
+            if (size != attributes.size() || modified != attributes.lastModifiedTime().toMillis()) return null;
+
+            int interval = in.readInt();
+            long lineCount = in.readLong();
+            boolean endsWithNewline = in.readBoolean();
+            long[] samples = new long[in.readInt()];
+            for (int i = 0; i < samples.length; i++) {
+                samples[i] = in.readLong();
+            }
+            return new LineIndex(size, modified, interval, lineCount, endsWithNewline, samples);
+        } catch (IOException e) {
+            // a damaged or unreadable sidecar is ignored until index is run again
+            return null;
+        }
+    }
+
+    /**
+     * Scans a file for its line starts and saves the sidecar. If the sidecar
+     * cannot be written, for example in a read-only directory, the index is
+     * still returned and is built again next time.
+     * @param file File to index
+     * @param interval Lines between two samples
+     * @return The index
+     * @throws IOException If the file cannot be read
+     */
+    public static LineIndex build(Path file, int interval) throws IOException {
+        if (interval < 1) throw new IllegalArgumentException("Index interval must be at least 1");
+
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        long[] samples = new long[16];
+        int sampleCount = 0;
+        long lineCount = 0;
+        boolean endsWithNewline = false;
+        long size;
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            size = channel.size();
+            byte[] block = new byte[BLOCK_SIZE];
+            boolean atLineStart = true;
+
+            for (long position = 0; position < size; position += WordCount.CHUNK_SIZE) {
+                MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                        Math.min(WordCount.CHUNK_SIZE, size - position));
+                long blockStart = position;
+                while (map.hasRemaining()) {
+                    int n = Math.min(block.length, map.remaining());
+                    map.get(block, 0, n);
+                    for (int i = 0; i < n; i++) {
+                        if (atLineStart) {
+                            if (lineCount % interval == 0) {
+                                if (sampleCount == samples.length) samples = Arrays.copyOf(samples, sampleCount * 2);
+                                samples[sampleCount++] = blockStart + i;
+                            }
+                            lineCount++;
+                            atLineStart = false;
+                        }
+                        if (block[i] == '\n') atLineStart = true;
+                    }
+                    blockStart += n;
+                }
+            }
+            endsWithNewline = size > 0 && atLineStart;
+        }
+
+        BasicFileAttributes after = Files.readAttributes(file, BasicFileAttributes.class);
+        if (after.size() != size || !after.lastModifiedTime().equals(attributes.lastModifiedTime())) {
+            throw new IOException(file + " changed while it was being indexed");
+        }
+
+        LineIndex index = new LineIndex(size, attributes.lastModifiedTime().toMillis(), interval, lineCount,
+                endsWithNewline, Arrays.copyOf(samples, sampleCount));
+        try {
+            index.save(sidecar(file));
+        } catch (IOException ignored) {
+        }
+        return index;
+    }
+
+    /**
+     * Writes the index to a temporary file and moves it into place, so a
+     * reader never sees half a sidecar.
+     */
+    private void save(Path sidecar) throws IOException {
+        Path temp = Paths.get(sidecar + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(size);
+            out.writeLong(modified);
+            out.writeInt(interval);
+            out.writeLong(lineCount);
+            out.writeBoolean(endsWithNewline);
+            out.writeInt(samples.length);
+            for (long sample : samples) {
+                out.writeLong(sample);
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, sidecar, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    // Getters for the summary of the file
+
+    public long getSize() {
+        return size;
+    }
+
+    public int getInterval() {
+        return interval;
+    }
+
+    public long getLineCount() {
+        return lineCount;
+    }
+
+    /**
+     * Gets the number of newline bytes in the file, which is what wc -l counts.
+     * @return Number of newlines
+     */
+    public long getNewlineCount() {
+        return endsWithNewline || lineCount == 0 ? lineCount : lineCount - 1;
+    }
+
+    public int getSampleCount() {
+        return samples.length;
+    }
+
+    /**
+     * Finds the byte offset where a line starts by seeking to the sample
+     * before it and skipping the lines in between.
+     * @param channel Open indexed file
+     * @param line Number of the line, counting from 0
+     * @return Offset of the line, or the file size if the file has fewer lines
+     * @throws IOException If an I/O error occurs
+     */
+    public long offsetOf(FileChannel channel, long line) throws IOException {
+        if (line <= 0) return 0;
+        if (line >= lineCount) return size;
+
+        int sample = (int) (line / interval);
+        long position = samples[sample];
+        long skip = line - (long) sample * interval;
+
+        ByteBuffer buffer = ByteBuffer.allocate(BLOCK_SIZE);
+        while (skip > 0) {
+            buffer.clear();
+            int n = channel.read(buffer, position);
+            if (n < 0) return size;
+            byte[] block = buffer.array();
+            for (int i = 0; i < n; i++) {
+                if (block[i] == '\n' && --skip == 0) {
+                    return position + i + 1;
+                }
+            }
+            position += n;
+        }
+        return position;
+    }
+
+    /**
+     * Splits the file into ranges of about the same size that all start at
+     * the beginning of a line. Every boundary is a sampled offset, so ranges
+     * are never smaller than INTERVAL lines apart from the last one.
+     * @param parts Number of ranges wanted
+     * @return Offsets of the boundaries, starting with 0 and ending with the file size
+     */
+    public long[] split(int parts) {
+        if (samples.length == 0) return new long[]{0, size};
+
+        long[] boundaries = new long[parts + 1];
+        int count = 0;
+        boundaries[count++] = 0;
+        for (int i = 1; i < parts; i++) {
+            long target = size / parts * i;
+            int found = Arrays.binarySearch(samples, target);
+            long boundary = samples[found >= 0 ? found : Math.min(-found - 1, samples.length - 1)];
+            if (boundary > boundaries[count - 1] && boundary < size) boundaries[count++] = boundary;
+        }
+        if (size > boundaries[count - 1] || count == 1) boundaries[count++] = size;
+        return Arrays.copyOf(boundaries, count);
+    }
+
+    /**
+     * Opens a stream over some of the lines of the file.
+     * @param file Indexed file
+     * @param first Number of the first line, counting from 0
+     * @param count Maximum number of lines to read
+     * @return Stream over the lines
+     * @throws IOException If the file cannot be read
+     */
+    public LineStream lines(Path file, long first, long count) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        LineStream reader;
+        try {
+            channel.position(offsetOf(channel, first));
+            reader = new ByteLineReader(Channels.newInputStream(channel));
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+
+        return new LineStream() {
+            private long remaining = count;
+
+            @Override
+            public Line readLine() throws IOException {
+                if (remaining <= 0) return null;
+                remaining--;
+                return reader.readLine();
+            }
+
+            @Override
+            public void close() throws IOException {
+                reader.close();
+            }
+        };
+    }
+}
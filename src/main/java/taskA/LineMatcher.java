@@ -0,0 +1,50 @@
+package taskA;
+
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Decides whether a line contains a pattern, for grep.
+ * A matcher is compiled once when a grep stage is opened and then tested
+ * against every line, so all the work that depends only on the pattern is
+ * done up front. A matcher keeps scratch state and is used by one thread.
+ */
+public interface LineMatcher {
+
+    // characters that make a pattern a regular expression rather than plain text
+    String REGEX_CHARACTERS = "\\^$.|?*+()[]{}";
+
+    /**
+     * Tests one line.
+     * @param line Line to test
+     * @return True if the pattern occurs somewhere in the line
+     */
+    boolean matches(Line line);
+
+    /**
+     * Compiles a pattern. A regular expression with no special characters is
+     * plain text, so it is searched for as bytes in the same way as with -F.
+     * @param pattern Pattern as typed
+     * @param fixed True to treat the pattern as plain text (grep -F)
+     * @return Matcher for the pattern
+     * @throws IllegalArgumentException If the pattern is not a valid regular expression
+     */
+    static LineMatcher compile(String pattern, boolean fixed) {
+        boolean literal = true;
+        for (char c : pattern.toCharArray()) {
+            if (REGEX_CHARACTERS.indexOf(c) >= 0) {
+                literal = false;
+                break;
+            }
+        }
+        if (fixed || literal) {
+            return new FixedStringMatcher(pattern);
+        }
+
+        try {
+            return new RegexMatcher(Pattern.compile(pattern));
+        } catch (PatternSyntaxException e) {
+            throw new IllegalArgumentException("grep: invalid pattern: " + e.getDescription());
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package taskA;
+
+/**
+ * The last few lines of a stream, for head and tail counting from the end.
+ * Each slot owns a copy of its line and is reused when a newer line replaces
+ * it, so keeping the window allocates nothing once it is full. Slots are
+ * created as lines arrive, so a large count over a short input costs only
+ * what the input needs. The slot array never grows past the capacity, so once
+ * the window is full it is exactly the array and wraps around it.
+ */
+public class LineRing {
+
+    private final long capacity;
+    private Line[] slots;
+    private int first = 0;
+    private int size = 0;
+    private Line evicted = new Line();
+
+    /**
+     * Constructor for an empty window.
+     * @param capacity Number of lines to keep
+     */
+    public LineRing(long capacity) {
+        this.capacity = capacity;
+        this.slots = new Line[(int) Math.min(16, capacity)];
+    }
+
+    /**
+     * Adds a line, pushing out the oldest one if the window is full.
+     * @param line Line to add, copied into the window
+     * @return The line pushed out, valid until the next call, or null if the
+     * window was not full yet
+     */
+    public Line push(Line line) {
+        if (capacity == 0) return line;
+
+        if (size < capacity) {
+            if (size == slots.length) grow();
+            int slot = (first + size) % slots.length;
+            if (slots[slot] == null) slots[slot] = new Line();
+            slots[slot].assign(line);
+            size++;
+            return null;
+        }
+
+        // the spare line takes the oldest one's slot, and the oldest becomes the spare
+        Line oldest = slots[first];
+        evicted.assign(line);
+        slots[first] = evicted;
+        evicted = oldest;
+        first = (first + 1) % slots.length;
+        return oldest;
+    }
+
+    /**
+     * Removes the oldest line.
+     * @return The oldest line, valid until the next call, or null if the window is empty
+     */
+    public Line poll() {
+        if (size == 0) return null;
+        Line oldest = slots[first];
+        first = (first + 1) % slots.length;
+        size--;
+        return oldest;
+    }
+
+    private void grow() {
+        Line[] grown = new Line[(int) Math.min(Math.min(Integer.MAX_VALUE - 8, capacity), 2L * slots.length)];
+        for (int i = 0; i < size; i++) {
+            grown[i] = slots[(first + i) % slots.length];
+        }
+        slots = grown;
+        first = 0;
+    }
+}
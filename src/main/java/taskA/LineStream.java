@@ -0,0 +1,49 @@
+package taskA;
+
+import java.io.Closeable;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+/**
+ * A pull-based stream of lines flowing between the stages of a pipeline.
+ * Lines are produced one at a time on demand, so a stage only holds
+ * the data it really needs instead of the whole input.
+ */
+public interface LineStream extends Closeable {
+
+    /**
+     * Reads the next line from the stream. The line may be a view over a
+     * buffer of the stream and is only valid until the next call; copy it
+     * to keep it.
+     * @return The next line, or null when the stream is exhausted
+     * @throws IOException If an I/O error occurs
+     */
+    Line readLine() throws IOException;
+
+    /**
+     * Creates a stream that reads the lines of a file as raw bytes.
+     * @param fileName Name of the file to read
+     * @return Stream over the lines of the file
+     * @throws IOException If the file cannot be opened
+     */
+    static LineStream fromFile(String fileName) throws IOException {
+        return new ByteLineReader(new FileInputStream(fileName));
+    }
+
+    /**
+     * Creates a stream with no lines.
+     * @return Empty stream
+     */
+    static LineStream empty() {
+        return new LineStream() {
+            @Override
+            public Line readLine() {
+                return null;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+}
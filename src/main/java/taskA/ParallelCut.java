@@ -0,0 +1,130 @@
+package taskA;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs cut over a large file on several threads.
+ *
+ * The file's LineIndex splits it into ranges of about RANGE_SIZE bytes that
+ * start at the beginning of a line. Each worker reads one range and cuts all
+ * of its lines into one buffer; the buffers are handed out in file order, so
+ * the output is the same as cutting the file line by line. At most two ranges
+ * per thread are in flight at once, which bounds the memory used however
+ * large the file is.
+ */
+public class ParallelCut {
+
+    // bytes of input given to a worker at a time
+    private static final long RANGE_SIZE = 4 * 1024 * 1024;
+
+    private ParallelCut() {
+    }
+
+    /**
+     * Cuts a file on several threads.
+     * @param cut Stage holding the fields and delimiter
+     * @param file File to cut
+     * @param index Line index of the file
+     * @param threads Number of worker threads
+     * @return Stream over the cut lines, in file order
+     * @throws IOException If the file cannot be opened
+     */
+    public static LineStream open(CutStage cut, Path file, LineIndex index, int threads) throws IOException {
+        long[] boundaries = index.split((int) Math.max(1, Math.min(Integer.MAX_VALUE - 1,
+                (index.getSize() + RANGE_SIZE - 1) / RANGE_SIZE)));
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        StageMetrics.Helpers workers = StageMetrics.helperThreads("cut-worker");
+        ExecutorService pool = Executors.newFixedThreadPool(threads, workers);
+
+        return new LineStream() {
+            private final ArrayDeque<Future<Line>> pending = new ArrayDeque<>();
+            private int nextRange = 0;
+            private Line output = null;
+            private int position = 0;
+            private final Line line = new Line();
+
+            @Override
+            public Line readLine() throws IOException {
+                while (output == null || position == output.offset() + output.length()) {
+                    // keep every thread busy with the ranges that come next
+                    while (pending.size() < 2 * threads && nextRange + 1 < boundaries.length) {
+                        long start = boundaries[nextRange];
+                        long end = boundaries[nextRange + 1];
+                        pending.add(pool.submit(() -> cutRange(cut, channel, start, end)));
+                        nextRange++;
+                    }
+                    if (pending.isEmpty()) return null;
+                    output = take(pending.poll());
+                    position = output.offset();
+                }
+
+                byte[] data = output.bytes();
+                int start = position;
+                while (data[position] != '\n') position++;
+                line.set(data, start, position - start);
+                position++;
+                return line;
+            }
+
+            @Override
+            public void close() throws IOException {
+                workers.finish();
+                pool.shutdownNow();
+                channel.close();
+            }
+        };
+    }
+
+    private static Line take(Future<Line> result) throws IOException {
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("cut interrupted", e);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException
+                    ? (IOException) e.getCause()
+                    : new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * Reads one range of the file and cuts every line in it.
+     * @return The cut lines, each ending with a newline
+     */
+    private static Line cutRange(CutStage cut, FileChannel channel, long start, long end) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) (end - start));
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, start + buffer.position()) < 0) break;
+        }
+        byte[] data = buffer.array();
+        int length = buffer.position();
+
+        FieldScanner scanner = new FieldScanner(cut.getDelimiter());
+        LineBuilder field = new LineBuilder();
+        LineBuilder result = new LineBuilder();
+        Line line = new Line();
+
+        int lineStart = 0;
+        for (int i = 0; i <= length; i++) {
+            if (i == length || data[i] == '\n') {
+                if (i == length && lineStart == length) break;
+                int lineEnd = i > lineStart && data[i - 1] == '\r' ? i - 1 : i;
+                result.append(cut.cut(line.set(data, lineStart, lineEnd - lineStart), scanner, field))
+                        .append((byte) '\n');
+                lineStart = i + 1;
+            }
+        }
+        // the builder is not used again, so its view can be handed out as it is
+        return result.line();
+    }
+}
@@ -0,0 +1,189 @@
+package taskA;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * A stable fork-join merge sort that runs on a fixed number of threads.
+ * Slices are sorted with Arrays.sort and then merged in parallel, so the
+ * result is exactly the same as a sequential stable sort with the same order.
+ */
+public class ParallelSort {
+
+    // below this many elements a slice is sorted or merged on one thread
+    static final int SEQUENTIAL_THRESHOLD = 8192;
+
+    /**
+     * Sorts a list in place.
+     * @param list List to sort
+     * @param order Order to sort in
+     * @param parallelism Number of threads to use, 1 sorts on the calling thread
+     * @param <T> Type of the elements
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> void sort(List<T> list, Comparator<? super T> order, int parallelism) {
+        if (parallelism <= 1 || list.size() < 2 * SEQUENTIAL_THRESHOLD) {
+            list.sort(order);
+            return;
+        }
+
+        Object[] array = list.toArray();
+        sort((T[]) array, order, parallelism);
+
+        ListIterator<T> it = list.listIterator();
+        for (Object element : array) {
+            it.next();
+            it.set((T) element);
+        }
+    }
+
+    /**
+     * Sorts an array in place.
+     * @param array Array to sort
+     * @param order Order to sort in
+     * @param parallelism Number of threads to use, 1 sorts on the calling thread
+     * @param <T> Type of the elements
+     */
+    public static <T> void sort(T[] array, Comparator<? super T> order, int parallelism) {
+        if (parallelism <= 1 || array.length < 2 * SEQUENTIAL_THRESHOLD) {
+            Arrays.sort(array, order);
+            return;
+        }
+
+        // split into a few slices per thread so that uneven slices still balance
+        int slice = Math.max(SEQUENTIAL_THRESHOLD, array.length / (4 * parallelism) + 1);
+        T[] buffer = Arrays.copyOf(array, array.length);
+
+        StageMetrics.Helpers workers = StageMetrics.helperThreads("sort-worker");
+        ForkJoinPool pool = new ForkJoinPool(parallelism, workers, null, false);
+        try {
+            pool.invoke(new SortTask<>(array, buffer, 0, array.length, order, slice));
+        } finally {
+            workers.finish();
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Sorts array[lo, hi), using the same range of buffer as scratch space.
+     */
+    private static class SortTask<T> extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final T[] array;
+        private final T[] buffer;
+        private final int lo;
+        private final int hi;
+        private final Comparator<? super T> order;
+        private final int slice;
+
+        SortTask(T[] array, T[] buffer, int lo, int hi, Comparator<? super T> order, int slice) {
+            this.array = array;
+            this.buffer = buffer;
+            this.lo = lo;
+            this.hi = hi;
+            this.order = order;
+            this.slice = slice;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo <= slice) {
+                Arrays.sort(array, lo, hi, order);
+                return;
+            }
+
+            int mid = (lo + hi) >>> 1;
+            invokeAll(new SortTask<>(array, buffer, lo, mid, order, slice),
+                    new SortTask<>(array, buffer, mid, hi, order, slice));
+
+            System.arraycopy(array, lo, buffer, lo, hi - lo);
+            new MergeTask<>(buffer, lo, mid, mid, hi, array, lo, order, slice).compute();
+        }
+    }
+
+    /**
+     * Merges the sorted ranges src[lo1, hi1) and src[lo2, hi2) into dst starting at out.
+     * Equal elements from the first range always come first, which keeps the sort stable.
+     */
+    private static class MergeTask<T> extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final T[] src;
+        private final int lo1;
+        private final int hi1;
+        private final int lo2;
+        private final int hi2;
+        private final T[] dst;
+        private final int out;
+        private final Comparator<? super T> order;
+        private final int slice;
+
+        MergeTask(T[] src, int lo1, int hi1, int lo2, int hi2, T[] dst, int out,
+                  Comparator<? super T> order, int slice) {
+            this.src = src;
+            this.lo1 = lo1;
+            this.hi1 = hi1;
+            this.lo2 = lo2;
+            this.hi2 = hi2;
+            this.dst = dst;
+            this.out = out;
+            this.order = order;
+            this.slice = slice;
+        }
+
+        @Override
+        protected void compute() {
+            int n1 = hi1 - lo1;
+            int n2 = hi2 - lo2;
+
+            if (n1 + n2 <= slice) {
+                int i = lo1, j = lo2, k = out;
+                while (i < hi1 && j < hi2) {
+                    dst[k++] = order.compare(src[j], src[i]) < 0 ? src[j++] : src[i++];
+                }
+                while (i < hi1) dst[k++] = src[i++];
+                while (j < hi2) dst[k++] = src[j++];
+                return;
+            }
+
+            // split the larger range in half and find where its middle falls in the other one
+            int split1, split2;
+            if (n1 >= n2) {
+                split1 = (lo1 + hi1) >>> 1;
+                split2 = lowerBound(src, lo2, hi2, src[split1]);
+            } else {
+                split2 = (lo2 + hi2) >>> 1;
+                split1 = upperBound(src, lo1, hi1, src[split2]);
+            }
+
+            int outSplit = out + (split1 - lo1) + (split2 - lo2);
+            invokeAll(new MergeTask<>(src, lo1, split1, lo2, split2, dst, out, order, slice),
+                    new MergeTask<>(src, split1, hi1, split2, hi2, dst, outSplit, order, slice));
+        }
+
+        // first index in [lo, hi) whose element is not less than key
+        private int lowerBound(T[] a, int lo, int hi, T key) {
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (order.compare(a[mid], key) < 0) lo = mid + 1;
+                else hi = mid;
+            }
+            return lo;
+        }
+
+        // first index in [lo, hi) whose element is greater than key
+        private int upperBound(T[] a, int lo, int hi, T key) {
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (order.compare(a[mid], key) <= 0) lo = mid + 1;
+                else hi = mid;
+            }
+            return lo;
+        }
+    }
+}
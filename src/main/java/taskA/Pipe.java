@@ -0,0 +1,203 @@
+package taskA;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A bounded ring buffer connecting two stages that run on different threads.
+ * Lines are passed in batches to keep locking cheap, and a full buffer blocks
+ * the writer until the reader catches up, like a real shell pipe.
+ * A batch packs the bytes of its lines into one array, so handing lines to
+ * another thread costs one copy per line and no objects per line.
+ */
+public class Pipe {
+
+    // number of lines and bytes in one batch, and number of batches the pipe can hold
+    static final int BATCH_SIZE = 1024;
+    static final int BATCH_BYTES = 256 * 1024;
+    static final int CAPACITY = 16;
+
+    /**
+     * A batch of lines: their bytes one after another, and where each one ends.
+     */
+    static final class Batch {
+        byte[] data;
+        final int[] ends = new int[BATCH_SIZE];
+        int count = 0;
+        int size = 0;
+
+        Batch(int bytes) {
+            data = new byte[bytes];
+        }
+
+        boolean isFull() {
+            return count == BATCH_SIZE || size >= BATCH_BYTES;
+        }
+
+        void add(Line line) {
+            if (size + line.length() > data.length) {
+                data = Arrays.copyOf(data, Math.max(size + line.length(), 2 * data.length));
+            }
+            System.arraycopy(line.bytes(), line.offset(), data, size, line.length());
+            size += line.length();
+            ends[count++] = size;
+        }
+    }
+
+    private final Batch[] ring = new Batch[CAPACITY];
+    private int head = 0;
+    private int count = 0;
+
+    private boolean writerDone = false;
+    private boolean readerClosed = false;
+    private IOException error = null;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+
+    /**
+     * Puts a batch of lines into the pipe, waiting while the pipe is full.
+     * @param batch Lines to pass on
+     * @return True if the batch was accepted, false if the reader has gone away
+     * @throws InterruptedIOException If the thread is interrupted while waiting
+     */
+    public boolean put(Batch batch) throws InterruptedIOException {
+        lock.lock();
+        try {
+            while (count == CAPACITY && !readerClosed) {
+                notFull.await();
+            }
+            if (readerClosed) return false;
+
+            ring[(head + count) % CAPACITY] = batch;
+            count++;
+            notEmpty.signal();
+            return true;
+        } catch (InterruptedException e) {
+            throw new InterruptedIOException("Pipe write interrupted");
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Takes the next batch of lines, waiting while the pipe is empty.
+     * @return Next batch, or null when the writer has finished
+     * @throws IOException If the writer failed, or the thread is interrupted
+     */
+    public Batch take() throws IOException {
+        lock.lock();
+        try {
+            while (count == 0 && !writerDone) {
+                notEmpty.await();
+            }
+            if (count == 0) {
+                if (error != null) throw error;
+                return null;
+            }
+
+            Batch batch = ring[head];
+            ring[head] = null;
+            head = (head + 1) % CAPACITY;
+            count--;
+            notFull.signal();
+            return batch;
+        } catch (InterruptedException e) {
+            throw new InterruptedIOException("Pipe read interrupted");
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Marks the end of the data written to the pipe.
+     * @param error Error that stopped the writer, or null if it finished normally
+     */
+    public void finish(IOException error) {
+        lock.lock();
+        try {
+            writerDone = true;
+            this.error = error;
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Closes the reading end, so a blocked writer gives up instead of waiting forever.
+     */
+    public void closeReader() {
+        lock.lock();
+        try {
+            readerClosed = true;
+            Arrays.fill(ring, null);
+            count = 0;
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Creates the stream the next stage reads from.
+     * @return Stream over the lines written to this pipe
+     */
+    public LineStream reader() {
+        return new LineStream() {
+            private Batch batch = new Batch(0);
+            private int position = 0;
+            private final Line line = new Line();
+
+            @Override
+            public Line readLine() throws IOException {
+                while (position == batch.count) {
+                    Batch next = take();
+                    if (next == null) return null;
+                    batch = next;
+                    position = 0;
+                }
+                int start = position == 0 ? 0 : batch.ends[position - 1];
+                line.set(batch.data, start, batch.ends[position] - start);
+                position++;
+                return line;
+            }
+
+            @Override
+            public void close() {
+                closeReader();
+            }
+        };
+    }
+
+    /**
+     * Drains a stage's output into this pipe and closes it. Runs on the
+     * stage's own thread. The pipe is not marked finished, so the caller can
+     * record the stage's metrics first and then call finish().
+     * @param output Stream produced by the stage
+     * @return The error that stopped the stage, or null if it ran to the end
+     */
+    public IOException drain(LineStream output) {
+        try (output) {
+            Batch batch = new Batch(BATCH_BYTES);
+            Line line;
+            while ((line = output.readLine()) != null) {
+                batch.add(line);
+                if (batch.isFull()) {
+                    if (!put(batch)) return null;
+                    batch = new Batch(BATCH_BYTES);
+                }
+            }
+            if (batch.count > 0) put(batch);
+            return null;
+        } catch (IOException e) {
+            return e;
+        } catch (RuntimeException e) {
+            return new IOException(e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package taskA;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A chain of stages built from one command line.
+ * Every stage runs on its own thread and passes batches of lines to the next
+ * one through a bounded Pipe, so the pipeline takes about as long as its
+ * slowest stage rather than the sum of all of them. Only stages that need the
+ * whole input (such as sort) buffer it. Because each stage has a thread to
+ * itself, the CPU time and allocations of that thread are the stage's own,
+ * and they are always recorded in the pipeline's metrics.
+ */
+public class Pipeline {
+
+    private final List<Stage> stages = new ArrayList<>();
+    private final List<String> names = new ArrayList<>();
+    private final List<Thread> threads = new ArrayList<>();
+    private final PipelineMetrics metrics;
+
+    /**
+     * Constructor for an empty pipeline.
+     * @param commandLine The pipeline as typed, shown in its metrics
+     */
+    public Pipeline(String commandLine) {
+        this.metrics = new PipelineMetrics(commandLine);
+    }
+
+    /**
+     * Appends a stage to the end of the pipeline.
+     * @param stage Stage to append
+     * @param name The stage's command, shown in the metrics
+     */
+    public void add(Stage stage, String name) {
+        stages.add(stage);
+        names.add(name);
+    }
+
+    /**
+     * Gets the metrics of this pipeline. They are complete once awaitStages()
+     * has returned and finish() has been called on them.
+     * @return Metrics of the run
+     */
+    public PipelineMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Checks if the pipeline has any stages.
+     * @return True if there are no stages, false if not
+     */
+    public boolean isEmpty() {
+        return stages.isEmpty();
+    }
+
+    /**
+     * Connects the stages together and starts them.
+     * @return Stream of the lines produced by the last stage
+     * @throws IOException If an I/O error occurs
+     */
+    public LineStream open() throws IOException {
+        if (stages.isEmpty()) return LineStream.empty();
+
+        LineStream stream = null;
+        for (int i = 0; i < stages.size(); i++) {
+            stream = start(i, stages.get(i), metrics.addStage(names.get(i)), stream);
+        }
+        return stream;
+    }
+
+    /**
+     * Waits for the thread of every stage to finish, after the stream returned
+     * by open() has been read to the end or closed. A stage can still be
+     * running then, such as one before a head that stopped reading early, and
+     * its metrics are only complete, and safe to read, once its thread is done.
+     */
+    public void awaitStages() {
+        try {
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Starts a thread that runs one stage and writes its output into a new pipe.
+     * @param index Position of the stage in the pipeline
+     * @param stage Stage to run
+     * @param stageMetrics Metrics to record for the stage
+     * @param input Output of the previous stage, or null if this is the first stage
+     * @return Stream the next stage reads from
+     */
+    private LineStream start(int index, Stage stage, StageMetrics stageMetrics, LineStream input) {
+        Pipe pipe = new Pipe();
+
+        Thread thread = new Thread(() -> {
+            stageMetrics.begin();
+            IOException failure = null;
+            try {
+                LineStream output;
+                try {
+                    output = stage.open(stageMetrics.countInput(input));
+                } catch (Throwable e) {
+                    closeQuietly(input);
+                    throw e;
+                }
+                failure = pipe.drain(stageMetrics.countOutput(output));
+            } catch (IOException e) {
+                failure = e;
+            } catch (RuntimeException e) {
+                failure = new IOException(e.getMessage(), e);
+            } catch (Throwable e) {
+                // errors too, or the next stage would wait for this one forever
+                failure = new IOException(e.toString(), e);
+            } finally {
+                stageMetrics.end();
+                pipe.finish(failure);
+            }
+        }, "stage-" + index + "-" + stage.getClass().getSimpleName());
+
+        thread.setDaemon(true);
+        thread.start();
+        threads.add(thread);
+        return pipe.reader();
+    }
+
+    private static void closeQuietly(LineStream stream) {
+        if (stream == null) return;
+        try {
+            stream.close();
+        } catch (IOException ignored) {
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package taskA;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Metrics for one run of a pipeline: one StageMetrics per stage plus one for
+ * writing the output, and the wall time of the whole run. The metrics of the
+ * most recent run are always kept, so they can be shown after the fact with
+ * the metrics command, as a table or as JSON.
+ */
+public class PipelineMetrics {
+
+    private static volatile PipelineMetrics last = null;
+
+    private final String pipeline;
+    private final List<StageMetrics> stages = new ArrayList<>();
+    private final StageMetrics output = new StageMetrics("(output)");
+    private final long start = System.nanoTime();
+    private long wallNanos = 0;
+
+    /**
+     * Constructor for the metrics of a run.
+     * @param pipeline The pipeline as it was run
+     */
+    public PipelineMetrics(String pipeline) {
+        this.pipeline = pipeline;
+    }
+
+    /**
+     * Adds a stage to measure.
+     * @param name The stage's command
+     * @return Metrics to fill in for the stage
+     */
+    public synchronized StageMetrics addStage(String name) {
+        StageMetrics metrics = new StageMetrics(name);
+        stages.add(metrics);
+        return metrics;
+    }
+
+    /**
+     * Gets the metrics of the thread writing the pipeline's output.
+     * @return Output metrics
+     */
+    public StageMetrics getOutput() {
+        return output;
+    }
+
+    /**
+     * Marks the end of the run and keeps these metrics as the most recent ones.
+     */
+    public void finish() {
+        wallNanos = System.nanoTime() - start;
+        last = this;
+    }
+
+    /**
+     * Gets the metrics of the most recent run.
+     * @return Metrics, or null if nothing has run yet
+     */
+    public static PipelineMetrics last() {
+        return last;
+    }
+
+    /**
+     * Prints the metrics as a table.
+     */
+    public synchronized void printTable() {
+        int width = "stage".length();
+        for (StageMetrics stage : stages) width = Math.max(width, stage.getName().length());
+        String row = "%-" + width + "s %10s %10s %10s %10s %12s %12s %12s%n";
+
+        System.out.printf(row, "stage", "wall ms", "cpu ms", "lines in", "lines out", "bytes in", "bytes out",
+                "allocated");
+        for (StageMetrics stage : stages) printRow(row, stage);
+        printRow(row, output);
+        System.out.printf("total wall time: %.3f ms%n", wallNanos / 1e6);
+    }
+
+    private static void printRow(String row, StageMetrics stage) {
+        System.out.printf(row, stage.getName(),
+                String.format("%.3f", stage.getWallNanos() / 1e6),
+                String.format("%.3f", stage.getCpuNanos() / 1e6),
+                stage.getLinesIn(), stage.getLinesOut(), stage.getBytesIn(), stage.getBytesOut(),
+                stage.getAllocatedBytes());
+    }
+
+    /**
+     * Formats the metrics as a JSON object for dashboards.
+     * @return JSON text
+     */
+    public synchronized String toJson() {
+        StringBuilder json = new StringBuilder();
+        json.append("{\"pipeline\":").append(quote(pipeline))
+                .append(",\"wallNanos\":").append(wallNanos)
+                .append(",\"stages\":[");
+        for (int i = 0; i < stages.size(); i++) {
+            if (i > 0) json.append(',');
+            appendStage(json, stages.get(i));
+        }
+        json.append("],\"output\":");
+        appendStage(json, output);
+        return json.append('}').toString();
+    }
+
+    private static void appendStage(StringBuilder json, StageMetrics stage) {
+        json.append("{\"stage\":").append(quote(stage.getName()))
+                .append(",\"wallNanos\":").append(stage.getWallNanos())
+                .append(",\"cpuNanos\":").append(stage.getCpuNanos())
+                .append(",\"linesIn\":").append(stage.getLinesIn())
+                .append(",\"linesOut\":").append(stage.getLinesOut())
+                .append(",\"bytesIn\":").append(stage.getBytesIn())
+                .append(",\"bytesOut\":").append(stage.getBytesOut())
+                .append(",\"allocatedBytes\":").append(stage.getAllocatedBytes())
+                .append('}');
+    }
+
+    private static String quote(String text) {
+        StringBuilder quoted = new StringBuilder("\"");
+        for (char c : text.toCharArray()) {
+            if (c == '"' || c == '\\') {
+                quoted.append('\\').append(c);
+            } else if (c < 0x20) {
+                quoted.append(String.format("\\u%04x", (int) c));
+            } else {
+                quoted.append(c);
+            }
+        }
+        return quoted.append('"').toString();
+    }
+}
@@ -0,0 +1,371 @@
+package taskA;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Parses a command line into a pipeline of Command nodes and rewrites it into
+ * an equivalent pipeline that is cheaper to run. The rules are applied again
+ * and again until none of them changes the pipeline.
+ *
+ * Rules:
+ * cut | wc -l   drops the cut (and likewise sort), because neither changes the
+ *               number of lines. A file argument moves on to wc, but only when
+ *               wc of the file gives the same count as wc of its lines (see
+ *               countsLikeStream).
+ * cut | cut     becomes a single cut that picks the fields straight from the
+ *               original line. Only done when both use the same delimiter and
+ *               the first picks fields in increasing order, so that a line
+ *               that is missing fields behaves the same in both plans.
+ * cat f | X     becomes X f for cut, sort, uniq, wc, head, tail and grep, so
+ *               X reads the file itself (wc -l f, for example, counts
+ *               memory-mapped bytes, and tail f jumps to the end through the
+ *               line index). For wc only when countsLikeStream allows it.
+ * sort | uniq   becomes one sort-uniq node run by SortDistinctStage, which
+ *               counts the lines in a hash table and sorts only the distinct
+ *               ones. Only done when sort compares whole lines, because then
+ *               equal lines are always next to each other after sorting.
+ * table         once the other rules are done, a pipeline that reads a table
+ *               loaded with load (named where a file would be) starts with a
+ *               table node. The node takes over the cut, sort, sort-uniq and
+ *               uniq that directly follow and runs them on the columns with a
+ *               TableStage; the rest of the pipeline reads the rows it prints.
+ */
+public class Planner {
+
+    /**
+     * A parsed pipeline before and after optimization.
+     */
+    public static class Plan {
+        private final List<Command> original;
+        private final List<Command> commands;
+        private final List<String> rules = new ArrayList<>();
+
+        Plan(List<Command> original) {
+            this.original = original;
+            this.commands = new ArrayList<>(original);
+        }
+
+        /**
+         * Gets the pipeline as typed.
+         * @return Original commands
+         */
+        public List<Command> getOriginal() {
+            return original;
+        }
+
+        /**
+         * Gets the optimized pipeline.
+         * @return Commands to run
+         */
+        public List<Command> getCommands() {
+            return commands;
+        }
+
+        /**
+         * Gets a description of every rewrite that was made, in order.
+         * @return Applied rules
+         */
+        public List<String> getRules() {
+            return rules;
+        }
+    }
+
+    /**
+     * Parses a command line and optimizes it.
+     * @param commandLine Commands separated by pipes
+     * @return The optimized plan
+     */
+    public static Plan plan(String commandLine) {
+        List<Command> commands = new ArrayList<>();
+        for (String text : commandLine.split("\\|")) {
+            commands.add(Command.parse(text));
+        }
+
+        Plan plan = new Plan(commands);
+        boolean changed = true;
+        while (changed) {
+            changed = dropBeforeLineCount(plan)
+                    | fuseCuts(plan)
+                    | catIntoFile(plan)
+                    | fuseSortUniq(plan);
+        }
+        scanTable(plan);
+        return plan;
+    }
+
+    /**
+     * Prints a plan for the explain command.
+     * @param plan Plan to print
+     */
+    public static void explain(Plan plan) {
+        System.out.println("Pipeline: " + join(plan.getOriginal()));
+        if (plan.getRules().isEmpty()) {
+            System.out.println("Rules applied: none");
+        } else {
+            System.out.println("Rules applied:");
+            for (String rule : plan.getRules()) {
+                System.out.println("  - " + rule);
+            }
+        }
+        System.out.println("Plan:");
+        List<Command> commands = plan.getCommands();
+        for (int i = 0; i < commands.size(); i++) {
+            System.out.println("  " + (i + 1) + ". " + commands.get(i));
+        }
+    }
+
+    private static String join(List<Command> commands) {
+        List<String> texts = new ArrayList<>();
+        for (Command command : commands) texts.add(command.toString());
+        return String.join(" | ", texts);
+    }
+
+    // Rewrite rules, each returns true if it changed the plan
+
+    private static boolean dropBeforeLineCount(Plan plan) {
+        List<Command> commands = plan.getCommands();
+        for (int i = 0; i + 1 < commands.size(); i++) {
+            Command stage = commands.get(i);
+            Command next = commands.get(i + 1);
+            if (!next.getName().equals("wc")) continue;
+
+            WcStage wc = parse(next, WcStage::new);
+            if (wc == null || !wc.countsLinesOnly() || wc.getFileName() != null) continue;
+
+            String fileName;
+            if (stage.getName().equals("cut")) {
+                CutStage cut = parse(stage, CutStage::new);
+                if (cut == null) continue;
+                fileName = cut.getFileName();
+            } else if (stage.getName().equals("sort")) {
+                SortStage sort = parse(stage, SortStage::new);
+                if (sort == null) continue;
+                fileName = sort.getFileName();
+            } else {
+                continue;
+            }
+
+            if (fileName != null && !countsLikeStream(wc, fileName)) continue;
+
+            commands.set(i, fileName == null ? next : next.withFile(fileName));
+            commands.remove(i + 1);
+            plan.getRules().add("dropped " + stage.getName() + " before wc -l, it keeps the line count");
+            return true;
+        }
+        return false;
+    }
+
+    private static boolean fuseCuts(Plan plan) {
+        List<Command> commands = plan.getCommands();
+        for (int i = 0; i + 1 < commands.size(); i++) {
+            if (!commands.get(i).getName().equals("cut") || !commands.get(i + 1).getName().equals("cut")) continue;
+
+            CutStage first = parse(commands.get(i), CutStage::new);
+            CutStage second = parse(commands.get(i + 1), CutStage::new);
+            if (first == null || second == null || second.getFileName() != null
+                    || !first.getDelimiter().equals(second.getDelimiter())
+                    || !increasing(first.getFields())) {
+                continue;
+            }
+
+            // field g of the first cut's output is field F[g - 1] of the original line
+            int[] fields = first.getFields();
+            List<String> composed = new ArrayList<>();
+            for (int g : second.getFields()) {
+                if (g >= 1 && g <= fields.length) composed.add(String.valueOf(fields[g - 1]));
+            }
+            if (composed.isEmpty()) continue;
+
+            List<String> args = new ArrayList<>(Arrays.asList("-f", String.join(",", composed),
+                    "-d", first.getDelimiter()));
+            if (first.getFileName() != null) args.add(first.getFileName());
+
+            Command fused = new Command("cut", args);
+            plan.getRules().add("fused " + commands.get(i) + " | " + commands.get(i + 1) + " into " + fused);
+            commands.set(i, fused);
+            commands.remove(i + 1);
+            return true;
+        }
+        return false;
+    }
+
+    private static boolean catIntoFile(Plan plan) {
+        List<Command> commands = plan.getCommands();
+        for (int i = 0; i + 1 < commands.size(); i++) {
+            Command cat = commands.get(i);
+            Command next = commands.get(i + 1);
+            if (!cat.getName().equals("cat") || cat.getArgs().size() != 1) continue;
+            if (fileNameOf(next) != null) continue;
+            if (next.getName().equals("wc") && !countsLikeStream(parse(next, WcStage::new), cat.getArgs().get(0))) {
+                continue;
+            }
+
+            Command rewritten = next.withFile(cat.getArgs().get(0));
+            plan.getRules().add("read the file directly: " + cat + " | " + next + " -> " + rewritten);
+            commands.set(i, rewritten);
+            commands.remove(i + 1);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Checks if wc given a file prints the same as wc reading the file's lines
+     * from a pipe. With a file wc counts newline bytes and the file's size, as
+     * coreutils does; from a pipe it counts lines, each with one newline, so
+     * a last line without a newline still counts and a \r before a newline
+     * does not. Words are always the same, lines only if the file is empty or
+     * ends with a newline, and bytes are not checked, since that would mean
+     * reading the whole file.
+     * @param wc The wc command, or null if its arguments are not valid
+     * @param fileName File the lines come from
+     * @return True if wc can be given the file without changing the output
+     */
+    private static boolean countsLikeStream(WcStage wc, String fileName) {
+        if (wc == null || wc.countsBytes()) return false;
+        if (!wc.countsLines()) return true;
+
+        Path file = Paths.get(fileName);
+        if (!Files.isRegularFile(file)) return false;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size == 0) return true;
+            ByteBuffer last = ByteBuffer.allocate(1);
+            return channel.read(last, size - 1) == 1 && last.get(0) == '\n';
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static boolean fuseSortUniq(Plan plan) {
+        List<Command> commands = plan.getCommands();
+        for (int i = 0; i + 1 < commands.size(); i++) {
+            Command sort = commands.get(i);
+            Command uniq = commands.get(i + 1);
+            if (!sort.getName().equals("sort") || !uniq.getName().equals("uniq")) continue;
+
+            SortStage stage = parse(sort, SortStage::new);
+            if (stage == null || !stage.getOrder().isWholeLine() || parse(uniq, UniqStage::new) == null) continue;
+
+            commands.set(i, new Command("sort-uniq", List.of(), List.of(sort, uniq)));
+            commands.remove(i + 1);
+            plan.getRules().add("fused " + sort + " | " + uniq + " into a hash aggregate and a sort of distinct lines");
+            return true;
+        }
+        return false;
+    }
+
+    private static boolean scanTable(Plan plan) {
+        List<Command> commands = plan.getCommands();
+        if (commands.isEmpty()) return false;
+
+        // the table is named either by cat or as the file of the first command
+        Command first = commands.get(0);
+        boolean fromCat = first.getName().equals("cat") && first.getArgs().size() == 1;
+        String name = fromCat ? first.getArgs().get(0)
+                : first.getName().equals("sort-uniq") ? fileNameOf(first.getParts().get(0))
+                : fileNameOf(first);
+        Table table = name == null || name.isEmpty() ? null : Table.named(name);
+        if (table == null) return false;
+
+        List<Command> rest = new ArrayList<>(commands.subList(fromCat ? 1 : 0, commands.size()));
+        if (!fromCat) rest.set(0, withoutFile(first, name));
+
+        // take over commands for as long as they can run on the columns
+        List<Command> parts = new ArrayList<>();
+        while (!rest.isEmpty()) {
+            List<Command> tried = new ArrayList<>(parts);
+            tried.add(rest.get(0));
+            try {
+                new TableStage(table, tried);
+            } catch (IllegalArgumentException e) {
+                break;
+            }
+            parts.add(rest.remove(0));
+        }
+
+        Command node = new Command("table", List.of(name), parts);
+        commands.clear();
+        commands.add(node);
+        commands.addAll(rest);
+        plan.getRules().add("read table " + name + " from its columns: " + node);
+        return true;
+    }
+
+    private static Command withoutFile(Command command, String fileName) {
+        if (command.getParts().isEmpty()) return command.withoutFile(fileName);
+
+        List<Command> parts = new ArrayList<>(command.getParts());
+        parts.set(0, parts.get(0).withoutFile(fileName));
+        return new Command(command.getName(), command.getArgs(), parts);
+    }
+
+    /**
+     * Finds the file a command reads by itself, if it can read one.
+     * @param command Command to look at
+     * @return File name, "" if the command does not read files, or null if it could but has none
+     */
+    private static String fileNameOf(Command command) {
+        switch (command.getName()) {
+            case "cut":
+                CutStage cut = parse(command, CutStage::new);
+                return cut == null ? "" : cut.getFileName();
+            case "sort":
+                SortStage sort = parse(command, SortStage::new);
+                return sort == null ? "" : sort.getFileName();
+            case "uniq":
+                UniqStage uniq = parse(command, UniqStage::new);
+                return uniq == null ? "" : uniq.getFileName();
+            case "wc":
+                WcStage wc = parse(command, WcStage::new);
+                return wc == null ? "" : wc.getFileName();
+            case "head":
+                HeadStage head = parse(command, HeadStage::new);
+                return head == null ? "" : head.getFileName();
+            case "grep":
+                GrepStage grep = parse(command, GrepStage::new);
+                return grep == null ? "" : grep.getFileName();
+            case "tail":
+                TailStage tail = parse(command, TailStage::new);
+                return tail == null ? "" : tail.getFileName();
+            default:
+                return "";
+        }
+    }
+
+    /**
+     * Creates a stage from a command to inspect its options.
+     */
+    private interface StageFactory<T extends Stage> {
+        T create(List<String> args);
+    }
+
+    /**
+     * Creates a stage to inspect its options.
+     * @return The stage, or null if the arguments are not valid, in which case
+     * the command is left alone and reports the error when the pipeline is built
+     */
+    private static <T extends Stage> T parse(Command command, StageFactory<T> factory) {
+        try {
+            return factory.create(new ArrayList<>(command.getArgs()));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static boolean increasing(int[] fields) {
+        for (int i = 0; i < fields.length; i++) {
+            if (fields[i] < 1 || (i > 0 && fields[i] <= fields[i - 1])) return false;
+        }
+        return fields.length > 0;
+    }
+}
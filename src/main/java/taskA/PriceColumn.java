@@ -0,0 +1,185 @@
+package taskA;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A column of prices, a currency symbol followed by pounds (150) or pounds
+ * and pence (2.50), held as whole pence in a long per row. A column is only
+ * stored this way when every value is a currency symbol followed by a whole
+ * number of pounds, or pounds and two digits of pence, in the same style
+ * throughout, so that printing the pence gives back exactly the text that was
+ * read.
+ */
+public class PriceColumn implements Column {
+
+    private final long[] pence;
+    private final String symbol;
+    private final boolean decimals;
+    private final StringBuilder scratch = new StringBuilder();
+
+    private volatile int[] ranks;
+    private volatile String[] texts;
+    private volatile int distinct;
+
+    private PriceColumn(long[] pence, String symbol, boolean decimals) {
+        this.pence = pence;
+        this.symbol = symbol;
+        this.decimals = decimals;
+    }
+
+    /**
+     * Turns a text column into a price column if all of its values are prices.
+     * @param column Column as read
+     * @return Price column, or null if some value is not a price
+     */
+    public static PriceColumn from(TextColumn column) {
+        byte[][] values = column.values();
+        long[] parsed = new long[values.length];
+        String symbol = null;
+        boolean decimals = false;
+
+        for (int i = 0; i < values.length; i++) {
+            String text = new String(values[i], StandardCharsets.UTF_8);
+            if (text.length() < 2 || Character.getType(text.charAt(0)) != Character.CURRENCY_SYMBOL) return null;
+            int dot = text.indexOf('.');
+            if (symbol == null) {
+                symbol = text.substring(0, 1);
+                decimals = dot >= 0;
+            } else if (text.charAt(0) != symbol.charAt(0) || decimals != dot >= 0) {
+                return null;
+            }
+
+            try {
+                long whole = Long.parseLong(dot >= 0 ? text.substring(1, dot) : text.substring(1));
+                long fraction = dot >= 0 ? Long.parseLong(text.substring(dot + 1)) : 0;
+                boolean negative = text.charAt(1) == '-';
+                parsed[i] = Math.addExact(Math.multiplyExact(whole, 100), negative ? -fraction : fraction);
+            } catch (NumberFormatException | ArithmeticException e) {
+                return null;
+            }
+        }
+        if (symbol == null) return null;
+
+        // a value that does not print back the same, such as 007 or 1.5, leaves the column as text
+        PriceColumn prices = new PriceColumn(null, symbol, decimals);
+        for (int i = 0; i < values.length; i++) {
+            if (!prices.format(parsed[i]).equals(new String(values[i], StandardCharsets.UTF_8))) return null;
+        }
+
+        int[] codes = column.codes();
+        long[] pence = new long[codes.length];
+        for (int row = 0; row < codes.length; row++) {
+            pence[row] = parsed[codes[row]];
+        }
+        return new PriceColumn(pence, symbol, decimals);
+    }
+
+    private String format(long value) {
+        StringBuilder text = new StringBuilder(symbol);
+        appendValue(text, value);
+        return text.toString();
+    }
+
+    private void appendValue(StringBuilder text, long value) {
+        if (value < 0) text.append('-');
+        long magnitude = Math.abs(value);
+        text.append(magnitude / 100);
+        if (decimals) {
+            long fraction = magnitude % 100;
+            text.append('.').append(fraction < 10 ? "0" : "").append(fraction);
+        }
+    }
+
+    @Override
+    public String kind() {
+        return "price";
+    }
+
+    @Override
+    public String text(int row) {
+        if (ranks == null) rankValues();
+        return texts[ranks[row]];
+    }
+
+    @Override
+    public void appendTo(int row, LineBuilder out) {
+        scratch.setLength(0);
+        scratch.append(symbol);
+        appendValue(scratch, pence[row]);
+        out.appendUtf8(scratch);
+    }
+
+    @Override
+    public int rank(int row) {
+        if (ranks == null) rankValues();
+        return ranks[row];
+    }
+
+    @Override
+    public int distinct() {
+        if (ranks == null) rankValues();
+        return distinct;
+    }
+
+    /**
+     * Works the amount out with the same floating point steps as
+     * SortOrder.parseNumber, so a price compares equal to the same text in a
+     * text column.
+     */
+    @Override
+    public double number(int row) {
+        long magnitude = Math.abs(pence[row]);
+        double value = magnitude / 100;
+        if (decimals) {
+            value += (magnitude % 100 / 10) * 0.1;
+            value += (magnitude % 10) * (0.1 / 10);
+        }
+        if (value == 0) return 0;
+        return pence[row] < 0 ? -value : value;
+    }
+
+    @Override
+    public long footprint() {
+        return 8L * pence.length + (ranks == null ? 0 : 4L * ranks.length);
+    }
+
+    /**
+     * Ranks the rows by the text of their price, which is not the order of
+     * the amounts (1000 comes before 150 as text), and keeps the text of each
+     * distinct price for comparisons.
+     */
+    private synchronized void rankValues() {
+        if (ranks != null) return;
+
+        long[] values = pence.clone();
+        Arrays.sort(values);
+        int count = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (i == 0 || values[i] != values[i - 1]) values[count++] = values[i];
+        }
+        long[] unique = Arrays.copyOf(values, count);
+
+        Integer[] order = new Integer[count];
+        String[] text = new String[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+            text[i] = format(unique[i]);
+        }
+        Arrays.sort(order, (a, b) -> text[a].compareTo(text[b]));
+        int[] rankOf = new int[count];
+        String[] byRank = new String[count];
+        for (int i = 0; i < count; i++) {
+            rankOf[order[i]] = i;
+            byRank[i] = text[order[i]];
+        }
+
+        int[] rank = new int[pence.length];
+        for (int row = 0; row < pence.length; row++) {
+            rank[row] = rankOf[Arrays.binarySearch(unique, pence[row])];
+        }
+        distinct = count;
+        texts = byRank;
+        ranks = rank;
+    }
+}
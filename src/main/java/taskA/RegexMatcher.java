@@ -0,0 +1,76 @@
+package taskA;
+
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Searches lines for a regular expression.
+ * One java.util.regex Matcher is reset for every line instead of creating a
+ * new one. A line that is pure ASCII is matched through a CharSequence view
+ * over its bytes, so only lines with other characters are decoded.
+ */
+public class RegexMatcher implements LineMatcher {
+
+    private final Matcher matcher;
+    private final AsciiView view = new AsciiView();
+
+    /**
+     * Constructor for the matcher.
+     * @param pattern Compiled regular expression
+     */
+    public RegexMatcher(Pattern pattern) {
+        this.matcher = pattern.matcher("");
+    }
+
+    @Override
+    public boolean matches(Line line) {
+        CharSequence text = view.set(line) ? view : line.toString();
+        return matcher.reset(text).find();
+    }
+
+    /**
+     * The bytes of an ASCII line seen as characters.
+     */
+    private static final class AsciiView implements CharSequence {
+        private byte[] bytes;
+        private int offset;
+        private int length;
+
+        /**
+         * Points the view at a line.
+         * @return True if the line is pure ASCII and the view can be used
+         */
+        boolean set(Line line) {
+            byte[] data = line.bytes();
+            int end = line.offset() + line.length();
+            for (int i = line.offset(); i < end; i++) {
+                if (data[i] < 0) return false;
+            }
+            this.bytes = data;
+            this.offset = line.offset();
+            this.length = line.length();
+            return true;
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) bytes[offset + index];
+        }
+
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return toString().substring(start, end);
+        }
+
+        @Override
+        public String toString() {
+            return new String(bytes, offset, length, StandardCharsets.US_ASCII);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package taskA;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+
+/**
+ * Benchmark for the parallel sort used by sort --parallel=N.
+ * Sorts the same random lines with 1 to N threads, checks that every result
+ * is identical to the sequential one, and prints the time and speedup.
+ *
+ * Usage: java taskA.SortBenchmark [lines] [maxThreads]
+ */
+public class SortBenchmark {
+
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int MEASURED_ROUNDS = 5;
+
+    /**
+     * Main method to run the benchmark.
+     * @param args Number of lines and maximum number of threads
+     */
+    public static void main(String[] args) {
+        int lines = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        int maxThreads = args.length > 1 ? Integer.parseInt(args[1])
+                : Runtime.getRuntime().availableProcessors();
+
+        String[] input = generate(lines, new Random(1032));
+        String[] expected = Arrays.copyOf(input, input.length);
+        Arrays.sort(expected, Comparator.naturalOrder());
+
+        System.out.printf("Sorting %d lines on up to %d threads%n", lines, maxThreads);
+        System.out.printf("%8s %12s %8s%n", "threads", "median ms", "speedup");
+
+        double baseline = 0;
+        for (int threads = 1; threads <= maxThreads; threads++) {
+            double median = measure(input, expected, threads);
+            if (threads == 1) baseline = median;
+            System.out.printf("%8d %12.1f %8.2f%n", threads, median, baseline / median);
+        }
+    }
+
+    /**
+     * Times repeated sorts of the input with a number of threads.
+     * @param input Lines to sort, left unchanged
+     * @param expected Result of the sequential sort
+     * @param threads Number of threads to use
+     * @return Median time of the measured rounds in milliseconds
+     */
+    private static double measure(String[] input, String[] expected, int threads) {
+        double[] times = new double[MEASURED_ROUNDS];
+
+        for (int round = 0; round < WARMUP_ROUNDS + MEASURED_ROUNDS; round++) {
+            String[] array = Arrays.copyOf(input, input.length);
+
+            long start = System.nanoTime();
+            ParallelSort.sort(array, Comparator.naturalOrder(), threads);
+            long elapsed = System.nanoTime() - start;
+
+            if (!Arrays.equals(array, expected)) {
+                throw new IllegalStateException("Output with " + threads + " threads differs from sequential sort");
+            }
+            if (round >= WARMUP_ROUNDS) {
+                times[round - WARMUP_ROUNDS] = elapsed / 1e6;
+            }
+        }
+
+        Arrays.sort(times);
+        return times[MEASURED_ROUNDS / 2];
+    }
+
+    /**
+     * Generates CSV-like lines with a fair number of shared prefixes and duplicates.
+     * @param count Number of lines
+     * @param random Source of randomness
+     * @return Generated lines
+     */
+    private static String[] generate(int count, Random random) {
+        String[] names = {"Elixir of", "Potion of", "Essence of", "Draught of", "Tonic of"};
+        String[] lines = new String[count];
+        for (int i = 0; i < count; i++) {
+            lines[i] = names[random.nextInt(names.length)] + " " + random.nextInt(count / 4 + 1)
+                    + ",\u00a3" + random.nextInt(1000) + "," + Long.toHexString(random.nextLong());
+        }
+        return lines;
+    }
+}
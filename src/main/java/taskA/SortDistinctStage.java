@@ -0,0 +1,168 @@
+package taskA;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * sort | uniq fused into one stage by the Planner.
+ * Instead of sorting every line and then dropping the duplicates, the lines
+ * are counted in a hash table first and only the distinct lines are sorted.
+ * Counting works on the raw bytes, so only the distinct lines are ever
+ * decoded. On input with many repeated lines this sorts far fewer lines and
+ * holds far less in memory. If the distinct lines outgrow the sort's memory
+ * budget the stage falls back to an external sort followed by uniq, so it
+ * never needs more memory than the sort it replaced.
+ */
+public class SortDistinctStage implements Stage {
+
+    // rough cost of one entry in the table: the line, its counter and the map entry
+    private static final int ENTRY_OVERHEAD = 112;
+
+    private final SortStage sort;
+    private final UniqStage uniq;
+
+    /**
+     * Constructor for the fused stage.
+     * @param sort Sort that orders whole lines
+     * @param uniq Uniq that directly follows the sort
+     */
+    public SortDistinctStage(SortStage sort, UniqStage uniq) {
+        if (!sort.getOrder().isWholeLine()) {
+            throw new IllegalArgumentException("Only a sort of whole lines can be fused with uniq");
+        }
+        this.sort = sort;
+        this.uniq = uniq;
+    }
+
+    @Override
+    public LineStream open(LineStream input) throws IOException {
+        LineStream source = Stage.source(input, sort.getFileName());
+        return new LineStream() {
+            private LineStream output;
+
+            @Override
+            public Line readLine() throws IOException {
+                if (output == null) {
+                    output = aggregate(source);
+                }
+                return output.readLine();
+            }
+
+            @Override
+            public void close() throws IOException {
+                if (output != null) output.close();
+                source.close();
+            }
+        };
+    }
+
+    /**
+     * A distinct line with its sort key and number of occurrences.
+     */
+    private static class Group {
+        final SortOrder.Key key;
+        final Line line;
+        final long count;
+
+        Group(SortOrder.Key key, Line line, long count) {
+            this.key = key;
+            this.line = line;
+            this.count = count;
+        }
+    }
+
+    /**
+     * Counts the input lines in a hash table, then sorts the distinct ones.
+     * @param source Input to read
+     * @return Stream of the output of uniq
+     * @throws IOException If an I/O error occurs
+     */
+    private LineStream aggregate(LineStream source) throws IOException {
+        Map<Line, long[]> counts = new HashMap<>();
+        long used = 0;
+
+        Line line;
+        while ((line = source.readLine()) != null) {
+            long[] count = counts.get(line);
+            if (count != null) {
+                count[0]++;
+                continue;
+            }
+
+            counts.put(line.copy(), new long[]{1});
+            used += ENTRY_OVERHEAD + 2L * line.length();
+            if (used >= sort.getMemoryBudget()) {
+                return spill(counts, source);
+            }
+        }
+
+        SortOrder order = sort.getOrder();
+        List<Group> groups = new ArrayList<>(counts.size());
+        for (Map.Entry<Line, long[]> entry : counts.entrySet()) {
+            groups.add(new Group(order.key(entry.getKey().toString()), entry.getKey(), entry.getValue()[0]));
+        }
+        counts.clear();
+        ParallelSort.sort(groups, (a, b) -> order.compare(a.key, b.key), sort.getParallelism());
+
+        Iterator<Group> sorted = groups.iterator();
+        LineBuilder buffer = new LineBuilder();
+        return new LineStream() {
+            @Override
+            public Line readLine() {
+                while (sorted.hasNext()) {
+                    Group group = sorted.next();
+                    Line output = uniq.output(group.line, group.count, buffer);
+                    if (output != null) return output;
+                }
+                return null;
+            }
+
+            @Override
+            public void close() {
+                groups.clear();
+            }
+        };
+    }
+
+    /**
+     * Falls back to an external sort followed by uniq when there are too many
+     * distinct lines. The lines counted so far are replayed into the sort,
+     * followed by the rest of the input.
+     * @param counts Lines counted so far
+     * @param rest Remaining input
+     * @return Stream of the output of uniq
+     * @throws IOException If an I/O error occurs
+     */
+    private LineStream spill(Map<Line, long[]> counts, LineStream rest) throws IOException {
+        Iterator<Map.Entry<Line, long[]>> entries = counts.entrySet().iterator();
+
+        LineStream replay = new LineStream() {
+            private Line line = null;
+            private long remaining = 0;
+
+            @Override
+            public Line readLine() throws IOException {
+                while (remaining == 0) {
+                    if (!entries.hasNext()) return rest.readLine();
+                    Map.Entry<Line, long[]> entry = entries.next();
+                    line = entry.getKey();
+                    remaining = entry.getValue()[0];
+                    entries.remove();
+                }
+                remaining--;
+                return line;
+            }
+
+            @Override
+            public void close() throws IOException {
+                rest.close();
+            }
+        };
+
+        return uniq.open(sort.open(replay));
+    }
+}
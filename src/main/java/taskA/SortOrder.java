@@ -0,0 +1,250 @@
+package taskA;
+
+import java.util.Comparator;
+
+/**
+ * The order used by the sort command: the key field (-k), field delimiter (-t),
+ * numeric comparison (-n) and reverse order (-r).
+ *
+ * The key of every line is worked out once, when the line is read, and kept in
+ * a Key next to the line: the character range of the key field, and for -n the
+ * parsed number. Comparing two keys then only looks at that range or number,
+ * so sorting does not split lines or allocate anything per comparison.
+ */
+public class SortOrder implements Comparator<SortOrder.Key> {
+
+    private final int startField;
+    private final int endField;
+    private final char delimiter;
+    private final boolean numeric;
+    private final boolean reverse;
+
+    /**
+     * Constructor for the sort order.
+     * @param startField First field of the key, counting from 1, or 0 to use the whole line
+     * @param endField Last field of the key, or 0 to run to the end of the line
+     * @param delimiter Field delimiter, or 0 to split fields on runs of blanks
+     * @param numeric True to compare keys as numbers
+     * @param reverse True to reverse the order
+     */
+    public SortOrder(int startField, int endField, char delimiter, boolean numeric, boolean reverse) {
+        this.startField = startField;
+        this.endField = endField;
+        this.delimiter = delimiter;
+        this.numeric = numeric;
+        this.reverse = reverse;
+    }
+
+    /**
+     * Plain alphabetical order of whole lines.
+     * @return The default sort order
+     */
+    public static SortOrder natural() {
+        return new SortOrder(0, 0, (char) 0, false, false);
+    }
+
+    /**
+     * Checks if lines are compared whole and alphabetically, so that two lines
+     * are only equal in this order if they are the same line.
+     * @return True if the order is on the whole line and not numeric
+     */
+    public boolean isWholeLine() {
+        return startField == 0 && !numeric;
+    }
+
+    // Getters used when a sort runs on the columns of a Table
+
+    int getStartField() {
+        return startField;
+    }
+
+    int getEndField() {
+        return endField;
+    }
+
+    char getDelimiter() {
+        return delimiter;
+    }
+
+    boolean isNumeric() {
+        return numeric;
+    }
+
+    /**
+     * Checks if the order is reversed.
+     * @return True if -r was given
+     */
+    public boolean isReverse() {
+        return reverse;
+    }
+
+    /**
+     * A line together with its precomputed sort key.
+     */
+    public static final class Key {
+        final String line;
+        final int begin;
+        final int end;
+        final double number;
+
+        Key(String line, int begin, int end, double number) {
+            this.line = line;
+            this.begin = begin;
+            this.end = end;
+            this.number = number;
+        }
+
+        /**
+         * Gets the line this key was made from.
+         * @return The original line
+         */
+        public String getLine() {
+            return line;
+        }
+    }
+
+    /**
+     * Finds the key of a line. Called once for every line that is sorted.
+     * @param line Line to find the key of
+     * @return Line with its key
+     */
+    public Key key(String line) {
+        int begin = 0;
+        int end = line.length();
+
+        if (startField > 0) {
+            begin = fieldStart(line, startField);
+            if (endField > 0) {
+                end = Math.max(begin, fieldEnd(line, endField));
+            }
+        }
+
+        double number = numeric ? parseNumber(line, begin, end) : 0;
+        return new Key(line, begin, end, number);
+    }
+
+    @Override
+    public int compare(Key a, Key b) {
+        int cmp;
+        if (numeric) {
+            cmp = Double.compare(a.number, b.number);
+        } else {
+            cmp = compareRange(a.line, a.begin, a.end, b.line, b.begin, b.end);
+        }
+
+        // like GNU sort, lines with equal keys fall back to comparing the whole line
+        if (cmp == 0 && (startField > 0 || numeric)) {
+            cmp = a.line.compareTo(b.line);
+        }
+        return reverse ? -cmp : cmp;
+    }
+
+    private static int compareRange(String a, int aBegin, int aEnd, String b, int bBegin, int bEnd) {
+        int aLength = aEnd - aBegin;
+        int bLength = bEnd - bBegin;
+        int n = Math.min(aLength, bLength);
+        for (int i = 0; i < n; i++) {
+            char x = a.charAt(aBegin + i);
+            char y = b.charAt(bBegin + i);
+            if (x != y) return x - y;
+        }
+        return aLength - bLength;
+    }
+
+    /**
+     * Finds where a field starts.
+     * @param line Line to search
+     * @param field Field number, counting from 1
+     * @return Index of the first character of the field, or the line length if it is missing
+     */
+    private int fieldStart(String line, int field) {
+        int i = 0;
+        int length = line.length();
+
+        if (delimiter != 0) {
+            for (int f = 1; f < field; f++) {
+                int next = line.indexOf(delimiter, i);
+                if (next < 0) return length;
+                i = next + 1;
+            }
+            return i;
+        }
+
+        for (int f = 1; ; f++) {
+            while (i < length && isBlank(line.charAt(i))) i++;
+            if (f == field || i == length) return i;
+            while (i < length && !isBlank(line.charAt(i))) i++;
+        }
+    }
+
+    /**
+     * Finds where a field ends.
+     * @param line Line to search
+     * @param field Field number, counting from 1
+     * @return Index just past the last character of the field
+     */
+    private int fieldEnd(String line, int field) {
+        int i = fieldStart(line, field);
+        int length = line.length();
+
+        if (delimiter != 0) {
+            int next = line.indexOf(delimiter, i);
+            return next < 0 ? length : next;
+        }
+
+        while (i < length && !isBlank(line.charAt(i))) i++;
+        return i;
+    }
+
+    /**
+     * Parses the number at the start of a key. Leading blanks and currency
+     * symbols such as the pound sign are skipped, and a key without a number
+     * counts as zero, as it does in GNU sort.
+     * @param line Line holding the key
+     * @param begin Start of the key
+     * @param end End of the key
+     * @return Value of the key
+     */
+    static double parseNumber(String line, int begin, int end) {
+        int i = begin;
+        while (i < end && (isBlank(line.charAt(i))
+                || Character.getType(line.charAt(i)) == Character.CURRENCY_SYMBOL)) {
+            i++;
+        }
+
+        boolean negative = false;
+        if (i < end && line.charAt(i) == '-') {
+            negative = true;
+            i++;
+        }
+
+        double value = 0;
+        boolean digits = false;
+        while (i < end && isDigit(line.charAt(i))) {
+            value = value * 10 + (line.charAt(i) - '0');
+            digits = true;
+            i++;
+        }
+        if (i < end && line.charAt(i) == '.') {
+            double scale = 0.1;
+            i++;
+            while (i < end && isDigit(line.charAt(i))) {
+                value += (line.charAt(i) - '0') * scale;
+                scale /= 10;
+                digits = true;
+                i++;
+            }
+        }
+
+        if (!digits || value == 0) return 0;
+        return negative ? -value : value;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isBlank(char c) {
+        return c == ' ' || c == '\t';
+    }
+}
@@ -0,0 +1,156 @@
+package taskA;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * sort command: Sorts the input based on alphabetical order, or on a key field
+ * (-k) split by a delimiter (-t), compared as numbers (-n) and in reverse (-r).
+ * This is the only stage that has to see all of its input before it can
+ * produce the first line, so it is the only one that buffers. Inputs larger
+ * than the memory budget (-S) are sorted externally, spilling sorted runs to
+ * temporary files (in -T) and merging them. With --parallel=N the sorting
+ * in memory is shared between N threads.
+ */
+public class SortStage implements Stage {
+
+    private static final String USAGE = "Usage: sort [-n] [-r] [-t delimiter] [-k field[,field]]"
+            + " [-S size] [-T directory] [--parallel=N] [filename]";
+
+    private final String fileName;
+    private final SortOrder order;
+    private final long memoryBudget;
+    private final Path tempDir;
+    private final int parallelism;
+
+    /**
+     * Constructor for the sort stage.
+     * @param args Command line arguments
+     */
+    public SortStage(List<String> args) {
+        String fileName = null;
+        long memoryBudget = Runtime.getRuntime().maxMemory() / 4;
+        Path tempDir = null;
+        int parallelism = 1;
+        int startField = 0;
+        int endField = 0;
+        char delimiter = 0;
+        boolean numeric = false;
+        boolean reverse = false;
+
+        try {
+            for (int i = 0; i < args.size(); i++) {
+                String arg = args.get(i);
+
+                if (arg.startsWith("--parallel=")) {
+                    parallelism = Integer.parseInt(arg.substring("--parallel=".length()));
+                    if (parallelism < 1) throw new IllegalArgumentException();
+                    continue;
+                }
+                if (!arg.startsWith("-") || arg.length() < 2) {
+                    fileName = arg;
+                    continue;
+                }
+
+                // options take their value either attached (-k2) or as the next argument (-k 2)
+                char option = arg.charAt(1);
+                switch (option) {
+                    case 'S':
+                        memoryBudget = ExternalSort.parseSize(arg.length() > 2 ? arg.substring(2) : args.get(++i));
+                        break;
+
+                    case 'T':
+                        tempDir = Paths.get(arg.length() > 2 ? arg.substring(2) : args.get(++i));
+                        break;
+
+                    case 't':
+                        String value = Stage.unquote(arg.length() > 2 ? arg.substring(2) : args.get(++i));
+                        if (value.length() != 1) throw new IllegalArgumentException();
+                        delimiter = value.charAt(0);
+                        break;
+
+                    case 'k':
+                        String key = arg.length() > 2 ? arg.substring(2) : args.get(++i);
+                        while (key.endsWith("n") || key.endsWith("r")) {
+                            if (key.endsWith("n")) numeric = true;
+                            else reverse = true;
+                            key = key.substring(0, key.length() - 1);
+                        }
+                        String[] range = key.split(",");
+                        if (range.length > 2) throw new IllegalArgumentException();
+                        startField = Integer.parseInt(range[0]);
+                        endField = range.length == 2 ? Integer.parseInt(range[1]) : 0;
+                        if (startField < 1 || endField < 0 || (endField > 0 && endField < startField)) {
+                            throw new IllegalArgumentException();
+                        }
+                        break;
+
+                    default:
+                        // single letter flags, which may be grouped as in -nr
+                        for (char flag : arg.substring(1).toCharArray()) {
+                            if (flag == 'n') numeric = true;
+                            else if (flag == 'r') reverse = true;
+                            else throw new IllegalArgumentException();
+                        }
+                        break;
+                }
+            }
+        } catch (IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new IllegalArgumentException(USAGE);
+        }
+
+        if (tempDir != null && !Files.isDirectory(tempDir)) {
+            throw new IllegalArgumentException("sort: " + tempDir + " is not a directory");
+        }
+
+        this.fileName = fileName;
+        this.order = new SortOrder(startField, endField, delimiter, numeric, reverse);
+        this.memoryBudget = memoryBudget;
+        this.tempDir = tempDir;
+        this.parallelism = parallelism;
+    }
+
+    // Getters used by the Planner when it rewrites the pipeline
+
+    SortOrder getOrder() {
+        return order;
+    }
+
+    String getFileName() {
+        return fileName;
+    }
+
+    long getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    int getParallelism() {
+        return parallelism;
+    }
+
+    @Override
+    public LineStream open(LineStream input) throws IOException {
+        LineStream source = Stage.source(input, fileName);
+        return new LineStream() {
+            private LineStream sorted;
+
+            @Override
+            public Line readLine() throws IOException {
+                if (sorted == null) {
+                    sorted = new ExternalSort(memoryBudget, tempDir, order, parallelism)
+                            .sort(source);
+                }
+                return sorted.readLine();
+            }
+
+            @Override
+            public void close() throws IOException {
+                if (sorted != null) sorted.close();
+                source.close();
+            }
+        };
+    }
+}
@@ -0,0 +1,46 @@
+package taskA;
+
+import java.io.IOException;
+
+/**
+ * A single command of a pipeline, such as cat, cut, sort, uniq or wc.
+ * A stage does no work when it is opened; it only wraps its input in a new
+ * stream that transforms the lines as they are pulled through it.
+ */
+public interface Stage {
+
+    /**
+     * Connects this stage to its input.
+     * @param input Output of the previous stage, or null if this is the first stage
+     * @return Stream of the lines produced by this stage
+     * @throws IOException If an I/O error occurs
+     */
+    LineStream open(LineStream input) throws IOException;
+
+    /**
+     * Opens the input of a stage: the previous stage if there is one,
+     * otherwise the file named on the command line, read through the
+     * session's FileCache.
+     * @param input Output of the previous stage, or null if this is the first stage
+     * @param fileName File argument of the command, or null if none was given
+     * @return Stream to read the input from
+     * @throws IOException If the file cannot be opened
+     */
+    static LineStream source(LineStream input, String fileName) throws IOException {
+        if (input != null) return input;
+        if (fileName != null) return FileCache.session().open(fileName);
+        return LineStream.empty();
+    }
+
+    /**
+     * Removes the quotes around an argument, so that both -d , and -d "," work.
+     * @param value Argument as typed
+     * @return Argument without surrounding quotes
+     */
+    static String unquote(String value) {
+        if (value.length() >= 2 && value.charAt(0) == '"' && value.charAt(value.length() - 1) == '"') {
+            return value.substring(1, value.length() - 1);
+        }
+        return value;
+    }
+}
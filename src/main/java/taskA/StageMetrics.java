@@ -0,0 +1,245 @@
+package taskA;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * What one stage of a pipeline cost: wall time, CPU time and bytes allocated
+ * by the thread that ran it, and the lines and bytes that went in and out.
+ * Every stage runs on its own thread, so the thread's CPU time and
+ * allocations belong to that stage alone, together with those of any pool
+ * threads the stage starts through helperThreads. Bytes in and out count each
+ * line with its newline.
+ */
+public class StageMetrics {
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    // the stage running on each stage thread, for helperThreads
+    private static final ThreadLocal<StageMetrics> CURRENT = new ThreadLocal<>();
+
+    private final String name;
+
+    private long wallNanos = 0;
+    private long cpuNanos = 0;
+    private long allocatedBytes = 0;
+    private long linesIn = 0;
+    private long linesOut = 0;
+    private long bytesIn = 0;
+    private long bytesOut = 0;
+
+    private long wallStart;
+    private long cpuStart;
+    private long allocatedStart;
+
+    /**
+     * Constructor for the metrics of one stage.
+     * @param name The stage's command, as shown in reports
+     */
+    public StageMetrics(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Starts measuring. Must be called on the thread that runs the stage.
+     */
+    public void begin() {
+        CURRENT.set(this);
+        wallStart = System.nanoTime();
+        cpuStart = cpuTime();
+        allocatedStart = allocatedBytes();
+    }
+
+    /**
+     * Stops measuring. Must be called on the same thread as begin().
+     */
+    public void end() {
+        wallNanos = System.nanoTime() - wallStart;
+        cpuNanos += cpuTime() - cpuStart;
+        allocatedBytes += allocatedBytes() - allocatedStart;
+        CURRENT.remove();
+    }
+
+    /**
+     * Makes the threads of a pool that works for the stage running on the
+     * calling thread, such as the workers of a parallel sort. Their CPU time
+     * and allocations are added to the stage by Helpers.finish().
+     * @param name Name of the threads
+     * @return Thread factory for the pool
+     */
+    public static Helpers helperThreads(String name) {
+        return new Helpers(CURRENT.get(), name);
+    }
+
+    /**
+     * Threads working for one stage, for an ExecutorService or a ForkJoinPool.
+     * Every thread a pool has started is still alive until the pool is shut
+     * down, so finish() reads what each one has used since it started.
+     */
+    public static class Helpers implements ThreadFactory, ForkJoinPool.ForkJoinWorkerThreadFactory {
+
+        private final StageMetrics owner;
+        private final String name;
+        private final List<Thread> threads = new ArrayList<>();
+        private boolean finished = false;
+
+        private Helpers(StageMetrics owner, String name) {
+            this.owner = owner;
+            this.name = name;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return add(thread);
+        }
+
+        @Override
+        public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName(name);
+            thread.setDaemon(true);
+            return add(thread);
+        }
+
+        private synchronized <T extends Thread> T add(T thread) {
+            threads.add(thread);
+            return thread;
+        }
+
+        /**
+         * Adds the CPU time and allocations of the threads to the stage. Must
+         * be called on the stage's thread, before the pool is shut down and
+         * before the stage ends; calls after the first do nothing.
+         */
+        public synchronized void finish() {
+            if (owner == null || finished) return;
+            finished = true;
+            for (Thread thread : threads) {
+                owner.cpuNanos += Math.max(0, cpuTime(thread));
+                owner.allocatedBytes += Math.max(0, allocatedBytes(thread));
+            }
+        }
+    }
+
+    /**
+     * Wraps the input of the stage so the lines read from it are counted.
+     * @param input Input stream, or null if the stage has none
+     * @return Counting stream, or null if input was null
+     */
+    public LineStream countInput(LineStream input) {
+        if (input == null) return null;
+        return new LineStream() {
+            @Override
+            public Line readLine() throws IOException {
+                Line line = input.readLine();
+                if (line != null) {
+                    linesIn++;
+                    bytesIn += line.length() + 1;
+                }
+                return line;
+            }
+
+            @Override
+            public void close() throws IOException {
+                input.close();
+            }
+        };
+    }
+
+    /**
+     * Wraps the output of the stage so the lines it produces are counted.
+     * @param output Output stream of the stage
+     * @return Counting stream
+     */
+    public LineStream countOutput(LineStream output) {
+        return new LineStream() {
+            @Override
+            public Line readLine() throws IOException {
+                Line line = output.readLine();
+                if (line != null) {
+                    countOut(line);
+                }
+                return line;
+            }
+
+            @Override
+            public void close() throws IOException {
+                output.close();
+            }
+        };
+    }
+
+    /**
+     * Counts a line going out of a stage that does not produce a LineStream,
+     * such as the final writer.
+     * @param line Line written
+     */
+    public void countOut(Line line) {
+        linesOut++;
+        bytesOut += line.length() + 1;
+    }
+
+    private static long cpuTime() {
+        return THREADS.isCurrentThreadCpuTimeSupported() ? THREADS.getCurrentThreadCpuTime() : 0;
+    }
+
+    private static long cpuTime(Thread thread) {
+        return THREADS.isThreadCpuTimeSupported() ? THREADS.getThreadCpuTime(thread.getId()) : 0;
+    }
+
+    private static long allocatedBytes() {
+        return allocatedBytes(Thread.currentThread());
+    }
+
+    private static long allocatedBytes(Thread thread) {
+        if (THREADS instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) THREADS;
+            if (threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled()) {
+                return threads.getThreadAllocatedBytes(thread.getId());
+            }
+        }
+        return 0;
+    }
+
+    // Getters for the measurements
+
+    public String getName() {
+        return name;
+    }
+
+    public long getWallNanos() {
+        return wallNanos;
+    }
+
+    public long getCpuNanos() {
+        return cpuNanos;
+    }
+
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    public long getLinesIn() {
+        return linesIn;
+    }
+
+    public long getLinesOut() {
+        return linesOut;
+    }
+
+    public long getBytesIn() {
+        return bytesIn;
+    }
+
+    public long getBytesOut() {
+        return bytesOut;
+    }
+}
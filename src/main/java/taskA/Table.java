@@ -0,0 +1,240 @@
+package taskA;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A CSV file parsed once into columns, made with load file as name.
+ *
+ * Every field of every row is split out when the table is loaded. Text
+ * columns are dictionary-encoded, and columns whose values are all prices or
+ * all dates are stored as pence or epoch days (see PriceColumn and
+ * DateColumn). Pipelines that start from the table's name instead of a file
+ * then run their cut, sort and uniq on the columns through a TableStage,
+ * without splitting a single line again. A table is a snapshot: it does not
+ * change when the file does, until it is loaded again.
+ */
+public class Table {
+
+    // the tables loaded in this session, by name
+    private static final Map<String, Table> tables = new LinkedHashMap<>();
+
+    private final String name;
+    private final String fileName;
+    private final String delimiter;
+    private final int rowCount;
+    private final int[] fieldCounts;
+    private final Column[] columns;
+    private final int minFields;
+    private final boolean plain;
+
+    private Table(String name, String fileName, String delimiter, int rowCount, int[] fieldCounts,
+                  Column[] columns, boolean plain) {
+        this.name = name;
+        this.fileName = fileName;
+        this.delimiter = delimiter;
+        this.rowCount = rowCount;
+        this.fieldCounts = fieldCounts;
+        this.columns = columns;
+        this.plain = plain;
+
+        int min = columns.length;
+        for (int row = 0; row < rowCount; row++) min = Math.min(min, fieldCounts[row]);
+        this.minFields = min;
+    }
+
+    /**
+     * Parses a file into a table and makes it available under a name,
+     * replacing any table loaded before under the same name.
+     * @param fileName File to load
+     * @param name Name of the table
+     * @param delimiter Field delimiter, a single character
+     * @return The table
+     * @throws IOException If the file cannot be read
+     */
+    public static Table load(String fileName, String name, String delimiter) throws IOException {
+        if (delimiter.length() != 1) throw new IllegalArgumentException("The delimiter must be one character");
+
+        FieldScanner scanner = new FieldScanner(delimiter);
+        byte delimiterByte = scanner.delimiterBytes()[0];
+        List<ColumnBuilder> builders = new ArrayList<>();
+        int[] fieldCounts = new int[1024];
+        int rows = 0;
+        boolean delimiterInValues = false;
+
+        try (LineStream lines = FileCache.session().open(fileName)) {
+            Line line;
+            while ((line = lines.readLine()) != null) {
+                int count = scanner.scan(line);
+                if (rows == fieldCounts.length) fieldCounts = Arrays.copyOf(fieldCounts, rows * 2);
+                fieldCounts[rows] = count;
+
+                while (builders.size() < count) builders.add(new ColumnBuilder());
+                for (int field = 1; field <= count; field++) {
+                    delimiterInValues |= builders.get(field - 1).add(rows, line.bytes(),
+                            line.offset() + scanner.start(field), scanner.end(field) - scanner.start(field),
+                            delimiterByte);
+                }
+                rows++;
+            }
+        }
+
+        Column[] columns = new Column[builders.size()];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = builders.get(i).build(rows);
+        }
+
+        // the delimiter must stop sort -n reading a number, as it does in a line
+        char separator = delimiter.charAt(0);
+        boolean safeDelimiter = !Character.isDigit(separator) && separator != '.' && separator != '-'
+                && separator != ' ' && separator != '\t'
+                && Character.getType(separator) != Character.CURRENCY_SYMBOL;
+
+        Table table = new Table(name, fileName, delimiter, rows, Arrays.copyOf(fieldCounts, rows), columns,
+                safeDelimiter && !delimiterInValues);
+        synchronized (tables) {
+            tables.put(name, table);
+        }
+        return table;
+    }
+
+    /**
+     * Gets a loaded table.
+     * @param name Name of the table
+     * @return The table, or null if no table has that name
+     */
+    public static Table named(String name) {
+        synchronized (tables) {
+            return tables.get(name);
+        }
+    }
+
+    /**
+     * Prints every loaded table and its columns for the tables command.
+     */
+    public static void printAll() {
+        synchronized (tables) {
+            if (tables.isEmpty()) {
+                System.out.println("No tables loaded");
+                return;
+            }
+            for (Table table : tables.values()) {
+                table.printSummary();
+            }
+        }
+    }
+
+    /**
+     * Prints the size of the table and the kind of each column.
+     */
+    public void printSummary() {
+        long bytes = 4L * fieldCounts.length;
+        List<String> kinds = new ArrayList<>();
+        for (int i = 0; i < columns.length; i++) {
+            bytes += columns[i].footprint();
+            kinds.add((i + 1) + ":" + columns[i].kind());
+        }
+        System.out.printf("%s (from %s): %d rows, %d columns [%s], about %d KB%n", name, fileName, rowCount,
+                columns.length, String.join(" ", kinds), bytes / 1024);
+    }
+
+    // Getters for the queries run on the table
+
+    public String getName() {
+        return name;
+    }
+
+    public String getDelimiter() {
+        return delimiter;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public int getColumnCount() {
+        return columns.length;
+    }
+
+    /**
+     * Gets a column.
+     * @param field Field number, counting from 1
+     * @return The column
+     */
+    public Column getColumn(int field) {
+        return columns[field - 1];
+    }
+
+    /**
+     * Gets the number of fields in a row.
+     * @param row Row number
+     * @return Number of fields the line had
+     */
+    public int getFieldCount(int row) {
+        return fieldCounts[row];
+    }
+
+    /**
+     * Gets the smallest number of fields in any row.
+     * @return Fields that every row has
+     */
+    public int getMinFields() {
+        return minFields;
+    }
+
+    /**
+     * Checks if fields split on the delimiter the same way for sort -t as for
+     * cut: no value contains the delimiter (as a quoted field can), and the
+     * delimiter cannot be part of a number.
+     * @return True if sort and uniq can run on the columns
+     */
+    public boolean isPlain() {
+        return plain;
+    }
+
+    /**
+     * Collects the values of one field while the file is read.
+     */
+    private static final class ColumnBuilder {
+        private final Map<Line, Integer> dictionary = new HashMap<>();
+        private final List<byte[]> values = new ArrayList<>();
+        private final Line probe = new Line();
+        private int[] codes = new int[1024];
+
+        /**
+         * Adds the value of a row.
+         * @return True if a new value contains the delimiter
+         */
+        boolean add(int row, byte[] bytes, int offset, int length, byte delimiter) {
+            Integer code = dictionary.get(probe.set(bytes, offset, length));
+            boolean hasDelimiter = false;
+            if (code == null) {
+                code = values.size();
+                Line value = probe.copy();
+                dictionary.put(value, code);
+                values.add(value.bytes());
+                for (int i = offset; i < offset + length; i++) {
+                    hasDelimiter |= bytes[i] == delimiter;
+                }
+            }
+            if (row >= codes.length) codes = Arrays.copyOf(codes, Math.max(row + 1, codes.length * 2));
+            codes[row] = code;
+            return hasDelimiter;
+        }
+
+        /**
+         * Makes the column, as prices or dates if every value is one.
+         */
+        Column build(int rows) {
+            TextColumn text = new TextColumn(Arrays.copyOf(codes, rows), values.toArray(new byte[0][]));
+            Column typed = PriceColumn.from(text);
+            if (typed == null) typed = DateColumn.from(text);
+            return typed != null ? typed : text;
+        }
+    }
+}
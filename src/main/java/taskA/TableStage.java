@@ -0,0 +1,458 @@
+package taskA;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Runs the start of a pipeline on a loaded Table instead of on lines.
+ *
+ * The Planner hands this stage the commands it can take over: a cut, then a
+ * sort (or a fused sort-uniq), then a uniq, each optional. The cut only picks
+ * which columns make up a row; the sort orders row numbers by comparing
+ * column ranks, numbers or text, with the same results as SortOrder on the
+ * printed lines; uniq compares rows the same way. Only the rows that come out
+ * at the end are printed. When the rows all have the fields that are cut and
+ * a single column is left, sorting is a counting sort over the column's
+ * ranks, and sort-uniq just counts the rows of each rank.
+ */
+public class TableStage implements Stage {
+
+    private final Table table;
+    private final int[] fields;
+    private final boolean uniform;
+    private final char delimiter;
+    private final byte[] delimiterBytes;
+    private final SortStage sort;
+    private final UniqStage uniq;
+    private final boolean fused;
+
+    // for uniform rows: the rank of every value with the delimiter after it, per cut field but the last
+    private int[][] delimitedRanks;
+
+    /**
+     * Constructor for the stage.
+     * @param table Table to read
+     * @param parts Commands to run on the table, in pipeline order
+     * @throws IllegalArgumentException If the commands cannot run on the table's columns
+     */
+    public TableStage(Table table, List<Command> parts) {
+        int[] fields = null;
+        SortStage sort = null;
+        UniqStage uniq = null;
+        boolean fused = false;
+
+        for (Command part : parts) {
+            switch (part.getName()) {
+                case "cut":
+                    CutStage cut = new CutStage(new ArrayList<>(part.getArgs()));
+                    if (fields != null || sort != null || uniq != null || cut.getFileName() != null
+                            || !cut.getDelimiter().equals(table.getDelimiter())) {
+                        throw new IllegalArgumentException("cut cannot run on table " + table.getName());
+                    }
+                    fields = cut.getFields();
+                    break;
+
+                case "sort":
+                    if (sort != null || uniq != null) {
+                        throw new IllegalArgumentException("sort cannot run on table " + table.getName());
+                    }
+                    sort = checkSort(table, new SortStage(new ArrayList<>(part.getArgs())));
+                    break;
+
+                case "sort-uniq":
+                    if (sort != null || uniq != null) {
+                        throw new IllegalArgumentException("sort cannot run on table " + table.getName());
+                    }
+                    sort = checkSort(table, new SortStage(new ArrayList<>(part.getParts().get(0).getArgs())));
+                    uniq = checkUniq(table, new UniqStage(new ArrayList<>(part.getParts().get(1).getArgs())));
+                    fused = true;
+                    break;
+
+                case "uniq":
+                    if (uniq != null) {
+                        throw new IllegalArgumentException("uniq cannot run on table " + table.getName());
+                    }
+                    uniq = checkUniq(table, new UniqStage(new ArrayList<>(part.getArgs())));
+                    break;
+
+                default:
+                    throw new IllegalArgumentException(part.getName() + " cannot run on table " + table.getName());
+            }
+        }
+
+        // without a cut a row is all of its fields, which prints the line as it was read
+        if (fields == null) {
+            fields = new int[table.getColumnCount()];
+            for (int i = 0; i < fields.length; i++) fields[i] = i + 1;
+        }
+
+        // fields the table does not have are never output by cut, so they are dropped here
+        int count = 0;
+        int widest = 0;
+        int[] kept = new int[fields.length];
+        for (int field : fields) {
+            if (field >= 1 && field <= table.getColumnCount()) {
+                kept[count++] = field;
+                widest = Math.max(widest, field);
+            }
+        }
+
+        this.table = table;
+        this.fields = Arrays.copyOf(kept, count);
+        this.uniform = table.getMinFields() >= widest;
+        this.delimiter = table.getDelimiter().charAt(0);
+        this.delimiterBytes = table.getDelimiter().getBytes(StandardCharsets.UTF_8);
+        this.sort = sort;
+        this.uniq = uniq;
+        this.fused = fused;
+    }
+
+    private static SortStage checkSort(Table table, SortStage sort) {
+        SortOrder order = sort.getOrder();
+        if (sort.getFileName() != null || !table.isPlain()
+                || (order.getStartField() > 0 && order.getDelimiter() != table.getDelimiter().charAt(0))) {
+            throw new IllegalArgumentException("sort cannot run on table " + table.getName());
+        }
+        return sort;
+    }
+
+    private static UniqStage checkUniq(Table table, UniqStage uniq) {
+        if (uniq.getFileName() != null || !table.isPlain()) {
+            throw new IllegalArgumentException("uniq cannot run on table " + table.getName());
+        }
+        return uniq;
+    }
+
+    @Override
+    public LineStream open(LineStream input) throws IOException {
+        if (input != null) input.close();
+
+        return new LineStream() {
+            private int[] rows;
+            private long[] counts;
+            private int next = 0;
+            private final LineBuilder buffer = new LineBuilder();
+            private final LineBuilder counted = new LineBuilder();
+
+            @Override
+            public Line readLine() {
+                if (rows == null) run();
+
+                while (next < rows.length) {
+                    int row = rows[next];
+                    long occurrences = counts == null ? 1 : counts[next];
+                    next++;
+
+                    Line line = render(row, buffer);
+                    Line output = uniq == null ? line : uniq.output(line, occurrences, counted);
+                    if (output != null) return output;
+                }
+                return null;
+            }
+
+            @Override
+            public void close() {
+            }
+
+            /**
+             * Works out which rows to print, in order, and how many times each occurred.
+             */
+            private void run() {
+                if (uniform && fields.length > 1 && (sort != null || uniq != null)) {
+                    delimitedRanks = new int[fields.length - 1][];
+                    for (int i = 0; i < fields.length - 1; i++) {
+                        delimitedRanks[i] = delimitedRanks(table.getColumn(fields[i]));
+                    }
+                }
+                if (fused && uniform && fields.length == 1) {
+                    countByRank();
+                    return;
+                }
+
+                int[] order = sort == null ? identity() : sortRows();
+                if (uniq == null) {
+                    rows = order;
+                    return;
+                }
+
+                // the first row of every run of equal rows, and the length of the run
+                int groups = 0;
+                int[] firsts = new int[order.length];
+                long[] sizes = new long[order.length];
+                for (int i = 0; i < order.length; i++) {
+                    if (groups > 0 && compareFields(firsts[groups - 1], order[i], 1, Integer.MAX_VALUE) == 0) {
+                        sizes[groups - 1]++;
+                    } else {
+                        firsts[groups] = order[i];
+                        sizes[groups++] = 1;
+                    }
+                }
+                rows = Arrays.copyOf(firsts, groups);
+                counts = Arrays.copyOf(sizes, groups);
+            }
+
+            /**
+             * sort | uniq of a single column: every distinct value is one
+             * rank, so the rows of each rank are counted and the ranks are
+             * put in sort order without looking at the rows again.
+             */
+            private void countByRank() {
+                Column column = table.getColumn(fields[0]);
+                int[] firsts = new int[column.distinct()];
+                long[] sizes = new long[column.distinct()];
+                Arrays.fill(firsts, -1);
+                for (int row = 0; row < table.getRowCount(); row++) {
+                    int rank = column.rank(row);
+                    if (firsts[rank] < 0) firsts[rank] = row;
+                    sizes[rank]++;
+                }
+
+                int[] order = rankOrder(column, firsts);
+                int groups = 0;
+                rows = new int[order.length];
+                counts = new long[order.length];
+                for (int rank : order) {
+                    if (sizes[rank] == 0) continue;
+                    rows[groups] = firsts[rank];
+                    counts[groups++] = sizes[rank];
+                }
+                rows = Arrays.copyOf(rows, groups);
+                counts = Arrays.copyOf(counts, groups);
+            }
+        };
+    }
+
+    private int[] identity() {
+        int[] rows = new int[table.getRowCount()];
+        for (int row = 0; row < rows.length; row++) rows[row] = row;
+        return rows;
+    }
+
+    /**
+     * Sorts the row numbers in the order sort would put the printed rows in.
+     * The sort is stable, like the sort of lines.
+     */
+    private int[] sortRows() {
+        SortOrder order = sort.getOrder();
+
+        if (uniform && fields.length == 1) {
+            // a single column: rows with the same rank print the same, so ranks are sorted instead of rows
+            Column column = table.getColumn(fields[0]);
+            int[] firsts = new int[column.distinct()];
+            Arrays.fill(firsts, -1);
+            int[] sizes = new int[column.distinct()];
+            for (int row = 0; row < table.getRowCount(); row++) {
+                int rank = column.rank(row);
+                if (firsts[rank] < 0) firsts[rank] = row;
+                sizes[rank]++;
+            }
+
+            int[] starts = new int[sizes.length];
+            int position = 0;
+            for (int rank : rankOrder(column, firsts)) {
+                starts[rank] = position;
+                position += sizes[rank];
+            }
+            int[] rows = new int[table.getRowCount()];
+            for (int row = 0; row < rows.length; row++) {
+                rows[starts[column.rank(row)]++] = row;
+            }
+            return rows;
+        }
+
+        int start = Math.max(1, order.getStartField());
+        int end = order.getStartField() == 0 || order.getEndField() == 0 ? Integer.MAX_VALUE : order.getEndField();
+        double[] numbers = null;
+        if (order.isNumeric()) {
+            // a key that ends before it starts is empty, and reads as zero
+            boolean empty = order.getStartField() > 0 && order.getEndField() > 0
+                    && order.getEndField() < order.getStartField();
+            numbers = new double[table.getRowCount()];
+            for (int row = 0; row < numbers.length; row++) {
+                int field = fieldAt(row, start);
+                numbers[row] = field == 0 || empty ? 0 : table.getColumn(field).number(row);
+            }
+        }
+
+        // a key that is one whole column on every row compares by rank
+        int keyField = 0;
+        if (uniform && !order.isNumeric() && start <= fields.length
+                && (start == end || (end >= fields.length && start == fields.length))) {
+            keyField = fields[start - 1];
+        }
+        Column keyColumn = keyField == 0 ? null : table.getColumn(keyField);
+
+        double[] keys = numbers;
+        boolean tieBreak = order.getStartField() > 0 || order.isNumeric();
+        Integer[] rows = new Integer[table.getRowCount()];
+        for (int row = 0; row < rows.length; row++) rows[row] = row;
+        ParallelSort.sort(rows, (a, b) -> {
+            int cmp = keys != null ? Double.compare(keys[a], keys[b])
+                    : keyColumn != null ? Integer.compare(keyColumn.rank(a), keyColumn.rank(b))
+                    : compareFields(a, b, start, end);
+            if (cmp == 0 && tieBreak) cmp = compareFields(a, b, 1, Integer.MAX_VALUE);
+            return order.isReverse() ? -cmp : cmp;
+        }, sort.getParallelism());
+
+        int[] sorted = new int[rows.length];
+        for (int i = 0; i < rows.length; i++) sorted[i] = rows[i];
+        return sorted;
+    }
+
+    /**
+     * Orders the ranks of a single column as sort orders rows made of just
+     * that column. A key that starts after the first field is empty, so then
+     * every row ties and the whole row decides.
+     * @param column The column
+     * @param firsts A row of every rank, or -1 for a rank no row has
+     * @return Ranks in output order
+     */
+    private int[] rankOrder(Column column, int[] firsts) {
+        SortOrder order = sort.getOrder();
+        int distinct = firsts.length;
+        int[] ranks = new int[distinct];
+
+        if (!order.isNumeric()) {
+            for (int i = 0; i < distinct; i++) ranks[i] = order.isReverse() ? distinct - 1 - i : i;
+            return ranks;
+        }
+
+        boolean keyed = order.getStartField() <= 1;
+        Integer[] boxed = new Integer[distinct];
+        double[] numbers = new double[distinct];
+        for (int rank = 0; rank < distinct; rank++) {
+            boxed[rank] = rank;
+            numbers[rank] = keyed && firsts[rank] >= 0 ? column.number(firsts[rank]) : 0;
+        }
+        Arrays.sort(boxed, (a, b) -> {
+            int cmp = Double.compare(numbers[a], numbers[b]);
+            if (cmp == 0) cmp = Integer.compare(a, b);
+            return order.isReverse() ? -cmp : cmp;
+        });
+        for (int i = 0; i < distinct; i++) ranks[i] = boxed[i];
+        return ranks;
+    }
+
+    /**
+     * Orders the distinct values of a column as they compare when each is
+     * followed by the delimiter, which is how they compare in the middle of a
+     * line: a value that starts another one no longer always comes first
+     * (with a comma, "name1,x" comes after "name10,x").
+     * @param column The column
+     * @return For every rank, its rank among the delimited values
+     */
+    private int[] delimitedRanks(Column column) {
+        String[] texts = new String[column.distinct()];
+        for (int row = 0; row < table.getRowCount(); row++) {
+            int rank = column.rank(row);
+            if (texts[rank] == null) texts[rank] = column.text(row);
+        }
+
+        Integer[] order = new Integer[texts.length];
+        for (int i = 0; i < order.length; i++) order[i] = i;
+        Arrays.sort(order, (a, b) -> {
+            String x = texts[a];
+            String y = texts[b];
+            int n = Math.min(x.length(), y.length());
+            for (int i = 0; i < n; i++) {
+                if (x.charAt(i) != y.charAt(i)) return x.charAt(i) - y.charAt(i);
+            }
+            if (x.length() == y.length()) return 0;
+            return x.length() < y.length() ? delimiter - y.charAt(n) : x.charAt(n) - delimiter;
+        });
+
+        int[] ranks = new int[texts.length];
+        for (int i = 0; i < order.length; i++) ranks[order[i]] = i;
+        return ranks;
+    }
+
+    /**
+     * Finds the column of a field of a printed row. A row that is missing
+     * some of the cut fields prints only the ones it has, so the later ones
+     * move up.
+     * @param row Row number
+     * @param position Field of the printed row, counting from 1
+     * @return Field of the table, or 0 if the printed row has fewer fields
+     */
+    private int fieldAt(int row, int position) {
+        if (uniform) return position <= fields.length ? fields[position - 1] : 0;
+
+        int count = table.getFieldCount(row);
+        int seen = 0;
+        for (int field : fields) {
+            if (field <= count && ++seen == position) return field;
+        }
+        return 0;
+    }
+
+    /**
+     * Compares fields first to last of two printed rows character by
+     * character, as SortOrder compares the text between them. When every row
+     * has every field this is done on ranks alone; otherwise equal values of
+     * the same column are skipped by their rank and the rest compared as text.
+     * @return Negative, zero or positive, as for compareTo
+     */
+    private int compareFields(int a, int b, int first, int last) {
+        if (delimitedRanks != null) {
+            // every row has every field, so the values before the last one are followed by the delimiter
+            int stop = Math.min(last, fields.length);
+            for (int position = first; position <= stop; position++) {
+                Column column = table.getColumn(fields[position - 1]);
+                int rankA = column.rank(a);
+                int rankB = column.rank(b);
+                if (rankA == rankB) continue;
+                if (position < stop) {
+                    rankA = delimitedRanks[position - 1][rankA];
+                    rankB = delimitedRanks[position - 1][rankB];
+                }
+                return Integer.compare(rankA, rankB);
+            }
+            return 0;
+        }
+
+        for (int position = first; ; position++) {
+            int fieldA = position <= last ? fieldAt(a, position) : 0;
+            int fieldB = position <= last ? fieldAt(b, position) : 0;
+            if (fieldA == 0 || fieldB == 0) {
+                return fieldA == 0 && fieldB == 0 ? 0 : fieldA == 0 ? -1 : 1;
+            }
+
+            Column columnA = table.getColumn(fieldA);
+            Column columnB = table.getColumn(fieldB);
+            if (fieldA == fieldB && columnA.rank(a) == columnA.rank(b)) continue;
+
+            String x = columnA.text(a);
+            String y = columnB.text(b);
+            int n = Math.min(x.length(), y.length());
+            for (int i = 0; i < n; i++) {
+                if (x.charAt(i) != y.charAt(i)) return x.charAt(i) - y.charAt(i);
+            }
+            if (x.length() == y.length()) continue;
+
+            // one value starts the other: the shorter one goes on with the delimiter, or ends
+            boolean moreA = position < last && fieldAt(a, position + 1) != 0;
+            boolean moreB = position < last && fieldAt(b, position + 1) != 0;
+            if (x.length() < y.length()) return moreA ? delimiter - y.charAt(n) : -1;
+            return moreB ? x.charAt(n) - delimiter : 1;
+        }
+    }
+
+    /**
+     * Prints the cut fields of a row, joined by the delimiter.
+     */
+    private Line render(int row, LineBuilder buffer) {
+        buffer.reset();
+        int count = table.getFieldCount(row);
+        boolean first = true;
+        for (int field : fields) {
+            if (field > count) continue;
+            if (!first) buffer.append(delimiterBytes, 0, delimiterBytes.length);
+            table.getColumn(field).appendTo(row, buffer);
+            first = false;
+        }
+        return buffer.line();
+    }
+}
@@ -0,0 +1,112 @@
+package taskA;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * tail command: Outputs the last lines of the input.
+ * tail -n N outputs the last N lines (10 by default) and tail -n +K outputs
+ * everything from line K on. For a file with a LineIndex the index is used to
+ * jump straight to the first line wanted, so only the end of the file is
+ * read. Input from a previous stage has to be read to the end, keeping only
+ * the last N lines.
+ */
+public class TailStage implements Stage {
+
+    private static final String USAGE = "Usage: tail [-n count | -n +start] [filename]";
+
+    private final long count;
+    private final boolean fromStart;
+    private final String fileName;
+
+    /**
+     * Constructor for the tail stage.
+     * @param args Command line arguments
+     */
+    public TailStage(List<String> args) {
+        String count = "10";
+        String fileName = null;
+
+        for (int i = 0; i < args.size(); i++) {
+            String arg = args.get(i);
+            if (arg.equals("-n") && i + 1 < args.size()) {
+                count = args.get(++i);
+            } else if (arg.startsWith("-") && arg.length() > 1) {
+                throw new IllegalArgumentException(USAGE);
+            } else {
+                fileName = arg;
+            }
+        }
+
+        this.fromStart = count.startsWith("+");
+        this.count = HeadStage.parseCount(fromStart ? count.substring(1) : count, USAGE);
+        this.fileName = fileName;
+    }
+
+    // Getter used by the Planner when it rewrites the pipeline
+
+    String getFileName() {
+        return fileName;
+    }
+
+    @Override
+    public LineStream open(LineStream input) throws IOException {
+        // tail -n +K starts at line K, and +0 means the same as +1
+        long skip = fromStart ? Math.max(0, count - 1) : 0;
+
+        if (input == null && fileName != null && Files.isRegularFile(Paths.get(fileName))) {
+            Path file = Paths.get(fileName);
+            LineIndex index = LineIndex.existing(file);
+            if (index != null) {
+                long first = fromStart ? skip : Math.max(0, index.getLineCount() - count);
+                return index.lines(file, first, Long.MAX_VALUE);
+            }
+        }
+
+        LineStream source = Stage.source(input, fileName);
+        if (fromStart) {
+            return new LineStream() {
+                private long skipped = 0;
+
+                @Override
+                public Line readLine() throws IOException {
+                    Line line;
+                    while ((line = source.readLine()) != null && skipped < skip) {
+                        skipped++;
+                    }
+                    return line;
+                }
+
+                @Override
+                public void close() throws IOException {
+                    source.close();
+                }
+            };
+        }
+
+        LineRing ring = new LineRing(count);
+        return new LineStream() {
+            private boolean filled = false;
+
+            @Override
+            public Line readLine() throws IOException {
+                if (!filled) {
+                    Line line;
+                    while ((line = source.readLine()) != null) {
+                        ring.push(line);
+                    }
+                    filled = true;
+                }
+                return ring.poll();
+            }
+
+            @Override
+            public void close() throws IOException {
+                source.close();
+            }
+        };
+    }
+}
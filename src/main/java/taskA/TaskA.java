@@ -1,16 +1,40 @@
 package taskA;
 
 import java.io.BufferedReader;
-import java.io.FileReader;
+import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
 
 /**
- * Task A: Implementing cat, cut, sort, uniq and wc commands.
+ * Task A: Implementing cat, cut, sort, uniq, wc, head, tail and grep commands.
  * The program reads the user's input and executes the specified command.
  * The program supports the use of pipes to pass the output of
- * one command as input to another command.
+ * one command as input to another command, and > or >> to send the
+ * output of a pipeline to a file.
+ *
+ * Usage:
+ *   java taskA.TaskA                    interactive prompt
+ *   java taskA.TaskA -c "pipeline"      run one pipeline and exit
+ *   java taskA.TaskA script.txt         run every line of a script and exit
+ * Any of these can start with --cache=SIZE to set the byte budget of the
+ * file cache shared by the pipelines of a session (0 turns it off).
+ *
+ * Every run records per-stage metrics. time before a pipeline prints them
+ * after its output, and metrics prints those of the last run; --json after
+ * either gives them as JSON instead of a table.
+ *
+ * load file as name parses a CSV file once into a columnar Table, and a
+ * pipeline that names the table where it would name a file runs its cut,
+ * sort and uniq on the columns; tables lists what has been loaded.
+ *
+ * index [-n lines] file builds the LineIndex sidecar of a file, which cut,
+ * head, tail and wc then use for that file. No other command writes one.
  */
 
 public class TaskA {
@@ -23,308 +47,415 @@ public class TaskA {
 
     public static void main(String[] args) throws IOException {
 
+        List<String> options = new ArrayList<>(Arrays.asList(args));
+        if (!options.isEmpty() && options.get(0).startsWith("--cache=")) {
+            try {
+                FileCache.resize(ExternalSort.parseSize(options.remove(0).substring("--cache=".length())));
+            } catch (IllegalArgumentException e) {
+                System.err.println(e.getMessage());
+                System.exit(1);
+            }
+        }
+
+        // Batch mode: no banner or prompt, and the exit code reports failures
+
+        if (!options.isEmpty()) {
+            boolean ok;
+            try (ChannelOutput stdout = ChannelOutput.standardOutput()) {
+                if (options.get(0).equals("-c") && options.size() == 2) {
+                    ok = run(options.get(1).trim(), stdout);
+                } else if (options.size() == 1) {
+                    ok = runScript(Paths.get(options.get(0)), stdout);
+                } else {
+                    System.err.println("Usage: TaskA [--cache=size] [-c \"pipeline\" | script]");
+                    ok = false;
+                }
+            }
+            System.exit(ok ? 0 : 1);
+        }
+
         System.out.println("Operating Systems Coursework");
         System.out.println("Name: Rojin Kara");
-        System.out.println("Please enter your commands - cat, cut, sort, uniq, wc or |");
+        System.out.println("Please enter your commands - cat, cut, sort, uniq, wc, head, tail, grep or |, "
+                + "load <file> as <table>, tables, index <file>, explain <pipeline>, "
+                + "time [--json] <pipeline>, metrics [--json] or stats");
 
-        String filePath = "taskA.txt";
         String commandLine;
 
         BufferedReader console = new BufferedReader(new InputStreamReader(System.in));
+        ChannelOutput stdout = ChannelOutput.standardOutput();
 
-        // Loop to keep the program running
+        // Loop to keep the program running until the input ends
 
         while (true) {
             System.out.print(">> ");
-            commandLine = console.readLine().trim();
+            System.out.flush();
+            commandLine = console.readLine();
+            if (commandLine == null)
+                break;
+            commandLine = commandLine.trim();
             if (commandLine.isEmpty())
                 continue;
 
+            run(commandLine, stdout);
+        }
+        stdout.close();
+    }
 
-            String[] individualCommands = commandLine.split("\\|");
-            List<String> pipe = new ArrayList<>();
+    /**
+     * Runs every line of a script file as a pipeline. Blank lines and lines
+     * starting with # are skipped.
+     * @param script Script to run
+     * @param stdout Standard output
+     * @return True if every pipeline ran successfully
+     * @throws IOException If the script cannot be read
+     */
 
-            // Loop through each command in the pipeline
+    private static boolean runScript(Path script, OutputStream stdout) throws IOException {
+        boolean ok = true;
+        try (BufferedReader reader = Files.newBufferedReader(script, StandardCharsets.UTF_8)) {
+            String commandLine;
+            while ((commandLine = reader.readLine()) != null) {
+                commandLine = commandLine.trim();
+                if (commandLine.isEmpty() || commandLine.startsWith("#"))
+                    continue;
+                ok &= run(commandLine, stdout);
+            }
+        }
+        return ok;
+    }
 
-            for (int i = 0; i < individualCommands.length; i++) {
-                List<String> tokens = new ArrayList<>(Arrays.asList(individualCommands[i]
-                        .trim().split("\\s+")));
-                String command = tokens.remove(0);
+    /**
+     * Finds the > that sends a command line's output to a file: the last >
+     * outside double quotes, so grep "a>b" file is not split.
+     * @param commandLine Command line as typed
+     * @return Index of the >, the second of >>, or -1 if there is none
+     */
+    static int redirectionOf(String commandLine) {
+        int redirect = -1;
+        boolean quoted = false;
+        for (int i = 0; i < commandLine.length(); i++) {
+            char c = commandLine.charAt(i);
+            if (c == '"') {
+                quoted = !quoted;
+            } else if (c == '>' && !quoted) {
+                redirect = i;
+            }
+        }
+        return redirect;
+    }
 
-                // Switch statement to determine which command to run
+    /**
+     * Runs one command line: a pipeline, optionally followed by > or >> and a
+     * file name, explain or time followed by a pipeline, load, tables, index,
+     * metrics or stats.
+     * @param commandLine Command line to run
+     * @param stdout Standard output, flushed once the pipeline has finished
+     * @return True if the pipeline ran successfully
+     */
 
-                /**
-                 * cat command: Reads the file and outputs the contents.
-                 * cut command: Extracts the specified fields from the input.
-                 * sort command: Sorts the input.
-                 * uniq command: Removes duplicate lines from the input.
-                 * wc command: Counts the number of lines, words and bytes in the input.
-                 */
+    private static boolean run(String commandLine, OutputStream stdout) {
 
-                switch (command) {
-                    case "cat":
-                        if (tokens.size() != 1) {
-                            System.out.println("Usage: cat filename");
-                            continue;
-                        }
-                        try {
-                            pipe = cat(tokens);
-                        } catch (Exception e) {
-                            System.err.println("Error reading file");
-                        }
-                        break;
+        // explain prints the optimized plan instead of running it
 
-                    case "cut":
-                        if (tokens.size() < 2 || !tokens.contains("-f")) {
-                            System.out.println("Usage: cut -f field [-d delimiter] [filename]");
-                            continue;
-                        }
-                        try {
-                            pipe = cut(tokens, pipe);
-                        } catch (Exception e) {
-                            System.err.println("Error executing cut command");
-                        }
-                        break;
+        if (commandLine.startsWith("explain ")) {
+            Planner.explain(Planner.plan(commandLine.substring("explain ".length())));
+            return true;
+        }
 
-                    case "sort":
-                        try {
-                            pipe = sort(tokens, pipe);
-                        } catch (Exception e) {
-                            System.err.println("Error executing sort command");
-                            e.printStackTrace();
-                        }
-                        break;
+        // stats prints how well the file cache is doing
 
-                    case "uniq":
-                        try {
-                            pipe = uniq(tokens, pipe);
-                        } catch (Exception e) {
-                            System.err.println("Error executing uniq command");
-                            e.printStackTrace();
-                        }
-                        break;
+        if (commandLine.equals("stats")) {
+            FileCache.session().printStats();
+            return true;
+        }
 
-                    case "wc":
-                        try {
-                            pipe = wc(tokens, pipe);
-                        } catch (IOException e) {
-                            System.err.println("Error executing wc command");
-                            e.printStackTrace();
-                        }
-                        break;
+        // load parses a file into a table, tables lists them
 
-                    default:
-                        System.out.println("Command not recognized: " + command);
-                        break;
-                }
+        if (commandLine.startsWith("load ")) {
+            return load(commandLine.substring("load ".length()).trim().split("\\s+"));
+        }
+
+        if (commandLine.equals("tables")) {
+            Table.printAll();
+            return true;
+        }
+
+        // index builds the line index of a file, even a small one
+
+        if (commandLine.startsWith("index ")) {
+            return index(commandLine.substring("index ".length()).trim().split("\\s+"));
+        }
+
+        // metrics prints the measurements of the last pipeline that ran
+
+        if (commandLine.equals("metrics") || commandLine.equals("metrics --json")) {
+            PipelineMetrics last = PipelineMetrics.last();
+            if (last == null) {
+                System.out.println("No pipeline has run yet");
+            } else {
+                printMetrics(last, commandLine.endsWith("--json"));
             }
+            return true;
+        }
+
+        // time runs the pipeline and then prints its measurements
 
-            for (String s : pipe) {
-                System.out.println(s);
+        boolean timed = false;
+        boolean json = false;
+        if (commandLine.startsWith("time ")) {
+            timed = true;
+            commandLine = commandLine.substring("time ".length()).trim();
+            if (commandLine.startsWith("--json ")) {
+                json = true;
+                commandLine = commandLine.substring("--json ".length()).trim();
             }
         }
-    }
 
-    // Methods for each command
+        // Split off a redirection to a file
+
+        String target = null;
+        boolean append = false;
+        int redirect = redirectionOf(commandLine);
+        if (redirect >= 0) {
+            target = commandLine.substring(redirect + 1).trim();
+            append = redirect > 0 && commandLine.charAt(redirect - 1) == '>';
+            commandLine = commandLine.substring(0, append ? redirect - 1 : redirect).trim();
+            if (target.isEmpty() || target.contains(" ") || commandLine.isEmpty()) {
+                System.out.println("Usage: pipeline > filename");
+                return false;
+            }
+        }
+
+        Pipeline pipeline = buildPipeline(commandLine, Planner.plan(commandLine));
+        if (pipeline == null)
+            return false;
+
+        // Anything already printed must come out before the pipeline output
+
+        System.out.flush();
+
+        PipelineMetrics metrics = pipeline.getMetrics();
+        StageMetrics writer = metrics.getOutput();
+        boolean ok;
+        writer.begin();
+        try (OutputStream out = target == null ? new NonClosing(stdout)
+                : ChannelOutput.toFile(Paths.get(target), append);
+             LineStream output = pipeline.open()) {
+            Line line;
+            while ((line = output.readLine()) != null) {
+                line.writeTo(out);
+                out.write('\n');
+                writer.countOut(line);
+            }
+            out.flush();
+            ok = true;
+        } catch (IOException e) {
+            flushQuietly(stdout);
+            System.err.println("Error executing pipeline: " + e.getMessage());
+            ok = false;
+        }
+        writer.end();
+        pipeline.awaitStages();
+        metrics.finish();
+
+        if (timed) {
+            printMetrics(metrics, json);
+        }
+        return ok;
+    }
 
     /**
-     * cat command: Reads the file and outputs the contents.
-     * @param args Command line arguments
-     * @return List of strings containing the file contents
-     * @throws Exception If an I/O error occurs
+     * Loads a CSV file into a table and prints what it holds.
+     * @param args Arguments of the load command
+     * @return True if the table was loaded
      */
 
-    private static List<String> cat(List<String> args) throws Exception {
-        List<String> output = new ArrayList<>();
-
-        BufferedReader reader = new BufferedReader(new FileReader(args.get(0)));
-        String line;
-        while ((line = reader.readLine()) != null) {
-            output.add(line);
+    private static boolean load(String[] args) {
+        if (args.length != 3 || !args[1].equals("as")) {
+            System.out.println("Usage: load filename as table");
+            return false;
         }
-        reader.close();
 
-        return output;
+        try {
+            long start = System.nanoTime();
+            Table table = Table.load(args[0], args[2], ",");
+            System.out.printf("Loaded in %.1f ms: ", (System.nanoTime() - start) / 1e6);
+            table.printSummary();
+            return true;
+        } catch (IOException e) {
+            System.err.println("Error loading table: " + e.getMessage());
+            return false;
+        }
     }
 
     /**
-     * cut command: Extracts the specified fields from the input.
-     * @param args Command line arguments
-     * @param input List of strings containing the input
-     * @return List of strings containing the extracted fields
-     * @throws Exception If an I/O error occurs
+     * Builds the line index sidecar of a file and prints what it holds.
+     * @param args Arguments of the index command
+     * @return True if the index was built
      */
 
-    private static List<String> cut(List<String> args, List<String> input) throws Exception {
-        int fieldIndex = args.indexOf("-f");
-        int delimiterIndex = args.indexOf("-d");
-        String field = "";
-        String delimiter = "\",\"";
-        List<Integer> fields;
-        List<String> output = new ArrayList<>();
-
-        if (fieldIndex != -1) field = args.get(args.indexOf("-f") + 1);
-        if (delimiterIndex != -1) delimiter = args.get(args.indexOf("-d") + 1);
-
-        fields = parseField(field);
-        delimiter = delimiter.substring(1, delimiter.length() - 1);
-
-        if (input.isEmpty()) {
-            BufferedReader reader = new BufferedReader(new FileReader(args.get(args.size() - 1)));
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.split(delimiter);
-                List<String> temp = new ArrayList<>();
-
-                for (int i : fields) {
-                    if (i >= 1 && i < parts.length) {
-                        temp.add(parts[i - 1]);
-                    }
+    private static boolean index(String[] args) {
+        int interval = LineIndex.INTERVAL;
+        String fileName = null;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                if (args[i].equals("-n") && i + 1 < args.length) {
+                    interval = Integer.parseInt(args[++i]);
+                } else {
+                    fileName = args[i];
                 }
-                output.add(String.join(delimiter, temp));
-            }
-            reader.close();
-        } else {
-            for (String s : input) {
-                String[] parts = s.split(delimiter);
-                List<String> temp = new ArrayList<>();
-
-                for (int i : fields) {
-                    if (i >= 1 && i < parts.length) {
-                        temp.add(parts[i - 1]);
-                    }
-                }
-                output.add(String.join(delimiter, temp));
             }
+        } catch (NumberFormatException e) {
+            fileName = null;
+        }
+        if (fileName == null || interval < 1) {
+            System.out.println("Usage: index [-n lines] filename");
+            return false;
         }
 
-        return output;
+        try {
+            Path file = Paths.get(fileName);
+            LineIndex index = LineIndex.build(file, interval);
+            System.out.printf("%d lines, %d samples (one every %d lines) in %s%n", index.getLineCount(),
+                    index.getSampleCount(), index.getInterval(), LineIndex.sidecar(file));
+            return true;
+        } catch (IOException e) {
+            System.err.println("Error indexing file: " + e.getMessage());
+            return false;
+        }
     }
 
     /**
-     * sort command: Sorts the input based on alphabetical order.
-     * @param args Command line arguments
-     * @param input List of strings containing the input
-     * @return List of strings containing the sorted input
-     * @throws Exception If an I/O error occurs
+     * Prints the metrics of a run as a table or as one line of JSON.
+     * @param metrics Metrics to print
+     * @param json True for JSON, false for a table
      */
 
-    private static List<String> sort(List<String> args, List<String> input) throws Exception {
-        List<String> lines = new ArrayList<>();
-
-        if (input.isEmpty() && !args.isEmpty()) {
-            BufferedReader reader = new BufferedReader(new FileReader(args.get(0)));
-            String line;
-            while ((line = reader.readLine()) != null) {
-                lines.add(line);
-            }
-
-            reader.close();
+    private static void printMetrics(PipelineMetrics metrics, boolean json) {
+        if (json) {
+            System.out.println(metrics.toJson());
         } else {
-            lines = input;
+            metrics.printTable();
         }
-
-        Collections.sort(lines);
-
-        return lines;
+        System.out.flush();
     }
 
     /**
-     * uniq command: Removes duplicate lines from the input.
-     * @param args Command line arguments
-     * @param input List of strings containing the input
-     * @return List of strings containing the unique lines
-     * @throws Exception If an I/O error occurs
+     * Lets a pipeline write to standard output without closing it at the end.
      */
 
-    private static List<String> uniq(List<String> args, List<String> input) throws Exception {
-        List<String> output = new ArrayList<>();
-        List<String> temp = new ArrayList<>();
-
-        if (input.isEmpty() && !args.isEmpty()) {
-            BufferedReader reader = new BufferedReader(new FileReader(args.get(0)));
-            String line;
+    private static class NonClosing extends FilterOutputStream {
+        NonClosing(OutputStream out) {
+            super(out);
+        }
 
-            while ((line = reader.readLine()) != null) {
-                temp.add(line);
-            }
-            reader.close();
-        } else {
-            temp = input;
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            out.write(bytes, offset, length);
         }
 
-        String current = "";
-        for (String line : temp) {
-            if (!current.equals(line)) {
-                current = line;
-                output.add(line);
-            }
+        @Override
+        public void close() throws IOException {
+            flush();
         }
+    }
 
-        return output;
+    private static void flushQuietly(OutputStream out) {
+        try {
+            out.flush();
+        } catch (IOException ignored) {
+        }
     }
 
     /**
-     * wc command: Counts the number of lines, words and bytes in the input.
-     * @param args Command line arguments
-     * @param input List of strings containing the input
-     * @return List of strings containing the line, word and byte count
-     * @throws IOException If an I/O error occurs
+     * Builds the chain of stages for an optimized plan.
+     * @param commandLine The pipeline as typed
+     * @param plan Plan made by the Planner
+     * @return Pipeline to run, or null if a command was not valid
      */
 
-    private static List<String> wc(List<String> args, List<String> input) throws IOException {
-        boolean lFlag = args.remove("-l");
-        List<String> output = new ArrayList<>();
-        int lines = 0;
-        int words = 0;
-        int bytes = 0;
-
-        if (input.isEmpty() && !args.isEmpty()) {
-            BufferedReader reader = new BufferedReader(new FileReader(args.get(0)));
-            String line;
-            while ((line = reader.readLine()) != null) {
-                lines++;
-                bytes += line.getBytes().length;
-                words += line.split("\\s+").length;
-            }
-            reader.close();
-        } else {
-            for (String s : input) {
-                lines++;
-                bytes += s.getBytes().length;
-                words += s.split("\\s+").length;
-            }
-        }
+    private static Pipeline buildPipeline(String commandLine, Planner.Plan plan) {
+        Pipeline pipeline = new Pipeline(commandLine);
 
-        if (lFlag) {
-            output.add(String.valueOf(lines));
-        } else {
-            output.add(lines + " " + words + " " + bytes);
-        }
+        // Loop through each command in the pipeline
 
-        return output;
-    }
+        for (Command command : plan.getCommands()) {
+            List<String> tokens = new ArrayList<>(command.getArgs());
 
-    /**
-     * Parses the field argument for the cut command.
-     * @param field The field argument
-     * @return List of integers containing the fields
-     */
+            // Switch statement to determine which stage to add
+
+            /**
+             * cat command: Reads the file and outputs the contents.
+             * cut command: Extracts the specified fields from the input.
+             * sort command: Sorts the input.
+             * uniq command: Removes duplicate lines from the input, or counts them.
+             * wc command: Counts the number of lines, words and bytes in the input.
+             * head command: Outputs the first lines of the input.
+             * tail command: Outputs the last lines of the input.
+             * grep command: Outputs the lines that contain a pattern.
+             * sort-uniq: sort | uniq fused by the Planner.
+             * table: a loaded table, with the commands the Planner moved onto its columns.
+             */
+
+            try {
+                switch (command.getName()) {
+                    case "cat":
+                        pipeline.add(new CatStage(tokens), command.toString());
+                        break;
+
+                    case "cut":
+                        pipeline.add(new CutStage(tokens), command.toString());
+                        break;
+
+                    case "sort":
+                        pipeline.add(new SortStage(tokens), command.toString());
+                        break;
 
-    private static List<Integer> parseField(String field) {
-        List<Integer> intFields = new ArrayList<>();
-        String[] rawFields = field.split(",");
-        for (String part : rawFields) {
-            if (part.contains("-")) {
-                String[] range = part.split("-");
+                    case "uniq":
+                        pipeline.add(new UniqStage(tokens), command.toString());
+                        break;
 
-                for (int i = Integer.parseInt(range[0]); i <= Integer.parseInt(range[1]); i++) {
-                    intFields.add(i);
+                    case "wc":
+                        pipeline.add(new WcStage(tokens), command.toString());
+                        break;
+
+                    case "head":
+                        pipeline.add(new HeadStage(tokens), command.toString());
+                        break;
+
+                    case "tail":
+                        pipeline.add(new TailStage(tokens), command.toString());
+                        break;
+
+                    case "grep":
+                        pipeline.add(new GrepStage(tokens), command.toString());
+                        break;
+
+                    case "sort-uniq":
+                        List<Command> parts = command.getParts();
+                        pipeline.add(new SortDistinctStage(new SortStage(parts.get(0).getArgs()),
+                                new UniqStage(parts.get(1).getArgs())), command.toString());
+                        break;
+
+                    case "table":
+                        Table table = Table.named(command.getArgs().get(0));
+                        if (table == null) {
+                            throw new IllegalArgumentException("No table named " + command.getArgs().get(0));
+                        }
+                        pipeline.add(new TableStage(table, command.getParts()), command.toString());
+                        break;
+
+                    default:
+                        System.out.println("Command not recognized: " + command.getName());
+                        return null;
                 }
-            } else {
-                intFields.add(Integer.parseInt(part));
+            } catch (IllegalArgumentException e) {
+                System.out.println(e.getMessage());
+                return null;
             }
         }
-        return intFields;
+
+        return pipeline;
     }
 }
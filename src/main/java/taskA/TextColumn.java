@@ -0,0 +1,109 @@
+package taskA;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A dictionary-encoded column of text. Every distinct value is stored once
+ * and each row holds the int code of its value. The decoded strings, the
+ * alphabetical rank of every code and the number sort -n would read from it
+ * are worked out once per distinct value, the first time they are needed.
+ */
+public class TextColumn implements Column {
+
+    private final int[] codes;
+    private final byte[][] values;
+
+    private volatile String[] strings;
+    private volatile int[] ranks;
+    private volatile double[] numbers;
+
+    /**
+     * Constructor for the column.
+     * @param codes Code of the value of every row
+     * @param values UTF-8 bytes of every distinct value, indexed by code
+     */
+    public TextColumn(int[] codes, byte[][] values) {
+        this.codes = codes;
+        this.values = values;
+    }
+
+    // Access used by the Table to turn a column into a typed one
+
+    int[] codes() {
+        return codes;
+    }
+
+    byte[][] values() {
+        return values;
+    }
+
+    @Override
+    public String kind() {
+        return "text";
+    }
+
+    @Override
+    public String text(int row) {
+        return strings()[codes[row]];
+    }
+
+    @Override
+    public void appendTo(int row, LineBuilder out) {
+        byte[] value = values[codes[row]];
+        out.append(value, 0, value.length);
+    }
+
+    @Override
+    public int rank(int row) {
+        if (ranks == null) rankValues();
+        return ranks[codes[row]];
+    }
+
+    @Override
+    public int distinct() {
+        return values.length;
+    }
+
+    @Override
+    public double number(int row) {
+        if (numbers == null) {
+            String[] text = strings();
+            double[] parsed = new double[text.length];
+            for (int i = 0; i < text.length; i++) {
+                parsed[i] = SortOrder.parseNumber(text[i], 0, text[i].length());
+            }
+            numbers = parsed;
+        }
+        return numbers[codes[row]];
+    }
+
+    @Override
+    public long footprint() {
+        long size = 4L * codes.length;
+        for (byte[] value : values) size += value.length + 16;
+        return size;
+    }
+
+    private String[] strings() {
+        if (strings == null) {
+            String[] decoded = new String[values.length];
+            for (int i = 0; i < values.length; i++) {
+                decoded[i] = new String(values[i], StandardCharsets.UTF_8);
+            }
+            strings = decoded;
+        }
+        return strings;
+    }
+
+    private void rankValues() {
+        String[] text = strings();
+        Integer[] order = new Integer[text.length];
+        for (int i = 0; i < order.length; i++) order[i] = i;
+        Arrays.sort(order, (a, b) -> text[a].compareTo(text[b]));
+
+        int[] rank = new int[text.length];
+        for (int i = 0; i < order.length; i++) rank[order[i]] = i;
+        ranks = rank;
+    }
+}
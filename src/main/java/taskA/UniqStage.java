@@ -0,0 +1,119 @@
+package taskA;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * uniq command: Removes adjacent duplicate lines from the input.
+ * With -c every line is prefixed by the number of times it occurred, with -d
+ * only lines that occurred more than once are output, and with -u only lines
+ * that occurred once. Only the current group is remembered, so it runs in
+ * constant memory.
+ */
+public class UniqStage implements Stage {
+
+    private final boolean count;
+    private final boolean repeated;
+    private final boolean unique;
+    private final String fileName;
+
+    /**
+     * Constructor for the uniq stage.
+     * @param args Command line arguments
+     */
+    public UniqStage(List<String> args) {
+        boolean count = false;
+        boolean repeated = false;
+        boolean unique = false;
+        String fileName = null;
+
+        for (String arg : args) {
+            if (arg.startsWith("-") && arg.length() > 1) {
+                for (char flag : arg.substring(1).toCharArray()) {
+                    if (flag == 'c') count = true;
+                    else if (flag == 'd') repeated = true;
+                    else if (flag == 'u') unique = true;
+                    else throw new IllegalArgumentException("Usage: uniq [-c] [-d] [-u] [filename]");
+                }
+            } else {
+                fileName = arg;
+            }
+        }
+
+        this.count = count;
+        this.repeated = repeated;
+        this.unique = unique;
+        this.fileName = fileName;
+    }
+
+    // Getter used by the Planner when it rewrites the pipeline
+
+    String getFileName() {
+        return fileName;
+    }
+
+    @Override
+    public LineStream open(LineStream input) throws IOException {
+        LineStream source = Stage.source(input, fileName);
+        return new LineStream() {
+            // the group being counted, and the group that was just returned
+            private Line current = new Line();
+            private Line previous = new Line();
+            private boolean started = false;
+            private long occurrences = 0;
+            private boolean done = false;
+            private final LineBuilder buffer = new LineBuilder();
+
+            @Override
+            public Line readLine() throws IOException {
+                while (!done) {
+                    Line line = source.readLine();
+                    if (line != null && started && line.equals(current)) {
+                        occurrences++;
+                        continue;
+                    }
+
+                    // the group of copies of current has ended, keep it while the caller uses it
+                    Line ended = current;
+                    long endedOccurrences = occurrences;
+                    boolean hadGroup = started;
+                    current = previous;
+                    previous = ended;
+
+                    if (line != null) current.assign(line);
+                    started = true;
+                    occurrences = 1;
+                    done = line == null;
+
+                    Line output = hadGroup ? output(ended, endedOccurrences, buffer) : null;
+                    if (output != null) return output;
+                }
+                return null;
+            }
+
+            @Override
+            public void close() throws IOException {
+                source.close();
+            }
+        };
+    }
+
+    /**
+     * Works out what to output for a group of identical lines.
+     * @param line The line
+     * @param occurrences Number of times it occurred
+     * @param buffer Reused buffer to build a counted line in
+     * @return Output line, or null if the group is left out by -d or -u
+     */
+    Line output(Line line, long occurrences, LineBuilder buffer) {
+        if (repeated && occurrences < 2) return null;
+        if (unique && occurrences > 1) return null;
+        if (!count) return line;
+
+        // the same layout as String.format("%7d %s")
+        String number = Long.toString(occurrences);
+        buffer.reset();
+        for (int i = number.length(); i < 7; i++) buffer.append((byte) ' ');
+        return buffer.appendUtf8(number).append((byte) ' ').append(line).line();
+    }
+}
@@ -0,0 +1,143 @@
+package taskA;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * wc command: Counts the number of lines (-l), words (-w) and bytes (-c) in the input.
+ * A file named on the command line is memory-mapped and counted as raw bytes
+ * on all cores, each thread starting at a line boundary taken from the
+ * file's LineIndex when it has one; wc -l is answered from the index alone.
+ * Input from a previous stage is counted as it streams past,
+ * so either way it runs in constant memory.
+ */
+public class WcStage implements Stage {
+
+    private final boolean lFlag;
+    private final boolean wFlag;
+    private final boolean cFlag;
+    private final String fileName;
+
+    /**
+     * Constructor for the wc stage.
+     * @param args Command line arguments
+     */
+    public WcStage(List<String> args) {
+        boolean lFlag = false;
+        boolean wFlag = false;
+        boolean cFlag = false;
+        String fileName = null;
+
+        for (String arg : args) {
+            if (arg.startsWith("-") && arg.length() > 1) {
+                for (char flag : arg.substring(1).toCharArray()) {
+                    if (flag == 'l') lFlag = true;
+                    else if (flag == 'w') wFlag = true;
+                    else if (flag == 'c') cFlag = true;
+                    else throw new IllegalArgumentException("Usage: wc [-l] [-w] [-c] [filename]");
+                }
+            } else {
+                fileName = arg;
+            }
+        }
+
+        // with no flags all three counts are shown
+        if (!lFlag && !wFlag && !cFlag) {
+            lFlag = wFlag = cFlag = true;
+        }
+
+        this.lFlag = lFlag;
+        this.wFlag = wFlag;
+        this.cFlag = cFlag;
+        this.fileName = fileName;
+    }
+
+    // Getters used by the Planner when it rewrites the pipeline
+
+    String getFileName() {
+        return fileName;
+    }
+
+    boolean countsLinesOnly() {
+        return lFlag && !wFlag && !cFlag;
+    }
+
+    boolean countsLines() {
+        return lFlag;
+    }
+
+    boolean countsBytes() {
+        return cFlag;
+    }
+
+    @Override
+    public LineStream open(LineStream input) throws IOException {
+        if (input == null && fileName != null && Files.isRegularFile(Paths.get(fileName))) {
+            Path file = Paths.get(fileName);
+            LineIndex index = LineIndex.existing(file);
+            if (index != null && countsLinesOnly()) {
+                return single(() -> Line.of(String.valueOf(index.getNewlineCount())), null);
+            }
+            return single(() -> format(WordCount.countFile(file, Runtime.getRuntime().availableProcessors(), index)),
+                    null);
+        }
+
+        LineStream source = Stage.source(input, fileName);
+        return single(() -> {
+            WordCount count = new WordCount();
+            Line line;
+            while ((line = source.readLine()) != null) {
+                count.addLine(line);
+            }
+            return format(count);
+        }, source);
+    }
+
+    /**
+     * Work that produces the single output line of wc.
+     */
+    private interface Counter {
+        Line count() throws IOException;
+    }
+
+    /**
+     * Creates a stream whose only line is worked out when it is first read.
+     * @param counter Work that produces the line
+     * @param source Input to close with the stream, or null
+     * @return Stream with one line
+     */
+    private static LineStream single(Counter counter, LineStream source) {
+        return new LineStream() {
+            private boolean done = false;
+
+            @Override
+            public Line readLine() throws IOException {
+                if (done) return null;
+                done = true;
+                return counter.count();
+            }
+
+            @Override
+            public void close() throws IOException {
+                if (source != null) source.close();
+            }
+        };
+    }
+
+    /**
+     * Formats the selected counts in the order lines, words, bytes.
+     * @param count Counts of the input
+     * @return Output line of wc
+     */
+    private Line format(WordCount count) {
+        List<String> output = new ArrayList<>();
+        if (lFlag) output.add(String.valueOf(count.getLines()));
+        if (wFlag) output.add(String.valueOf(count.getWords()));
+        if (cFlag) output.add(String.valueOf(count.getBytes()));
+        return Line.of(String.join(" ", output));
+    }
+}
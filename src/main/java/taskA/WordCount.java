@@ -0,0 +1,217 @@
+package taskA;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Line, word and byte counts for the wc command, worked out directly on bytes.
+ *
+ * Files are memory-mapped in chunks of at most CHUNK_SIZE bytes (a single
+ * mapping cannot exceed 2 GB) and the chunks are counted on separate threads.
+ * A word is a run of bytes that are not ASCII whitespace, as in coreutils wc,
+ * and a word that straddles two chunks is counted only once when the chunk
+ * results are combined.
+ */
+public class WordCount {
+
+    // size of one mapped chunk, and of the block copied out of it for the counting loop
+    static final int CHUNK_SIZE = 64 * 1024 * 1024;
+    private static final int BLOCK_SIZE = 64 * 1024;
+
+    // files smaller than this are counted on the calling thread
+    private static final long PARALLEL_THRESHOLD = 4 * 1024 * 1024;
+
+    private static final boolean[] SPACE = new boolean[256];
+
+    static {
+        for (char c : new char[]{' ', '\t', '\n', '\r', '\f', 0x0b}) {
+            SPACE[c] = true;
+        }
+    }
+
+    private long lines = 0;
+    private long words = 0;
+    private long bytes = 0;
+
+    // whether the counted bytes started or ended inside a word
+    private boolean startsInWord = false;
+    private boolean endsInWord = false;
+
+    public long getLines() {
+        return lines;
+    }
+
+    public long getWords() {
+        return words;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Counts a whole file by memory-mapping it.
+     * @param file File to count
+     * @param threads Number of threads to share the chunks between
+     * @return Counts for the file
+     * @throws IOException If an I/O error occurs
+     */
+    public static WordCount countFile(Path file, int threads) throws IOException {
+        return countFile(file, threads, null);
+    }
+
+    /**
+     * Counts a whole file by memory-mapping it, starting each thread at a
+     * line boundary from the file's index when there is one, so that no word
+     * is split between two threads.
+     * @param file File to count
+     * @param threads Number of threads to share the chunks between
+     * @param index Line index of the file, or null
+     * @return Counts for the file
+     * @throws IOException If an I/O error occurs
+     */
+    public static WordCount countFile(Path file, int threads, LineIndex index) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < PARALLEL_THRESHOLD || threads <= 1) {
+                WordCount total = new WordCount();
+                for (long position = 0; position < size; position += CHUNK_SIZE) {
+                    total.append(countChunk(channel, position, Math.min(CHUNK_SIZE, size - position)));
+                }
+                return total;
+            }
+
+            // a few chunks per thread, so that one slow chunk does not hold everyone up
+            long chunk = Math.min(CHUNK_SIZE, Math.max(PARALLEL_THRESHOLD, size / (4L * threads) + 1));
+            long[] boundaries = index != null && index.getSize() == size
+                    ? index.split((int) ((size + chunk - 1) / chunk))
+                    : new long[]{0, size};
+            StageMetrics.Helpers workers = StageMetrics.helperThreads("wc-worker");
+            ExecutorService pool = Executors.newFixedThreadPool(threads, workers);
+            try {
+                List<Future<WordCount>> parts = new ArrayList<>();
+                for (int i = 0; i + 1 < boundaries.length; i++) {
+                    // a range between two samples can still be too long for one mapping
+                    for (long position = boundaries[i]; position < boundaries[i + 1]; position += chunk) {
+                        long start = position;
+                        long length = Math.min(chunk, boundaries[i + 1] - position);
+                        parts.add(pool.submit(() -> countChunk(channel, start, length)));
+                    }
+                }
+
+                WordCount total = new WordCount();
+                for (Future<WordCount> part : parts) {
+                    total.append(part.get());
+                }
+                return total;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("wc interrupted", e);
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof IOException
+                        ? (IOException) e.getCause()
+                        : new IOException(e.getCause());
+            } finally {
+                workers.finish();
+                pool.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * Maps and counts one chunk of a file.
+     * @param channel Open file
+     * @param position Offset of the chunk
+     * @param length Length of the chunk, at most CHUNK_SIZE
+     * @return Counts for the chunk
+     * @throws IOException If an I/O error occurs
+     */
+    private static WordCount countChunk(FileChannel channel, long position, long length) throws IOException {
+        MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+        WordCount count = new WordCount();
+        byte[] block = new byte[(int) Math.min(BLOCK_SIZE, length)];
+
+        boolean inWord = false;
+        while (map.hasRemaining()) {
+            int n = Math.min(block.length, map.remaining());
+            map.get(block, 0, n);
+            inWord = count.countBlock(block, n, inWord);
+        }
+        return count;
+    }
+
+    /**
+     * The counting loop: one table lookup per byte and no branches on the data.
+     * @param block Bytes to count
+     * @param n Number of bytes in the block
+     * @param inWord True if the previous byte was part of a word
+     * @return True if the last byte is part of a word
+     */
+    private boolean countBlock(byte[] block, int n, boolean inWord) {
+        if (bytes == 0 && n > 0) {
+            startsInWord = !SPACE[block[0] & 0xff];
+        }
+
+        long newlines = 0;
+        long wordStarts = 0;
+        boolean previousSpace = !inWord;
+        for (int i = 0; i < n; i++) {
+            int b = block[i] & 0xff;
+            boolean space = SPACE[b];
+            newlines += b == '\n' ? 1 : 0;
+            wordStarts += (previousSpace & !space) ? 1 : 0;
+            previousSpace = space;
+        }
+
+        lines += newlines;
+        words += wordStarts;
+        bytes += n;
+        endsInWord = !previousSpace;
+        return endsInWord;
+    }
+
+    /**
+     * Adds the counts of the bytes that directly follow the ones counted so far.
+     * @param next Counts of the following bytes
+     */
+    void append(WordCount next) {
+        if (next.bytes == 0) return;
+        if (bytes == 0) startsInWord = next.startsInWord;
+
+        lines += next.lines;
+        words += next.words;
+        if (endsInWord && next.startsInWord) {
+            words--;
+        }
+        bytes += next.bytes;
+        endsInWord = next.endsInWord;
+    }
+
+    /**
+     * Counts one line passed down a pipeline, including the newline that ends it.
+     * @param line Line to count
+     */
+    public void addLine(Line line) {
+        byte[] data = line.bytes();
+        int end = line.offset() + line.length();
+        long wordStarts = 0;
+        boolean previousSpace = true;
+        for (int i = line.offset(); i < end; i++) {
+            boolean space = SPACE[data[i] & 0xff];
+            wordStarts += (previousSpace & !space) ? 1 : 0;
+            previousSpace = space;
+        }
+        lines++;
+        words += wordStarts;
+        bytes += line.length() + 1;
+    }
+}
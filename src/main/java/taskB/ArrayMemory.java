@@ -0,0 +1,852 @@
+package taskB;
+
+import java.util.Arrays;
+
+/**
+ * Memory whose blocks are kept in parallel arrays instead of as BlockNode,
+ * Block, Hole and Process objects.
+ *
+ * Every block is a slot, an index into the arrays, holding its start and
+ * size, the slots before and after it, and for an allocated block the
+ * reference number and the bytes requested. Slots of blocks that are joined
+ * away are kept on a list and handed out again. The free blocks are indexed
+ * by a treap whose nodes are the slots themselves, ordered by address or by
+ * size depending on the policy, so the index costs two more ints per block
+ * and no objects at all. Allocated blocks are found by reference number in
+ * an open-addressing table of ints.
+ *
+ * The PlacementPolicy gives the rules (how big a block a request gets, how
+ * blocks split and join, and whether they can be compacted), and its Fit
+ * gives the order of the treap and which free block is chosen; the policy's
+ * own index is not used. Every operation follows the same steps as
+ * MainMemory, so the two place every process in the same block.
+ */
+public class ArrayMemory implements Memory {
+
+    private static final int NONE = -1;
+
+    // left link of a free slot that is not in a tree, or of an allocated slot
+    private static final int NOT_INDEXED = -2;
+
+    private static final int INITIAL_SLOTS = 16;
+
+    // the orders of the trees
+    private static final int BY_ADDRESS = 0;
+    private static final int BY_SIZE = 1;
+    private static final int BY_SIZE_DESCENDING = 2;
+
+    private final long totalBytes;
+    private final PlacementPolicy policy;
+    private final PlacementPolicy.Fit fit;
+
+    // one entry per slot; extra is the largest size in the subtree for a free
+    // slot in a tree, and the bytes requested for an allocated one
+    private long[] start = new long[INITIAL_SLOTS];
+    private long[] size = new long[INITIAL_SLOTS];
+    private long[] extra = new long[INITIAL_SLOTS];
+    private int[] next = new int[INITIAL_SLOTS];
+    private int[] prev = new int[INITIAL_SLOTS];
+    private int[] left = new int[INITIAL_SLOTS];
+    private int[] right = new int[INITIAL_SLOTS];
+    private int[] owner = new int[INITIAL_SLOTS];
+    private boolean[] used = new boolean[INITIAL_SLOTS];
+
+    private int slots = 0;
+    private int recycled = NONE;
+    private int head = NONE;
+    private int blocks = 0;
+
+    // the free blocks, one tree, or one per power of two for buddy allocation
+    private final SlotTree[] trees;
+    private long rover = 0;
+
+    private final ReferenceTable owners = new ReferenceTable();
+
+    private int cursor = NONE;
+    private long credit;
+    private long bytesMoved;
+
+    /**
+     * Constructor, memory starts as one free block
+     *
+     * @param totalBytes Size of memory.
+     * @param policy Placement policy, used by this memory only.
+     */
+    public ArrayMemory(long totalBytes, PlacementPolicy policy) {
+        if (totalBytes <= 0) {
+            throw new IllegalArgumentException("Memory size must be positive");
+        }
+        this.totalBytes = totalBytes;
+        this.policy = policy;
+        this.fit = policy.getFit();
+
+        switch (fit) {
+            case BUDDY:
+                trees = new SlotTree[Long.SIZE];
+                for (int order = 0; order < trees.length; order++) {
+                    trees[order] = new SlotTree(BY_ADDRESS);
+                }
+                break;
+            case BEST:
+                trees = new SlotTree[]{new SlotTree(BY_SIZE)};
+                break;
+            case WORST:
+                trees = new SlotTree[]{new SlotTree(BY_SIZE_DESCENDING)};
+                break;
+            default:
+                trees = new SlotTree[]{new SlotTree(BY_ADDRESS)};
+                break;
+        }
+
+        head = newSlot();
+        start[head] = 0;
+        size[head] = totalBytes;
+        blocks = 1;
+        addFree(head);
+    }
+
+    @Override
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    @Override
+    public int getSize() {
+        return blocks;
+    }
+
+    @Override
+    public PlacementPolicy getPolicy() {
+        return policy;
+    }
+
+    @Override
+    public boolean insert(Process proc) {
+        return proc.isAllocating() && insert(proc.getReference_number(), proc.getArgument());
+    }
+
+    @Override
+    public boolean insert(int reference_number, long bytes) {
+        long needed = policy.blockSize(bytes);
+        int slot = select(needed);
+        if (slot == NONE) {
+            return false;
+        }
+        removeFree(slot);
+
+        while (size[slot] > needed) {
+            split(slot, policy.splitSize(size[slot], needed));
+        }
+
+        used[slot] = true;
+        owner[slot] = reference_number;
+        extra[slot] = bytes;
+        owners.put(reference_number, slot);
+        return true;
+    }
+
+    /**
+     * Splits a block in two, the second part becoming a new free block.
+     */
+    private void split(int slot, long keep) {
+        int rest = newSlot();
+        start[rest] = start[slot] + keep;
+        size[rest] = size[slot] - keep;
+        size[slot] = keep;
+
+        next[rest] = next[slot];
+        prev[rest] = slot;
+        if (next[slot] != NONE) {
+            prev[next[slot]] = rest;
+        }
+        next[slot] = rest;
+        blocks++;
+        addFree(rest);
+    }
+
+    /**
+     * Joins a free block with the free block that follows it. Neither is left
+     * in the index.
+     */
+    private void merge(int first, int second) {
+        removeFree(first);
+        removeFree(second);
+        size[first] = start[second] + size[second] - start[first];
+
+        next[first] = next[second];
+        if (next[second] != NONE) {
+            prev[next[second]] = first;
+        }
+        if (cursor == second) {
+            cursor = first;
+        }
+        releaseSlot(second);
+        blocks--;
+    }
+
+    private boolean canMerge(int first, int second) {
+        return policy.canMerge(start[first], size[first], size[second]);
+    }
+
+    @Override
+    public void deallocateBlock(int process_number) {
+        int slot = owners.remove(process_number);
+        if (slot == NONE) {
+            return;
+        }
+        used[slot] = false;
+        left[slot] = NOT_INDEXED;
+
+        while (true) {
+            int following = next[slot];
+            if (following != NONE && !used[following] && canMerge(slot, following)) {
+                merge(slot, following);
+                continue;
+            }
+            int previous = prev[slot];
+            if (previous != NONE && !used[previous] && canMerge(previous, slot)) {
+                merge(previous, slot);
+                slot = previous;
+                continue;
+            }
+            break;
+        }
+        addFree(slot);
+
+        if (cursor == NONE || start[slot] < start[cursor]) {
+            cursor = slot;
+        }
+    }
+
+    @Override
+    public long externalFragmentation() {
+        long externalFragmentation = 0;
+        for (int slot = head; slot != NONE; slot = next[slot]) {
+            if (!used[slot]) {
+                externalFragmentation += size[slot];
+            }
+        }
+        return externalFragmentation;
+    }
+
+    @Override
+    public long internalFragmentation() {
+        long internalFragmentation = 0;
+        for (int slot = head; slot != NONE; slot = next[slot]) {
+            if (used[slot]) {
+                internalFragmentation += size[slot] - extra[slot];
+            }
+        }
+        return internalFragmentation;
+    }
+
+    @Override
+    public long compactMemory() {
+        checkCompaction();
+        long memoryUsage = 0;
+        long moved = 0;
+        int previous = NONE;
+        int current = head;
+
+        while (current != NONE) {
+            int following = next[current];
+            if (used[current]) {
+                if (start[current] != memoryUsage) {
+                    moved += size[current];
+                }
+                start[current] = memoryUsage;
+                memoryUsage += size[current];
+                previous = current;
+            } else {
+                if (previous != NONE) {
+                    next[previous] = following;
+                } else {
+                    head = following;
+                }
+                releaseSlot(current);
+            }
+            current = following;
+        }
+
+        //no free block at all if memory is full
+        if (memoryUsage < totalBytes) {
+            int free = newSlot();
+            start[free] = memoryUsage;
+            size[free] = totalBytes - memoryUsage;
+            next[free] = NONE;
+            if (previous != NONE) {
+                next[previous] = free;
+            } else {
+                head = free;
+            }
+        }
+        rebuildIndex();
+        cursor = NONE;
+        bytesMoved += moved;
+        return moved;
+    }
+
+    @Override
+    public long compactFor(long bytes) {
+        checkCompaction();
+        long needed = policy.blockSize(bytes);
+
+        //the free blocks in order, with the allocated bytes between each and the one before
+        int count = 0;
+        for (int slot = head; slot != NONE; slot = next[slot]) {
+            if (!used[slot]) {
+                count++;
+            }
+        }
+        int[] free = new int[count];
+        long[] between = new long[count];
+        long allocatedBytes = 0;
+        count = 0;
+        for (int slot = head; slot != NONE; slot = next[slot]) {
+            if (!used[slot]) {
+                between[count] = allocatedBytes;
+                free[count++] = slot;
+                allocatedBytes = 0;
+            } else {
+                allocatedBytes += size[slot];
+            }
+        }
+
+        //cheapest run of free blocks first..last that frees enough
+        int first = -1;
+        int last = -1;
+        long bestCost = Long.MAX_VALUE;
+        long freeBytes = 0;
+        long cost = 0;
+        for (int low = 0, high = 0; high < count; high++) {
+            freeBytes += size[free[high]];
+            if (high > low) {
+                cost += between[high];
+            }
+            while (low < high && freeBytes - size[free[low]] >= needed) {
+                freeBytes -= size[free[low]];
+                cost -= between[low + 1];
+                low++;
+            }
+            if (freeBytes >= needed && cost < bestCost) {
+                first = low;
+                last = high;
+                bestCost = cost;
+            }
+        }
+        if (first < 0) {
+            return -1;
+        }
+
+        long moved = pack(free[first], free[last]);
+        bytesMoved += moved;
+        return moved;
+    }
+
+    /**
+     * Slides the allocated blocks from one free block to another down to the
+     * start of the first, leaving the last as one free block after them.
+     */
+    private long pack(int first, int last) {
+        long address = start[first];
+        long end = start[last] + size[last] - 1;
+        long moved = 0;
+        int previous = prev[first];
+
+        int slot = first;
+        while (slot != last) {
+            int following = next[slot];
+            if (!used[slot]) {
+                removeFree(slot);
+                if (cursor == slot) {
+                    cursor = last;
+                }
+                releaseSlot(slot);
+                blocks--;
+            } else {
+                start[slot] = address;
+                address += size[slot];
+                moved += size[slot];
+                link(previous, slot);
+                previous = slot;
+            }
+            slot = following;
+        }
+
+        removeFree(last);
+        start[last] = address;
+        size[last] = end - address + 1;
+        link(previous, last);
+        addFree(last);
+        return moved;
+    }
+
+    private void link(int previous, int slot) {
+        if (previous == NONE) {
+            head = slot;
+        } else {
+            next[previous] = slot;
+        }
+        prev[slot] = previous;
+    }
+
+    @Override
+    public long compactStep(long budget) {
+        if (!policy.allowsCompaction() || cursor == NONE) {
+            credit = 0;
+            return 0;
+        }
+        credit += budget;
+        long moved = 0;
+
+        while (cursor != NONE) {
+            //skip what is already packed
+            while (cursor != NONE && used[cursor]) {
+                cursor = next[cursor];
+            }
+            int following = cursor == NONE ? NONE : next[cursor];
+            if (following == NONE || !used[following]) {
+                //nothing left to slide down
+                cursor = NONE;
+                credit = 0;
+                break;
+            }
+            long blockSize = size[following];
+            if (blockSize > credit) {
+                break;
+            }
+
+            //the allocated block takes the hole's slot and the hole moves up after it
+            int hole = cursor;
+            removeFree(hole);
+            long holeStart = start[hole];
+            long holeEnd = start[following] + size[following] - 1;
+            used[hole] = true;
+            owner[hole] = owner[following];
+            extra[hole] = extra[following];
+            size[hole] = blockSize;
+            owners.put(owner[hole], hole);
+
+            used[following] = false;
+            left[following] = NOT_INDEXED;
+            start[following] = holeStart + blockSize;
+            size[following] = holeEnd - start[following] + 1;
+
+            cursor = following;
+            int after = next[following];
+            if (after != NONE && !used[after] && canMerge(following, after)) {
+                merge(following, after);
+            }
+            addFree(following);
+
+            credit -= blockSize;
+            moved += blockSize;
+        }
+        bytesMoved += moved;
+        return moved;
+    }
+
+    @Override
+    public long getBytesMoved() {
+        return bytesMoved;
+    }
+
+    @Override
+    public void printBlocks() {
+        System.out.println("Current memory display");
+        for (int slot = head; slot != NONE; slot = next[slot]) {
+            String allocated = used[slot] ? "allocated to Process " + owner[slot] : "free";
+            System.out.printf("[%d-%d): %s\n", start[slot], start[slot] + size[slot], allocated);
+        }
+    }
+
+    private void checkCompaction() {
+        if (!policy.allowsCompaction()) {
+            throw new IllegalStateException(policy.getName() + " memory cannot be compacted");
+        }
+    }
+
+    /**
+     * Links every slot back to the one before it and indexes every block
+     * again after the blocks have been moved.
+     */
+    private void rebuildIndex() {
+        for (SlotTree tree : trees) {
+            tree.root = NONE;
+        }
+        rover = 0;
+        owners.clear();
+        blocks = 0;
+
+        int previous = NONE;
+        for (int slot = head; slot != NONE; slot = next[slot]) {
+            prev[slot] = previous;
+            if (used[slot]) {
+                owners.put(owner[slot], slot);
+            } else {
+                left[slot] = NOT_INDEXED;
+                addFree(slot);
+            }
+            previous = slot;
+            blocks++;
+        }
+    }
+
+    // Slots
+
+    private int newSlot() {
+        int slot;
+        if (recycled != NONE) {
+            slot = recycled;
+            recycled = next[slot];
+        } else {
+            if (slots == start.length) {
+                grow();
+            }
+            slot = slots++;
+        }
+        next[slot] = NONE;
+        prev[slot] = NONE;
+        left[slot] = NOT_INDEXED;
+        right[slot] = NONE;
+        used[slot] = false;
+        return slot;
+    }
+
+    private void releaseSlot(int slot) {
+        next[slot] = recycled;
+        recycled = slot;
+    }
+
+    /**
+     * Makes room for half as many slots again.
+     */
+    private void grow() {
+        int capacity = start.length + (start.length >> 1);
+        start = Arrays.copyOf(start, capacity);
+        size = Arrays.copyOf(size, capacity);
+        extra = Arrays.copyOf(extra, capacity);
+        next = Arrays.copyOf(next, capacity);
+        prev = Arrays.copyOf(prev, capacity);
+        left = Arrays.copyOf(left, capacity);
+        right = Arrays.copyOf(right, capacity);
+        owner = Arrays.copyOf(owner, capacity);
+        used = Arrays.copyOf(used, capacity);
+    }
+
+    // The free block index, the same choices as the policies' own indexes
+
+    private int select(long bytes) {
+        switch (fit) {
+            case FIRST:
+                return trees[0].first(Long.MIN_VALUE, bytes);
+            case NEXT: {
+                int found = trees[0].first(rover, bytes);
+                if (found == NONE) {
+                    found = trees[0].first(Long.MIN_VALUE, bytes);
+                }
+                if (found != NONE) {
+                    rover = start[found] + bytes;
+                }
+                return found;
+            }
+            case BEST:
+                return trees[0].ceiling(bytes);
+            case WORST: {
+                int largest = trees[0].leftmost();
+                return largest == NONE || size[largest] < bytes ? NONE : largest;
+            }
+            default: {
+                if (Long.bitCount(bytes) != 1) {
+                    return NONE;
+                }
+                for (int order = Long.numberOfTrailingZeros(bytes); order < trees.length; order++) {
+                    int first = trees[order].leftmost();
+                    if (first != NONE) {
+                        return first;
+                    }
+                }
+                return NONE;
+            }
+        }
+    }
+
+    private void addFree(int slot) {
+        treeOf(slot, true).add(slot);
+    }
+
+    private void removeFree(int slot) {
+        if (left[slot] != NOT_INDEXED) {
+            treeOf(slot, false).remove(slot);
+        }
+    }
+
+    private SlotTree treeOf(int slot, boolean adding) {
+        if (trees.length == 1) {
+            return trees[0];
+        }
+        long blockSize = size[slot];
+        if (adding && (blockSize <= 0 || Long.bitCount(blockSize) != 1 || start[slot] % blockSize != 0)) {
+            throw new IllegalStateException("Buddy allocation needs memory whose size is a power of two");
+        }
+        return trees[Long.numberOfTrailingZeros(blockSize)];
+    }
+
+    /**
+     * A treap of free slots, linked through the left and right arrays, where
+     * every slot also holds the largest size in its subtree. A slot's
+     * priority is a hash of its number, so it takes no space.
+     */
+    private final class SlotTree {
+        private final int order;
+        private int root = NONE;
+
+        SlotTree(int order) {
+            this.order = order;
+        }
+
+        void add(int slot) {
+            left[slot] = NONE;
+            right[slot] = NONE;
+            extra[slot] = size[slot];
+            root = insert(root, slot);
+        }
+
+        void remove(int slot) {
+            root = delete(root, slot);
+            left[slot] = NOT_INDEXED;
+        }
+
+        /**
+         * Lowest address at or after from with a block of at least bytes.
+         */
+        int first(long from, long bytes) {
+            return find(root, from, bytes);
+        }
+
+        /**
+         * Smallest block of at least bytes, lowest address first.
+         */
+        int ceiling(long bytes) {
+            int found = NONE;
+            int node = root;
+            while (node != NONE) {
+                if (size[node] >= bytes) {
+                    found = node;
+                    node = left[node];
+                } else {
+                    node = right[node];
+                }
+            }
+            return found;
+        }
+
+        int leftmost() {
+            int node = root;
+            if (node == NONE) {
+                return NONE;
+            }
+            while (left[node] != NONE) {
+                node = left[node];
+            }
+            return node;
+        }
+
+        private int find(int node, long from, long bytes) {
+            if (node == NONE || extra[node] < bytes) {
+                return NONE;
+            }
+            if (start[node] < from) {
+                return find(right[node], from, bytes);
+            }
+            int found = find(left[node], from, bytes);
+            if (found != NONE) {
+                return found;
+            }
+            if (size[node] >= bytes) {
+                return node;
+            }
+            return find(right[node], from, bytes);
+        }
+
+        private int compare(int a, int b) {
+            switch (order) {
+                case BY_SIZE:
+                    if (size[a] != size[b]) {
+                        return Long.compare(size[a], size[b]);
+                    }
+                    break;
+                case BY_SIZE_DESCENDING:
+                    if (size[a] != size[b]) {
+                        return Long.compare(size[b], size[a]);
+                    }
+                    break;
+                default:
+                    break;
+            }
+            return Long.compare(start[a], start[b]);
+        }
+
+        private int insert(int node, int added) {
+            if (node == NONE) {
+                return added;
+            }
+            if (compare(added, node) < 0) {
+                left[node] = insert(left[node], added);
+                if (priority(left[node]) > priority(node)) node = rotateRight(node);
+            } else {
+                right[node] = insert(right[node], added);
+                if (priority(right[node]) > priority(node)) node = rotateLeft(node);
+            }
+            update(node);
+            return node;
+        }
+
+        private int delete(int node, int slot) {
+            if (node == NONE) {
+                return NONE;
+            }
+            if (node == slot) {
+                node = join(left[node], right[node]);
+            } else {
+                int cmp = compare(slot, node);
+                if (cmp < 0) {
+                    left[node] = delete(left[node], slot);
+                } else if (cmp > 0) {
+                    right[node] = delete(right[node], slot);
+                } else {
+                    // only empty blocks share a key, and rotations can put them either side
+                    left[node] = delete(left[node], slot);
+                    right[node] = delete(right[node], slot);
+                }
+            }
+            if (node != NONE) update(node);
+            return node;
+        }
+
+        private int join(int low, int high) {
+            if (low == NONE) return high;
+            if (high == NONE) return low;
+            if (priority(low) > priority(high)) {
+                right[low] = join(right[low], high);
+                update(low);
+                return low;
+            }
+            left[high] = join(low, left[high]);
+            update(high);
+            return high;
+        }
+
+        private int rotateRight(int node) {
+            int top = left[node];
+            left[node] = right[top];
+            right[top] = node;
+            update(node);
+            return top;
+        }
+
+        private int rotateLeft(int node) {
+            int top = right[node];
+            right[node] = left[top];
+            left[top] = node;
+            update(node);
+            return top;
+        }
+
+        private void update(int node) {
+            long max = size[node];
+            if (left[node] != NONE && extra[left[node]] > max) max = extra[left[node]];
+            if (right[node] != NONE && extra[right[node]] > max) max = extra[right[node]];
+            extra[node] = max;
+        }
+
+        private int priority(int slot) {
+            int h = slot * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+    }
+
+    /**
+     * Slots of the allocated blocks by reference number, in two int arrays
+     * with linear probing, so that no Integer or map entry is made per block.
+     */
+    private static final class ReferenceTable {
+        private int[] keys = new int[INITIAL_SLOTS];
+        private int[] values = new int[INITIAL_SLOTS];
+        private int count = 0;
+
+        ReferenceTable() {
+            Arrays.fill(values, NONE);
+        }
+
+        void put(int key, int value) {
+            if (2 * (count + 1) > keys.length) {
+                resize(keys.length * 2);
+            }
+            int i = home(key);
+            while (values[i] != NONE && keys[i] != key) {
+                i = (i + 1) & (keys.length - 1);
+            }
+            if (values[i] == NONE) {
+                count++;
+            }
+            keys[i] = key;
+            values[i] = value;
+        }
+
+        /**
+         * Removes a key.
+         * @return Its slot, or NONE if it was not there
+         */
+        int remove(int key) {
+            int mask = keys.length - 1;
+            int i = home(key);
+            while (values[i] != NONE && keys[i] != key) {
+                i = (i + 1) & mask;
+            }
+            int value = values[i];
+            if (value == NONE) {
+                return NONE;
+            }
+            values[i] = NONE;
+            count--;
+
+            // shift back entries that probed past the one removed
+            for (int j = (i + 1) & mask; values[j] != NONE; j = (j + 1) & mask) {
+                int h = home(keys[j]);
+                boolean stays = i <= j ? i < h && h <= j : i < h || h <= j;
+                if (!stays) {
+                    keys[i] = keys[j];
+                    values[i] = values[j];
+                    values[j] = NONE;
+                    i = j;
+                }
+            }
+            return value;
+        }
+
+        void clear() {
+            Arrays.fill(values, NONE);
+            count = 0;
+        }
+
+        private int home(int key) {
+            int h = key * 0x9E3779B9;
+            return (h ^ (h >>> 16)) & (keys.length - 1);
+        }
+
+        private void resize(int capacity) {
+            int[] oldKeys = keys;
+            int[] oldValues = values;
+            keys = new int[capacity];
+            values = new int[capacity];
+            Arrays.fill(values, NONE);
+            count = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldValues[i] != NONE) {
+                    put(oldKeys[i], oldValues[i]);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package taskB;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Check that the array backend behaves exactly like the object one.
+ *
+ * Random traces are replayed on a MainMemory and an ArrayMemory of the same
+ * size and policy, for every policy. A request that does not fit is retried
+ * after compactFor, some traces compact a little after every operation with
+ * compactStep, and memory is compacted whole now and then. After every
+ * operation the two must have given the same results and print the same
+ * blocks, with the same block count, fragmentation and bytes moved. The first
+ * mismatch of each policy is printed.
+ *
+ * Usage: java taskB.BackendCheck [traces] [seed]
+ */
+public class BackendCheck {
+
+    private static final String[] POLICIES = {"first", "next", "best", "worst", "buddy"};
+
+    /**
+     * Main method to run the check.
+     * @param args Number of traces per policy and the random seed
+     */
+    public static void main(String[] args) {
+        int traces = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 7;
+
+        boolean passed = true;
+        for (String policy : POLICIES) {
+            Random random = new Random(seed);
+            int matched = 0;
+            for (int trace = 0; trace < traces; trace++) {
+                String mismatch = replay(policy, random);
+                if (mismatch != null) {
+                    System.out.printf("%s: trace %d differs, %s%n", policy, trace, mismatch);
+                    break;
+                }
+                matched++;
+            }
+            System.out.printf("%-6s %d of %d traces match%n", policy, matched, traces);
+            passed &= matched == traces;
+        }
+        if (!passed) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Replays one random trace on both backends.
+     * @param policy Placement policy
+     * @param random Source of randomness
+     * @return What differed, or null if nothing did
+     */
+    private static String replay(String policy, Random random) {
+        boolean buddy = policy.equals("buddy");
+        long totalBytes = buddy ? 1L << (9 + random.nextInt(4)) : 256 + random.nextInt(3000);
+        Memory objects = Memory.create("object", totalBytes, policy);
+        Memory arrays = Memory.create("array", totalBytes, policy);
+        long budget = random.nextInt(3) == 0 ? 0 : random.nextInt(200);
+        boolean compacts = !buddy;
+
+        List<Integer> live = new ArrayList<>();
+        for (int i = 1; i < 400; i++) {
+            if (live.isEmpty() || random.nextInt(5) < 3) {
+                long bytes = 1 + random.nextInt(150);
+                boolean placed = objects.insert(i, bytes);
+                if (placed != arrays.insert(i, bytes)) {
+                    return "insert of " + i;
+                }
+                if (!placed && compacts) {
+                    long moved = objects.compactFor(bytes);
+                    if (moved != arrays.compactFor(bytes)) {
+                        return "compactFor before " + i;
+                    }
+                    if (moved >= 0) {
+                        placed = objects.insert(i, bytes);
+                        if (placed != arrays.insert(i, bytes)) {
+                            return "insert of " + i + " after compactFor";
+                        }
+                    }
+                }
+                if (placed) {
+                    live.add(i);
+                }
+            } else {
+                int reference = live.remove(random.nextInt(live.size()));
+                objects.deallocateBlock(reference);
+                arrays.deallocateBlock(reference);
+            }
+
+            if (budget > 0 && objects.compactStep(budget) != arrays.compactStep(budget)) {
+                return "compactStep after " + i;
+            }
+            if (compacts && random.nextInt(60) == 0 && objects.compactMemory() != arrays.compactMemory()) {
+                return "compactMemory after " + i;
+            }
+            String expected = state(objects);
+            String actual = state(arrays);
+            if (!expected.equals(actual)) {
+                return "after " + i + "\nobject:\n" + expected + "\narray:\n" + actual;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Everything the simulation can print about a memory.
+     * @param memory Memory to describe
+     * @return Blocks, block count, fragmentation and bytes moved
+     */
+    private static String state(Memory memory) {
+        return PlacementCheck.printed(memory::printBlocks) + "blocks " + memory.getSize()
+                + ", external " + memory.externalFragmentation()
+                + ", internal " + memory.internalFragmentation()
+                + ", moved " + memory.getBytesMoved();
+    }
+}
@@ -0,0 +1,50 @@
+package taskB;
+
+import java.util.Comparator;
+import java.util.TreeSet;
+
+/**
+ * Best fit: the smallest free block the request fits in, and the one with the
+ * lowest address if several are that size. The free blocks are kept ordered
+ * by size and then address, so the choice is the ceiling of the request.
+ */
+public class BestFitPolicy implements PlacementPolicy {
+
+    private final TreeSet<BlockNode> freeBySize = new TreeSet<>(Comparator
+            .comparingLong((BlockNode node) -> node.getBlock().getSize())
+            .thenComparingLong(node -> node.getBlock().getHole().getStart()));
+
+    // search key, resized for each request
+    private final BlockNode probe = new BlockNode(new Block(null, new Hole(0, 0)), null);
+
+    @Override
+    public String getName() {
+        return "Best Fit";
+    }
+
+    @Override
+    public Fit getFit() {
+        return Fit.BEST;
+    }
+
+    @Override
+    public BlockNode select(long bytes) {
+        probe.getBlock().getHole().setRange(0, bytes - 1);
+        return freeBySize.ceiling(probe);
+    }
+
+    @Override
+    public void addFree(BlockNode node) {
+        freeBySize.add(node);
+    }
+
+    @Override
+    public void removeFree(BlockNode node) {
+        freeBySize.remove(node);
+    }
+
+    @Override
+    public void clear() {
+        freeBySize.clear();
+    }
+}
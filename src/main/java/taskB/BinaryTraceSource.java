@@ -0,0 +1,191 @@
+package taskB;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A trace in a fixed-width binary format, read from a memory-mapped file.
+ *
+ * The file is a 16 byte header, the magic number TRCB, the format version and
+ * the number of records, followed by one 16 byte record per operation: the
+ * reference number and operation as ints and the argument as a long, all
+ * little-endian. Every record is at a known offset, so next decodes the
+ * three numbers straight from the mapped file with no parsing and no
+ * objects. Files larger than one mapping can hold are mapped a window at a
+ * time.
+ *
+ * write makes such a file from any other trace, which is how a CSV trace is
+ * converted.
+ */
+public class BinaryTraceSource implements TraceSource {
+
+    private static final int MAGIC = 0x42435254; // "TRCB" read little-endian
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+    private static final int RECORD_BYTES = 16;
+
+    // records mapped at a time, 1 GB
+    private static final long WINDOW_RECORDS = 1 << 26;
+
+    private final FileChannel channel;
+    private final long records;
+
+    private MappedByteBuffer window;
+    private long windowStart;
+    private long position;
+
+    private int reference_number;
+    private int operation;
+    private long argument;
+
+    /**
+     * Opens a binary trace and checks its header.
+     *
+     * @param file Binary trace file.
+     * @throws IOException If the file cannot be read or is not a binary trace.
+     */
+    public BinaryTraceSource(File file) throws IOException {
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                // read the whole header
+            }
+            if (header.hasRemaining() || header.getInt(0) != MAGIC) {
+                throw new IOException(file + " is not a binary trace");
+            }
+            if (header.getInt(4) != VERSION) {
+                throw new IOException(file + " is version " + header.getInt(4) + " of the binary trace format, not "
+                        + VERSION);
+            }
+            records = header.getLong(8);
+            // compared by division first, so a forged count cannot overflow the size
+            long size = channel.size();
+            if (records < 0 || records > (size - HEADER_BYTES) / RECORD_BYTES
+                    || size != HEADER_BYTES + records * RECORD_BYTES) {
+                throw new IOException(file + " does not hold the " + records + " records its header gives");
+            }
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        rewind();
+    }
+
+    /**
+     * Checks if a file starts like a binary trace.
+     *
+     * @param file File to look at.
+     * @return True if it starts with the magic number.
+     * @throws IOException If the file cannot be read.
+     */
+    public static boolean isBinary(File file) throws IOException {
+        try (FileChannel in = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+            while (magic.hasRemaining() && in.read(magic) >= 0) {
+                // read the whole magic number
+            }
+            return !magic.hasRemaining() && magic.getInt(0) == MAGIC;
+        }
+    }
+
+    /**
+     * Writes the rest of a trace to a file in the binary format.
+     *
+     * @param trace Trace to write, from where it is now.
+     * @param file File to write to.
+     * @return Number of records written.
+     * @throws IOException If the trace cannot be read or the file written.
+     */
+    public static long write(TraceSource trace, File file) throws IOException {
+        try (FileChannel out = FileChannel.open(file.toPath(), StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(MAGIC).putInt(VERSION).putLong(0);
+
+            long count = 0;
+            while (trace.next()) {
+                if (buffer.remaining() < RECORD_BYTES) {
+                    drain(buffer, out);
+                }
+                buffer.putInt(trace.getReference_number());
+                buffer.putInt(trace.getOperation());
+                buffer.putLong(trace.getArgument());
+                count++;
+            }
+            drain(buffer, out);
+
+            //the number of records is only known at the end
+            buffer.putLong(count).flip();
+            out.write(buffer, 8);
+            return count;
+        }
+    }
+
+    private static void drain(ByteBuffer buffer, FileChannel out) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    @Override
+    public boolean next() throws IOException {
+        if (position == records) {
+            return false;
+        }
+        if (position - windowStart == WINDOW_RECORDS) {
+            map(position);
+        }
+        int offset = (int) ((position - windowStart) * RECORD_BYTES);
+        reference_number = window.getInt(offset);
+        operation = window.getInt(offset + 4);
+        argument = window.getLong(offset + 8);
+        position++;
+        return true;
+    }
+
+    @Override
+    public int getReference_number() {
+        return reference_number;
+    }
+
+    @Override
+    public int getOperation() {
+        return operation;
+    }
+
+    @Override
+    public long getArgument() {
+        return argument;
+    }
+
+    @Override
+    public void rewind() throws IOException {
+        position = 0;
+        map(0);
+    }
+
+    /**
+     * Maps the window of records starting at a record.
+     */
+    private void map(long first) throws IOException {
+        long count = Math.min(WINDOW_RECORDS, records - first);
+        window = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_BYTES + first * RECORD_BYTES,
+                count * RECORD_BYTES);
+        window.order(ByteOrder.LITTLE_ENDIAN);
+        windowStart = first;
+    }
+
+    @Override
+    public void close() throws IOException {
+        window = null;
+        channel.close();
+    }
+}
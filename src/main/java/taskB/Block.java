@@ -91,8 +91,8 @@ public class Block {
      */
     public void displayBlock() {
 
-        int start = hole.getStart();
-        int end = hole.getEnd();
+        long start = hole.getStart();
+        long end = hole.getEnd();
 
         String allocated = "free";
 
@@ -108,7 +108,7 @@ public class Block {
      * This method returns the size of the hole for the block.
      * @return hole size
      */
-    public int getSize() {
+    public long getSize() {
         return hole.getSize();
     }
 
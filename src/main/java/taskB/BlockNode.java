@@ -2,13 +2,15 @@ package taskB;
 
 /**
  * This class is used as a node for the linked list
- * That is, we start linking blocks together
+ * That is, we start linking blocks together. The list is linked both ways,
+ * so a block can be joined with either neighbour without walking the list.
  */
 public class BlockNode {
 
-    // current block and a link to the next block
+    // current block and links to the next and previous blocks
     private Block block;
     private BlockNode next;
+    private BlockNode prev;
 
     /**
      * Default constructor
@@ -38,6 +40,15 @@ public class BlockNode {
         next = n;
     }
 
+    /**
+     * Setter for the previous BlockNode link
+     *
+     * @param p previous BlockNode to be linked to
+     */
+    public void setPrev(BlockNode p) {
+        prev = p;
+    }
+
     /**
      * Sets the block of memory for current node.
      *
@@ -56,6 +67,15 @@ public class BlockNode {
         return next;
     }
 
+    /**
+     * Gets the previous BlockNode that's linked.
+     *
+     * @return previous BlockNode linked to current.
+     */
+    public BlockNode getPrev() {
+        return prev;
+    }
+
     /**
      * Getter for the block stored at this BlockNode if one.
      *
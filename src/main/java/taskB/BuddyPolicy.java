@@ -0,0 +1,109 @@
+package taskB;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Binary buddy allocation. Every block is a power of two in size and starts
+ * at a multiple of its size. A request gets the next power of two up; a larger
+ * free block is halved until it is that size, and a freed block only joins
+ * with its buddy, the other half of the block it was split from.
+ *
+ * There is one address-ordered set of free blocks for each size, so a search
+ * looks at no more than one set per power of two. Memory must be a power of
+ * two in size, and blocks cannot be compacted, because moving a block would
+ * break the alignment that buddies are found by.
+ */
+public class BuddyPolicy implements PlacementPolicy {
+
+    // free blocks of size 2^order by start address, for each order
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private final TreeMap<Long, BlockNode>[] freeByOrder = new TreeMap[Long.SIZE];
+
+    public BuddyPolicy() {
+        for (int order = 0; order < freeByOrder.length; order++) {
+            freeByOrder[order] = new TreeMap<>();
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "Buddy";
+    }
+
+    @Override
+    public Fit getFit() {
+        return Fit.BUDDY;
+    }
+
+    @Override
+    public long blockSize(long bytes) {
+        if (bytes <= 1) {
+            return 1;
+        }
+        long size = Long.highestOneBit(bytes - 1) << 1;
+        return size > 0 ? size : Long.MAX_VALUE;
+    }
+
+    @Override
+    public BlockNode select(long bytes) {
+        if (Long.bitCount(bytes) != 1) {
+            return null;
+        }
+        for (int order = Long.numberOfTrailingZeros(bytes); order < freeByOrder.length; order++) {
+            Map.Entry<Long, BlockNode> first = freeByOrder[order].firstEntry();
+            if (first != null) {
+                return first.getValue();
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void addFree(BlockNode node) {
+        freeByOrder[orderOf(node)].put(node.getBlock().getHole().getStart(), node);
+    }
+
+    @Override
+    public void removeFree(BlockNode node) {
+        long size = node.getBlock().getSize();
+        if (size > 0 && Long.bitCount(size) == 1) {
+            freeByOrder[Long.numberOfTrailingZeros(size)].remove(node.getBlock().getHole().getStart(), node);
+        }
+    }
+
+    @Override
+    public void clear() {
+        for (TreeMap<Long, BlockNode> free : freeByOrder) {
+            free.clear();
+        }
+    }
+
+    @Override
+    public long splitSize(long size, long bytes) {
+        return size / 2;
+    }
+
+    @Override
+    public boolean canMerge(long start, long firstSize, long secondSize) {
+        return firstSize == secondSize && start % (2 * firstSize) == 0;
+    }
+
+    @Override
+    public long usableBytes(long bytes) {
+        return Long.highestOneBit(bytes);
+    }
+
+    @Override
+    public boolean allowsCompaction() {
+        return false;
+    }
+
+    private static int orderOf(BlockNode node) {
+        long size = node.getBlock().getSize();
+        if (size <= 0 || Long.bitCount(size) != 1 || node.getBlock().getHole().getStart() % size != 0) {
+            throw new IllegalStateException("Buddy allocation needs memory whose size is a power of two");
+        }
+        return Long.numberOfTrailingZeros(size);
+    }
+}
@@ -0,0 +1,214 @@
+package taskB;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Check of compactFor, compactStep and compactMemory on random traces, for
+ * every policy that allows compaction and both backends.
+ *
+ * When a request does not fit, the bytes compactFor moves must be the
+ * cheapest packing of a run of blocks between two free blocks, found here by
+ * trying every run, and the request must then fit; if compactFor gives up,
+ * there must not be enough free memory for the request at all. Some traces
+ * also compact a little after every operation with compactStep, and memory
+ * is compacted whole now and then. After every operation the printed blocks
+ * must cover memory from 0 without gaps, no two free blocks may be next to
+ * each other, and the block count, the free bytes and the processes in
+ * memory must agree with them. The first failure of each policy is printed.
+ * That each policy's index picks the same block as a scan of the list is
+ * checked by PlacementCheck.
+ *
+ * Usage: java taskB.CompactionCheck [traces] [seed]
+ */
+public class CompactionCheck {
+
+    private static final String[] POLICIES = {"first", "next", "best", "worst"};
+    private static final String[] BACKENDS = {"object", "array"};
+
+    /**
+     * Main method to run the check.
+     * @param args Number of traces per policy and backend, and the random seed
+     */
+    public static void main(String[] args) {
+        int traces = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 5;
+
+        boolean passed = true;
+        for (String backend : BACKENDS) {
+            for (String policy : POLICIES) {
+                Random random = new Random(seed);
+                int matched = 0;
+                for (int trace = 0; trace < traces; trace++) {
+                    String failure = replay(Memory.create(backend, 512 + random.nextInt(2048), policy), random);
+                    if (failure != null) {
+                        System.out.printf("%s %s: trace %d, %s%n", backend, policy, trace, failure);
+                        break;
+                    }
+                    matched++;
+                }
+                System.out.printf("%-6s %-6s %d of %d traces pass%n", backend, policy, matched, traces);
+                passed &= matched == traces;
+            }
+        }
+        if (!passed) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Replays one random trace, checking memory after every operation.
+     * @param memory Empty memory
+     * @param random Source of randomness
+     * @return What went wrong, or null if nothing did
+     */
+    private static String replay(Memory memory, Random random) {
+        long budget = random.nextInt(3) == 0 ? 0 : random.nextInt(200);
+        Set<Long> live = new HashSet<>();
+        List<Integer> order = new ArrayList<>();
+
+        for (int i = 1; i < 300; i++) {
+            if (order.isEmpty() || random.nextInt(5) < 3) {
+                long bytes = 1 + random.nextInt(150);
+                boolean placed = memory.insert(i, bytes);
+                if (!placed) {
+                    long cheapest = cheapestRun(blocks(memory), bytes);
+                    long moved = memory.compactFor(bytes);
+                    if (moved != cheapest) {
+                        return "compactFor(" + bytes + ") moved " + moved + ", the cheapest run moves " + cheapest;
+                    }
+                    if (moved >= 0) {
+                        placed = memory.insert(i, bytes);
+                        if (!placed) {
+                            return "request " + i + " still does not fit after compactFor";
+                        }
+                    } else if (memory.externalFragmentation() >= bytes) {
+                        return "compactFor gave up with " + memory.externalFragmentation() + " bytes free";
+                    }
+                }
+                if (placed) {
+                    live.add((long) i);
+                    order.add(i);
+                }
+            } else {
+                int reference = order.remove(random.nextInt(order.size()));
+                live.remove((long) reference);
+                memory.deallocateBlock(reference);
+            }
+
+            if (budget > 0) {
+                memory.compactStep(budget);
+            }
+            if (random.nextInt(50) == 0) {
+                memory.compactMemory();
+            }
+            String failure = consistency(memory, live);
+            if (failure != null) {
+                return failure + " after operation " + i + "\n" + PlacementCheck.printed(memory::printBlocks);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Checks the printed blocks against each other and against the memory's
+     * own counts.
+     * @param memory Memory to check
+     * @param live Reference numbers of the processes that should be in memory
+     * @return What is wrong, or null if nothing is
+     */
+    private static String consistency(Memory memory, Set<Long> live) {
+        List<long[]> blocks = blocks(memory);
+        long address = 0;
+        long free = 0;
+        boolean lastFree = false;
+        Set<Long> placed = new HashSet<>();
+        for (long[] block : blocks) {
+            if (block[0] != address) {
+                return "block at " + block[0] + " where " + address + " was expected";
+            }
+            boolean isFree = block[2] == -1;
+            if (isFree && lastFree) {
+                return "two free blocks next to each other at " + block[0];
+            }
+            if (isFree) {
+                free += block[1] - block[0];
+            } else {
+                placed.add(block[2]);
+            }
+            lastFree = isFree;
+            address = block[1];
+        }
+        if (address != memory.getTotalBytes()) {
+            return "blocks end at " + address + " in " + memory.getTotalBytes() + " bytes";
+        }
+        if (blocks.size() != memory.getSize()) {
+            return blocks.size() + " blocks printed, getSize() gives " + memory.getSize();
+        }
+        if (free != memory.externalFragmentation()) {
+            return free + " bytes free, externalFragmentation() gives " + memory.externalFragmentation();
+        }
+        if (!placed.equals(live)) {
+            return "processes " + placed + " in memory, expected " + live;
+        }
+        return null;
+    }
+
+    /**
+     * Tries every run of blocks that starts and ends with a free block and
+     * frees enough for a request when packed.
+     * @param blocks Blocks of memory
+     * @param bytes Size of the request
+     * @return Allocated bytes inside the cheapest such run, or -1 if there is none
+     */
+    private static long cheapestRun(List<long[]> blocks, long bytes) {
+        long cheapest = -1;
+        for (int first = 0; first < blocks.size(); first++) {
+            if (blocks.get(first)[2] != -1) {
+                continue;
+            }
+            long free = 0;
+            long moved = 0;
+            long pending = 0;
+            for (int last = first; last < blocks.size(); last++) {
+                long[] block = blocks.get(last);
+                long size = block[1] - block[0];
+                if (block[2] != -1) {
+                    pending += size;
+                    continue;
+                }
+                free += size;
+                moved += pending;
+                pending = 0;
+                if (free >= bytes && (cheapest < 0 || moved < cheapest)) {
+                    cheapest = moved;
+                }
+            }
+        }
+        return cheapest;
+    }
+
+    /**
+     * Reads the blocks back from what printBlocks prints.
+     * @param memory Memory to read
+     * @return Start, end and reference number, or -1 if free, of every block
+     */
+    private static List<long[]> blocks(Memory memory) {
+        List<long[]> blocks = new ArrayList<>();
+        for (String line : PlacementCheck.printed(memory::printBlocks).split("\n")) {
+            if (!line.startsWith("[")) {
+                continue;
+            }
+            int dash = line.indexOf('-');
+            int close = line.indexOf(')');
+            long start = Long.parseLong(line.substring(1, dash));
+            long end = Long.parseLong(line.substring(dash + 1, close));
+            long reference = line.endsWith("free") ? -1 : Long.parseLong(line.substring(line.lastIndexOf(' ') + 1));
+            blocks.add(new long[]{start, end, reference});
+        }
+        return blocks;
+    }
+}
@@ -0,0 +1,83 @@
+package taskB;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Check that ConcurrentMemory loses no memory when several threads place and
+ * free blocks at once.
+ *
+ * For every policy and both backends, a number of threads each replay their own random mix of
+ * allocations and frees, with frequent requests large enough to go to the
+ * global arena, and then free whatever they still hold. Once every thread is
+ * done, all of memory must be free again.
+ *
+ * Usage: java taskB.ConcurrentCheck [threads] [operations per thread] [memory]
+ */
+public class ConcurrentCheck {
+
+    private static final String[] POLICIES = {"first", "next", "best", "worst", "buddy"};
+    private static final String[] BACKENDS = {"object", "array"};
+
+    /**
+     * Main method to run the check.
+     * @param args Number of threads, operations per thread and size of memory
+     * @throws InterruptedException If interrupted while waiting for the threads
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int operations = args.length > 1 ? Integer.parseInt(args[1]) : 200_000;
+        long totalBytes = args.length > 2 ? TaskB.parseSize(args[2]) : 64 * 1024;
+
+        boolean passed = true;
+        for (String backend : BACKENDS) {
+            for (String policy : POLICIES) {
+                ConcurrentMemory memory = new ConcurrentMemory(totalBytes, threads, policy, backend);
+                Thread[] workers = new Thread[threads];
+                for (int t = 0; t < threads; t++) {
+                    int first = t * operations;
+                    Random random = new Random(t);
+                    workers[t] = new Thread(() -> replay(memory, first, operations, random));
+                    workers[t].start();
+                }
+                for (Thread worker : workers) {
+                    worker.join();
+                }
+
+                long free = memory.externalFragmentation();
+                System.out.printf("%-6s %-6s %d of %d bytes free again%n", backend, policy, free,
+                        memory.getTotalBytes());
+                passed &= free == memory.getTotalBytes();
+            }
+        }
+        if (!passed) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Replays one thread's operations and then frees what it still holds.
+     * @param memory Memory shared by the threads
+     * @param first Reference number before this thread's first one, so that
+     *              threads never share a reference number
+     * @param operations Number of operations
+     * @param random Source of randomness
+     */
+    private static void replay(ConcurrentMemory memory, int first, int operations, Random random) {
+        List<Integer> live = new ArrayList<>();
+        for (int i = 1; i <= operations; i++) {
+            if (live.isEmpty() || random.nextBoolean()) {
+                long bytes = random.nextInt(10) == 0 ? 5 * 1024 : 1 + random.nextInt(512);
+                if (memory.insert(new Process(first + i, 1, bytes))) {
+                    live.add(first + i);
+                }
+            } else {
+                memory.deallocateBlock(live.remove(random.nextInt(live.size())));
+            }
+        }
+        for (int reference : live) {
+            memory.deallocateBlock(reference);
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package taskB;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Memory shared by many threads, split into arenas so that they rarely wait
+ * for each other.
+ *
+ * Each thread is given an arena of its own, a Memory with its own lock,
+ * and places its requests there. Requests of LARGE_REQUEST bytes or more, and
+ * requests that do not fit in the thread's arena even after compaction, go to
+ * one global arena that every thread shares. A map from reference number to
+ * arena lets any thread free any block, taking only the lock of the arena
+ * that holds it.
+ *
+ * Arena sizes are cut down to what the policy can manage, a power of two
+ * for buddy allocation.
+ *
+ * The address space is not shared out: every arena, the global one too, is
+ * a separate Memory whose addresses start at 0, so blocks in different arenas
+ * can have the same addresses. Laid end to end, thread arena i would start at
+ * i times the arena size and the global arena after the last of them, but no
+ * address here is ever given relative to the whole memory.
+ */
+public class ConcurrentMemory {
+
+    // requests this size or larger go straight to the global arena
+    public static final long LARGE_REQUEST = 4 * 1024;
+
+    private final Memory[] arenas;
+    private final Memory global;
+    private final Map<Integer, Memory> owners = new ConcurrentHashMap<>();
+
+    private final AtomicInteger nextArena = new AtomicInteger();
+    private final ThreadLocal<Memory> arenaOfThread;
+    private final AtomicLong fallbacks = new AtomicLong();
+
+    /**
+     * Constructor, three quarters of memory shared between the thread arenas
+     * and the rest for the global arena
+     *
+     * @param totalBytes Size of memory.
+     * @param arenaCount Number of thread arenas.
+     * @param policyName Placement policy used in every arena.
+     * @param backend How each arena stores its blocks, see Memory.create.
+     */
+    public ConcurrentMemory(long totalBytes, int arenaCount, String policyName, String backend) {
+        if (arenaCount <= 0) {
+            throw new IllegalArgumentException("There must be at least one arena");
+        }
+        PlacementPolicy policy = PlacementPolicy.forName(policyName);
+        long arenaBytes = policy.usableBytes(totalBytes / 4 * 3 / arenaCount);
+        long globalBytes = policy.usableBytes(totalBytes - arenaCount * arenaBytes);
+        if (arenaBytes <= 0 || globalBytes <= 0) {
+            throw new IllegalArgumentException("Memory is too small for " + arenaCount + " arenas");
+        }
+
+        global = Memory.create(backend, globalBytes, policyName);
+        arenas = new Memory[arenaCount];
+        for (int i = 0; i < arenaCount; i++) {
+            arenas[i] = Memory.create(backend, arenaBytes, policyName);
+        }
+        arenaOfThread = ThreadLocal.withInitial(
+                () -> arenas[Math.floorMod(nextArena.getAndIncrement(), arenas.length)]);
+    }
+
+    /**
+     * Places a process, in the calling thread's arena if it is small enough
+     * and fits there, otherwise in the global arena.
+     *
+     * @param proc Process to be placed in memory.
+     * @return True if successfully placed, false if it failed.
+     */
+    public boolean insert(Process proc) {
+        if (proc.getArgument() < LARGE_REQUEST) {
+            Memory arena = arenaOfThread.get();
+            if (insert(arena, proc)) {
+                return true;
+            }
+            fallbacks.incrementAndGet();
+        }
+        return insert(global, proc);
+    }
+
+    /**
+     * Places a process in one arena, compacting the arena if that makes room.
+     */
+    private boolean insert(Memory arena, Process proc) {
+        synchronized (arena) {
+            boolean placed = arena.insert(proc);
+            if (!placed && arena.getPolicy().allowsCompaction() && arena.compactFor(proc.getArgument()) >= 0) {
+                placed = arena.insert(proc);
+            }
+            if (placed) {
+                owners.put(proc.getReference_number(), arena);
+            }
+            return placed;
+        }
+    }
+
+    /**
+     * De-allocates the block for the provided process_number, from whichever
+     * arena holds it.
+     *
+     * @param process_number Process to be de-allocated.
+     */
+    public void deallocateBlock(int process_number) {
+        Memory arena = owners.remove(process_number);
+        if (arena != null) {
+            synchronized (arena) {
+                arena.deallocateBlock(process_number);
+            }
+        }
+    }
+
+    /**
+     * Gets the size of every arena together, which can be less than the
+     * memory asked for when the policy cuts arena sizes down.
+     *
+     * @return total bytes of the arenas
+     */
+    public long getTotalBytes() {
+        long totalBytes = global.getTotalBytes();
+        for (Memory arena : arenas) {
+            totalBytes += arena.getTotalBytes();
+        }
+        return totalBytes;
+    }
+
+    /**
+     * Gets the number of small requests that did not fit in their thread's
+     * arena and were tried in the global arena instead.
+     *
+     * @return number of fallbacks
+     */
+    public long getFallbacks() {
+        return fallbacks.get();
+    }
+
+    /**
+     * Gets the free bytes in every arena together.
+     *
+     * @return external fragmentation of memory.
+     */
+    public long externalFragmentation() {
+        long externalFragmentation = 0;
+        for (Memory arena : arenas) {
+            synchronized (arena) {
+                externalFragmentation += arena.externalFragmentation();
+            }
+        }
+        synchronized (global) {
+            externalFragmentation += global.externalFragmentation();
+        }
+        return externalFragmentation;
+    }
+}
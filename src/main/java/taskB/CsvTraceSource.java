@@ -0,0 +1,88 @@
+package taskB;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.IOException;
+
+/**
+ * A trace read line by line from a CSV file such as taskB.csv, where each
+ * line is reference_number,operation,argument. Lines are split by hand
+ * rather than with Scanner and String.split, so a line makes no objects
+ * besides the String it is read into.
+ */
+public class CsvTraceSource implements TraceSource {
+
+    private final File file;
+    private BufferedReader reader;
+    private long lineNumber;
+
+    private int reference_number;
+    private int operation;
+    private long argument;
+
+    /**
+     * Opens a CSV trace.
+     *
+     * @param file CSV file to read.
+     * @throws FileNotFoundException If the file does not exist.
+     */
+    public CsvTraceSource(File file) throws FileNotFoundException {
+        this.file = file;
+        this.reader = new BufferedReader(new FileReader(file));
+    }
+
+    @Override
+    public boolean next() throws IOException {
+        String line;
+        do {
+            line = reader.readLine();
+            if (line == null) {
+                return false;
+            }
+            lineNumber++;
+        } while (line.isEmpty());
+
+        int first = line.indexOf(',');
+        int second = first < 0 ? -1 : line.indexOf(',', first + 1);
+        if (second < 0) {
+            throw new IOException(file + " line " + lineNumber + " is not reference,operation,argument: " + line);
+        }
+        try {
+            reference_number = Integer.parseInt(line, 0, first, 10);
+            operation = Integer.parseInt(line, first + 1, second, 10);
+            argument = Long.parseLong(line, second + 1, line.length(), 10);
+        } catch (NumberFormatException e) {
+            throw new IOException(file + " line " + lineNumber + " is not reference,operation,argument: " + line);
+        }
+        return true;
+    }
+
+    @Override
+    public int getReference_number() {
+        return reference_number;
+    }
+
+    @Override
+    public int getOperation() {
+        return operation;
+    }
+
+    @Override
+    public long getArgument() {
+        return argument;
+    }
+
+    @Override
+    public void rewind() throws IOException {
+        reader.close();
+        reader = new BufferedReader(new FileReader(file));
+        lineNumber = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -0,0 +1,121 @@
+package taskB;
+
+import java.util.Random;
+
+/**
+ * A distribution of whole numbers, used by TraceGenerator for the sizes of
+ * allocations and for how many operations each one lives.
+ */
+public interface Distribution {
+
+    String USAGE = "Distributions: uniform:min:max, exponential:mean,"
+            + " bimodal:mean:mean:fraction, powerlaw:min:max:alpha";
+
+    /**
+     * Draws a number.
+     * @param random Source of randomness
+     * @return A number of at least 1
+     */
+    long sample(Random random);
+
+    /**
+     * Every number from min to max equally likely.
+     * @param min Smallest number
+     * @param max Largest number
+     * @return The distribution
+     */
+    static Distribution uniform(long min, long max) {
+        if (min < 1 || max < min) {
+            throw new IllegalArgumentException("uniform needs 1 <= min <= max");
+        }
+        return random -> min + (long) (random.nextDouble() * (max - min + 1));
+    }
+
+    /**
+     * Mostly small numbers, and fewer large ones the larger they are.
+     * @param mean Average number
+     * @return The distribution
+     */
+    static Distribution exponential(double mean) {
+        if (!(mean >= 1)) {
+            throw new IllegalArgumentException("exponential needs a mean of at least 1");
+        }
+        return random -> Math.max(1, Math.round(-mean * Math.log(1 - random.nextDouble())));
+    }
+
+    /**
+     * Two exponential distributions mixed together, such as many small
+     * allocations and a few large ones.
+     * @param first Mean of the first
+     * @param second Mean of the second
+     * @param fraction How often the first is drawn from, between 0 and 1
+     * @return The distribution
+     */
+    static Distribution bimodal(double first, double second, double fraction) {
+        if (!(fraction >= 0 && fraction <= 1)) {
+            throw new IllegalArgumentException("bimodal needs a fraction between 0 and 1");
+        }
+        Distribution low = exponential(first);
+        Distribution high = exponential(second);
+        return random -> random.nextDouble() < fraction ? low.sample(random) : high.sample(random);
+    }
+
+    /**
+     * Bounded Pareto distribution: the chance of a number falls off as a
+     * power of it, so there is a long tail of large numbers.
+     * @param min Smallest number
+     * @param max Largest number
+     * @param alpha How fast the chance falls off, larger for fewer large numbers
+     * @return The distribution
+     */
+    static Distribution powerLaw(long min, long max, double alpha) {
+        if (min < 1 || max < min || !(alpha > 0)) {
+            throw new IllegalArgumentException("powerlaw needs 1 <= min <= max and alpha > 0");
+        }
+        double ratio = 1 - Math.pow((double) min / max, alpha);
+        return random -> Math.min(max,
+                Math.round(min / Math.pow(1 - random.nextDouble() * ratio, 1 / alpha)));
+    }
+
+    /**
+     * Makes a distribution from its command line form, the name and its
+     * numbers separated by colons, such as uniform:1:512.
+     * @param spec Name and numbers
+     * @return The distribution
+     * @throws IllegalArgumentException If the name or numbers are not valid
+     */
+    static Distribution forName(String spec) {
+        String[] parts = spec.split(":");
+        try {
+            switch (parts[0]) {
+                case "uniform":
+                    if (parts.length == 3) {
+                        return uniform(TaskB.parseSize(parts[1]), TaskB.parseSize(parts[2]));
+                    }
+                    break;
+                case "exponential":
+                    if (parts.length == 2) {
+                        return exponential(Double.parseDouble(parts[1]));
+                    }
+                    break;
+                case "bimodal":
+                    if (parts.length == 4) {
+                        return bimodal(Double.parseDouble(parts[1]), Double.parseDouble(parts[2]),
+                                Double.parseDouble(parts[3]));
+                    }
+                    break;
+                case "powerlaw":
+                    if (parts.length == 4) {
+                        return powerLaw(TaskB.parseSize(parts[1]), TaskB.parseSize(parts[2]),
+                                Double.parseDouble(parts[3]));
+                    }
+                    break;
+                default:
+                    break;
+            }
+        } catch (NumberFormatException e) {
+            // reported below
+        }
+        throw new IllegalArgumentException("Invalid distribution " + spec + ". " + USAGE);
+    }
+}
@@ -0,0 +1,39 @@
+package taskB;
+
+/**
+ * First fit: the free block with the lowest address that the request fits in.
+ */
+public class FirstFitPolicy implements PlacementPolicy {
+
+    private final FreeBlockTree free = new FreeBlockTree();
+
+    @Override
+    public String getName() {
+        return "First Fit";
+    }
+
+    @Override
+    public Fit getFit() {
+        return Fit.FIRST;
+    }
+
+    @Override
+    public BlockNode select(long bytes) {
+        return free.first(Long.MIN_VALUE, bytes);
+    }
+
+    @Override
+    public void addFree(BlockNode node) {
+        free.add(node);
+    }
+
+    @Override
+    public void removeFree(BlockNode node) {
+        free.remove(node);
+    }
+
+    @Override
+    public void clear() {
+        free.clear();
+    }
+}
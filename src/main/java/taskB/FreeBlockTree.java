@@ -0,0 +1,157 @@
+package taskB;
+
+import java.util.Random;
+
+/**
+ * The free blocks in address order, for first fit and next fit.
+ *
+ * This is a treap keyed by start address in which every node also holds the
+ * size of the largest block in its subtree. A search for the first block of
+ * at least some size then skips every subtree whose largest block is too
+ * small, so it takes O(log n) steps instead of a walk along the list.
+ */
+public class FreeBlockTree {
+
+    private static final class Node {
+        final BlockNode block;
+        final long start;
+        final long size;
+        final int priority;
+        long max;
+        Node left;
+        Node right;
+
+        Node(BlockNode block, int priority) {
+            this.block = block;
+            this.start = block.getBlock().getHole().getStart();
+            this.size = block.getBlock().getSize();
+            this.priority = priority;
+            this.max = size;
+        }
+
+        void update() {
+            max = size;
+            if (left != null && left.max > max) max = left.max;
+            if (right != null && right.max > max) max = right.max;
+        }
+    }
+
+    private final Random priorities = new Random(1);
+    private Node root;
+
+    /**
+     * Adds a free block.
+     * @param block Free block, not already in the tree
+     */
+    public void add(BlockNode block) {
+        root = insert(root, new Node(block, priorities.nextInt()));
+    }
+
+    /**
+     * Removes a free block. Does nothing if it is not in the tree.
+     * @param block Block to remove, with the same start address it was added with
+     */
+    public void remove(BlockNode block) {
+        root = delete(root, block);
+    }
+
+    public void clear() {
+        root = null;
+    }
+
+    /**
+     * Finds the free block with the lowest address at or after an address
+     * that is at least some size.
+     * @param from Lowest start address to consider
+     * @param bytes Size needed
+     * @return The block, or null if there is none
+     */
+    public BlockNode first(long from, long bytes) {
+        Node found = find(root, from, bytes);
+        return found == null ? null : found.block;
+    }
+
+    private static Node find(Node node, long from, long bytes) {
+        if (node == null || node.max < bytes) {
+            return null;
+        }
+        if (node.start < from) {
+            return find(node.right, from, bytes);
+        }
+        Node left = find(node.left, from, bytes);
+        if (left != null) {
+            return left;
+        }
+        if (node.size >= bytes) {
+            return node;
+        }
+        return find(node.right, from, bytes);
+    }
+
+    private static Node insert(Node node, Node added) {
+        if (node == null) {
+            return added;
+        }
+        if (added.start < node.start) {
+            node.left = insert(node.left, added);
+            if (node.left.priority > node.priority) node = rotateRight(node);
+        } else {
+            node.right = insert(node.right, added);
+            if (node.right.priority > node.priority) node = rotateLeft(node);
+        }
+        node.update();
+        return node;
+    }
+
+    private static Node delete(Node node, BlockNode block) {
+        if (node == null) {
+            return null;
+        }
+        long start = block.getBlock().getHole().getStart();
+        if (node.block == block) {
+            node = join(node.left, node.right);
+        } else if (start < node.start) {
+            node.left = delete(node.left, block);
+        } else if (start == node.start) {
+            // only empty blocks share an address, and rotations can put them either side
+            node.left = delete(node.left, block);
+            node.right = delete(node.right, block);
+        } else {
+            node.right = delete(node.right, block);
+        }
+        if (node != null) node.update();
+        return node;
+    }
+
+    /**
+     * Joins two treaps where every address in the first is lower.
+     */
+    private static Node join(Node left, Node right) {
+        if (left == null) return right;
+        if (right == null) return left;
+        if (left.priority > right.priority) {
+            left.right = join(left.right, right);
+            left.update();
+            return left;
+        }
+        right.left = join(left, right.left);
+        right.update();
+        return right;
+    }
+
+    private static Node rotateRight(Node node) {
+        Node top = node.left;
+        node.left = top.right;
+        top.right = node;
+        node.update();
+        return top;
+    }
+
+    private static Node rotateLeft(Node node) {
+        Node top = node.right;
+        node.right = top.left;
+        top.left = node;
+        node.update();
+        return top;
+    }
+}
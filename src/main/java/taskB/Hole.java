@@ -7,8 +7,8 @@ public class Hole {
 
 
     // base and limit values
-    private int start;
-    private int end;
+    private long start;
+    private long end;
 
     /**
      * Default constructor.
@@ -24,18 +24,18 @@ public class Hole {
      * @param start start byte of the hole.
      * @param end end byte of the hole.
      */
-    Hole(int start, int end) {
+    Hole(long start, long end) {
         this.start = start;
         this.end = end;
     }
 
     // Getters for the start and end of the hole
 
-    public int getStart() {
+    public long getStart() {
         return this.start;
     }
 
-    public int getEnd() {
+    public long getEnd() {
         return this.end;
     }
 
@@ -43,7 +43,7 @@ public class Hole {
      * This method returns the size of the hole.
      * @return hole size
      */
-    int getSize() {
+    long getSize() {
         return (end - start) + 1;
     }
 
@@ -52,7 +52,7 @@ public class Hole {
      * @param start start byte of the hole
      * @param end end byte of the hole
      */
-    public void setRange(int start, int end) {
+    public void setRange(long start, long end) {
         this.start = start;
         this.end = end;
     }
@@ -1,23 +1,102 @@
 package taskB;
 
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  * This class main purpose is to be a linked list for the current blocks of
  * memory that are placed or free for the simulation of First Fit, Best Fit,
  * and Worst Fit memory allocation methods.
+ *
+ * Which free block a process goes in is up to the PlacementPolicy, which
+ * keeps its own index of the free blocks. Next to the list this class keeps
+ * the allocated blocks by reference number, and the list is linked both
+ * ways, so freeing a block finds it and joins it with its neighbours in O(1).
+ * No operation walks the list; the only other cost is updating the policy's
+ * index, which is O(log n) in the number of blocks for the policies here.
+ *
+ * When a request does not fit, compactFor packs the cheapest run of blocks
+ * between two free blocks that opens a hole big enough for it, rather than
+ * moving every block. Compaction can also
+ * run a little at a time between requests with compactStep, which slides
+ * blocks down towards the start of memory within a budget of bytes per call.
  */
-public class MainMemory {
+public class MainMemory implements Memory {
 
     private BlockNode start;
     private BlockNode end;
     private int size;
 
+    private final long totalBytes;
+    private final PlacementPolicy policy;
+    private final Map<Integer, BlockNode> allocated = new HashMap<>();
+
+    // lowest block that compactStep has still to look at, or null if memory
+    // is packed, and the bytes it may move before it has to wait for more budget
+    private BlockNode cursor;
+    private long credit;
+    private long bytesMoved;
+
     /**
-     * Constructor, initialize linked list
+     * Constructor, initialize linked list for best fit
      */
     public MainMemory() {
+        this(TaskB.TOTAL_BYTES, new BestFitPolicy());
+    }
+
+    /**
+     * Constructor, initialize linked list for best fit
+     *
+     * @param totalBytes Size of memory.
+     */
+    public MainMemory(long totalBytes) {
+        this(totalBytes, new BestFitPolicy());
+    }
+
+    /**
+     * Constructor, initialize linked list
+     *
+     * @param policy Placement policy, used by this memory only.
+     */
+    public MainMemory(PlacementPolicy policy) {
+        this(TaskB.TOTAL_BYTES, policy);
+    }
+
+    /**
+     * Constructor, initialize linked list
+     *
+     * @param totalBytes Size of memory.
+     * @param policy Placement policy, used by this memory only.
+     */
+    public MainMemory(long totalBytes, PlacementPolicy policy) {
+        if (totalBytes <= 0) {
+            throw new IllegalArgumentException("Memory size must be positive");
+        }
         start = null;
         end = null;
         size = 0;
+        this.totalBytes = totalBytes;
+        this.policy = policy;
+    }
+
+    /**
+     * Gets the size of memory
+     *
+     * @return total bytes, free or allocated
+     */
+    @Override
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * Gets the placement policy
+     *
+     * @return policy that chooses where processes go
+     */
+    @Override
+    public PlacementPolicy getPolicy() {
+        return policy;
     }
 
     /**
@@ -34,6 +113,7 @@ public class MainMemory {
      *
      * @return size of linked list
      */
+    @Override
     public int getSize() {
         return size;
     }
@@ -52,95 +132,77 @@ public class MainMemory {
             end = start;
         } else {
             nptr.setNext(start);
+            start.setPrev(nptr);
             start = nptr;
         }
+        addToIndex(nptr);
     }
 
     /**
-     * Best fit insert, this method goes through the linked list finding
-     * the best place it can insert the block into memory.
+     * Places a process in the free block chosen by the policy, at the start
+     * of it, splitting off the rest of the block as free memory.
      *
      * @param proc Process to be placed in memory.
      * @return True if successfully placed, false if it failed.
      */
-    public boolean bestFitInsert(Process proc) {
-        Block block = new Block(proc);
-        BlockNode ptr = new BlockNode(block, null);
-
+    @Override
+    public boolean insert(Process proc) {
+        if (!proc.isAllocating()) {
+            return false;
+        }
         if (start == null) {
-            start = ptr;
-            end = start;
-            return true;
-        } else {
-            BlockNode curr = start;
-            int index = -1;
-            int min = 5000;
-            int i = 0;
-
-            //look at all available slots/holes in memory
-            //select the position for the smallest available block of memory that is suitable
-            while (curr != null) {
-
-                if (curr.getBlock().getSize() >= proc.getArgument()) {
-                    if (curr.getBlock().canPlace(proc)) {
-                        if (curr.getBlock().getSize() < min) {
-                            index = i;
-                            min = curr.getBlock().getSize();
-                        }
-
-                    }
-                }
-                curr = curr.getNext();
-                i++;
-            }
-
-            //if no position was found return false
-            if (index == -1) {
-                return false;
-            }
-
-            //look at all blocks/holes in memory until you get to the index position
-            //select the first available position of suitable size for block
-            i = 0;
-            curr = start;
-            while (curr != null) {
-
-                if (i == index) {
-
-                    //enough available space in memory identified
-                    if (curr.getBlock().canPlace(block.getProcess())) {
-
-                        //get the end memory location for available block curr
-                        int end = curr.getBlock().getHole().getEnd();
-
-                        //add the process in memory
-                        curr.getBlock().setProcess(block.getProcess());
+            insertAtStart(new Block(null, new Hole(0, totalBytes - 1)));
+        }
 
-                        //take only what we need from memory
-                        int block_start = curr.getBlock().getHole().getStart();
-                        int memory_needs = block.getProcess().getArgument();
-                        curr.getBlock().getHole().setRange(block_start, block_start + memory_needs - 1);
+        //available block of memory chosen by the policy
+        long memory_needs = policy.blockSize(proc.getArgument());
+        BlockNode curr = policy.select(memory_needs);
 
-                        //create a new block with the rest of memory we don't need
-                        //notice curr.getBlock().getHole().getEnd() was changed
+        //if no position was found return false
+        if (curr == null) {
+            return false;
+        }
+        policy.removeFree(curr);
 
-                        if (curr.getBlock().getHole().getEnd() < end) {
-                            BlockNode newBlock = new BlockNode(
-                                    new Block(null, new Hole(curr.getBlock().getHole().getEnd() + 1, end)),
-                                    curr.getNext());
+        //take only what we need from memory, the policy may split more than once
+        while (curr.getBlock().getSize() > memory_needs) {
+            split(curr, policy.splitSize(curr.getBlock().getSize(), memory_needs));
+        }
 
-                            curr.setNext(newBlock);
-                        }
-                        size++;
-                        return true;
-                    }
-                }
+        //add the process in memory
+        curr.getBlock().setProcess(proc);
+        allocated.put(proc.getReference_number(), curr);
+        return true;
+    }
 
-                i++;
-                curr = curr.getNext();
-            }
-            return false;
+    /**
+     * Splits a block in two, the second part becoming a new free block.
+     *
+     * @param node Block to split, not in the policy's index.
+     * @param keep Size of the first part.
+     */
+    private void split(BlockNode node, long keep) {
+        //get the end memory location for the block
+        long end = node.getBlock().getHole().getEnd();
+        long block_start = node.getBlock().getHole().getStart();
+        node.getBlock().getHole().setRange(block_start, block_start + keep - 1);
+
+        //create a new block with the rest of memory we don't need
+        //notice node.getBlock().getHole().getEnd() was changed
+        BlockNode newBlock = new BlockNode(
+                new Block(null, new Hole(node.getBlock().getHole().getEnd() + 1, end)),
+                node.getNext());
+
+        newBlock.setPrev(node);
+        if (node.getNext() != null) {
+            node.getNext().setPrev(newBlock);
+        }
+        node.setNext(newBlock);
+        if (this.end == node) {
+            this.end = newBlock;
         }
+        addToIndex(newBlock);
+        size++;
     }
 
     /**
@@ -154,27 +216,58 @@ public class MainMemory {
 
             BlockNode next = ptr.getNext();
 
-            if (ptr.getBlock().getProcess() == null && next.getBlock().getProcess() == null) {
-                int start = ptr.getBlock().getHole().getStart();
-                int end = next.getBlock().getHole().getEnd();
-                ptr.getBlock().getHole().setRange(start, end);
-                ptr.setNext(next.getNext());
-                size--;
+            if (ptr.getBlock().getProcess() == null && next.getBlock().getProcess() == null
+                    && canMerge(ptr, next)) {
+                merge(ptr, next);
+                policy.addFree(ptr);
                 continue;
             }
             ptr = ptr.getNext();
         }
     }
 
+    private boolean canMerge(BlockNode first, BlockNode second) {
+        return policy.canMerge(first.getBlock().getHole().getStart(), first.getBlock().getSize(),
+                second.getBlock().getSize());
+    }
+
+    /**
+     * Joins a free block with the free block that follows it. Neither is left
+     * in the policy's index.
+     *
+     * @param first Free block that is kept.
+     * @param second Free block directly after it, which is removed.
+     */
+    private void merge(BlockNode first, BlockNode second) {
+        policy.removeFree(first);
+        policy.removeFree(second);
+
+        long start = first.getBlock().getHole().getStart();
+        long end = second.getBlock().getHole().getEnd();
+        first.getBlock().getHole().setRange(start, end);
+        first.setNext(second.getNext());
+        if (second.getNext() != null) {
+            second.getNext().setPrev(first);
+        }
+        if (this.end == second) {
+            this.end = first;
+        }
+        if (cursor == second) {
+            cursor = first;
+        }
+        size--;
+    }
+
     /**
      * This method gets the external fragmentation of the current memory blocks
      * if a block of memory failed to place.
      *
      * @return external fragmentation of memory.
      */
-    public int externalFragmentation() {
+    @Override
+    public long externalFragmentation() {
         BlockNode ptr = start;
-        int externalFragmentation = 0;
+        long externalFragmentation = 0;
 
         while (ptr != null) {
             if (ptr.getBlock().getProcess() == null) {
@@ -187,40 +280,80 @@ public class MainMemory {
     }
 
     /**
-     * This method goes through the blocks of memory and de-allocates the block for
-     * the provided process_number
+     * This method gets the internal fragmentation of the current memory blocks,
+     * the bytes allocated to processes beyond what they asked for.
+     *
+     * @return internal fragmentation of memory.
+     */
+    @Override
+    public long internalFragmentation() {
+        long internalFragmentation = 0;
+        for (BlockNode ptr : allocated.values()) {
+            internalFragmentation += ptr.getBlock().getSize() - ptr.getBlock().getProcess().getArgument();
+        }
+        return internalFragmentation;
+    }
+
+    /**
+     * This method de-allocates the block for the provided process_number and
+     * joins it with the free blocks either side of it, for as long as the
+     * policy allows.
      *
      * @param process_number Process to be de-allocated.
      */
+    @Override
     public void deallocateBlock(int process_number) {
+        BlockNode ptr = allocated.remove(process_number);
+        if (ptr == null) {
+            return;
+        }
+        ptr.getBlock().setProcess(null);
 
-        BlockNode ptr = start;
-        while (ptr != null) {
+        while (true) {
+            BlockNode next = ptr.getNext();
+            if (next != null && next.getBlock().available() && canMerge(ptr, next)) {
+                merge(ptr, next);
+                continue;
+            }
 
-            if (ptr.getBlock().getProcess() != null) {
-                if (ptr.getBlock().getProcess().getReference_number() == process_number) {
-                    ptr.getBlock().setProcess(null);
-                    joinBlocks();
-                    return;
-                }
+            BlockNode previous = ptr.getPrev();
+            if (previous != null && previous.getBlock().available() && canMerge(previous, ptr)) {
+                merge(previous, ptr);
+                ptr = previous;
+                continue;
             }
-            ptr = ptr.getNext();
+            break;
+        }
+        policy.addFree(ptr);
+
+        //memory below this block may no longer be packed
+        if (cursor == null || ptr.getBlock().getHole().getStart() < cursor.getBlock().getHole().getStart()) {
+            cursor = ptr;
         }
     }
 
     /**
-     * This method goes through the blocks of memory and de-allocates the block for
-     * the provided process_number
+     * This method moves every allocated block down to the start of memory,
+     * in order, leaving one free block at the end. Only for policies that
+     * allow it.
      *
+     * @return bytes moved.
      */
-
-    public void compactMemory() {
-        int memoryUsage = 0;
+    @Override
+    public long compactMemory() {
+        if (!policy.allowsCompaction()) {
+            throw new IllegalStateException(policy.getName() + " memory cannot be compacted");
+        }
+        long memoryUsage = 0;
+        long moved = 0;
         BlockNode previousNode = null;
         BlockNode currentNode = start;
 
         while (currentNode != null) {
             if (currentNode.getBlock().getProcess() != null) {
+                if (currentNode.getBlock().getHole().getStart() != memoryUsage) {
+                    moved += currentNode.getBlock().getSize();
+                }
                 currentNode.getBlock().getHole().setRange(memoryUsage, memoryUsage
                         + currentNode.getBlock().getSize() - 1);
                 memoryUsage += currentNode.getBlock().getSize();
@@ -235,20 +368,251 @@ public class MainMemory {
             currentNode = currentNode.getNext();
         }
 
-        Block freeMemoryBlock = new Block(null, new Hole(memoryUsage, TaskB.TOTAL_BYTES - 1));
+        //no free block at all if memory is full
+        if (memoryUsage < totalBytes) {
+            BlockNode freeMemoryBlock = new BlockNode(new Block(null, new Hole(memoryUsage, totalBytes - 1)), null);
+            if (previousNode != null) {
+                previousNode.setNext(freeMemoryBlock);
+            } else {
+                start = freeMemoryBlock;
+            }
+        }
+        rebuildIndex();
+        cursor = null;
+        bytesMoved += moved;
+        return moved;
+    }
+
+    /**
+     * Opens a hole big enough for a request with the cheapest sliding-window
+     * packing of a run of free blocks. Every run of blocks from one free block
+     * to another could be packed into one hole, moving the allocated blocks
+     * between them; a two-pointer pass over the free blocks finds the cheapest
+     * run that frees enough, and only that run is packed. This is not always
+     * the fewest bytes any compaction could move: moving one block into a
+     * distant hole that fits it can be cheaper than packing a run.
+     *
+     * @param bytes Size of the request that did not fit.
+     * @return bytes moved, or -1 if no amount of compaction can fit the request.
+     */
+    @Override
+    public long compactFor(long bytes) {
+        if (!policy.allowsCompaction()) {
+            throw new IllegalStateException(policy.getName() + " memory cannot be compacted");
+        }
+        long needed = policy.blockSize(bytes);
 
-        if (start == null) {
-            start = new BlockNode(freeMemoryBlock, null);
+        //the free blocks in order, with the allocated bytes between each and the one before
+        int count = 0;
+        for (BlockNode ptr = start; ptr != null; ptr = ptr.getNext()) {
+            if (ptr.getBlock().available()) {
+                count++;
+            }
+        }
+        BlockNode[] free = new BlockNode[count];
+        long[] between = new long[count];
+        long allocatedBytes = 0;
+        count = 0;
+        for (BlockNode ptr = start; ptr != null; ptr = ptr.getNext()) {
+            if (ptr.getBlock().available()) {
+                between[count] = allocatedBytes;
+                free[count++] = ptr;
+                allocatedBytes = 0;
+            } else {
+                allocatedBytes += ptr.getBlock().getSize();
+            }
+        }
+
+        //cheapest run of free blocks first..last that frees enough
+        int first = -1;
+        int last = -1;
+        long bestCost = Long.MAX_VALUE;
+        long freeBytes = 0;
+        long cost = 0;
+        for (int left = 0, right = 0; right < count; right++) {
+            freeBytes += free[right].getBlock().getSize();
+            if (right > left) {
+                cost += between[right];
+            }
+            while (left < right && freeBytes - free[left].getBlock().getSize() >= needed) {
+                freeBytes -= free[left].getBlock().getSize();
+                cost -= between[left + 1];
+                left++;
+            }
+            if (freeBytes >= needed && cost < bestCost) {
+                first = left;
+                last = right;
+                bestCost = cost;
+            }
+        }
+        if (first < 0) {
+            return -1;
+        }
+
+        long moved = pack(free[first], free[last]);
+        bytesMoved += moved;
+        return moved;
+    }
+
+    /**
+     * Slides the allocated blocks from one free block to another down to the
+     * start of the first, leaving the last as one free block after them.
+     *
+     * @param first Free block where the run starts.
+     * @param last Free block where the run ends.
+     * @return bytes moved.
+     */
+    private long pack(BlockNode first, BlockNode last) {
+        long address = first.getBlock().getHole().getStart();
+        long end = last.getBlock().getHole().getEnd();
+        long moved = 0;
+        BlockNode previous = first.getPrev();
+
+        BlockNode ptr = first;
+        while (ptr != last) {
+            BlockNode next = ptr.getNext();
+            if (ptr.getBlock().available()) {
+                policy.removeFree(ptr);
+                if (cursor == ptr) {
+                    cursor = last;
+                }
+                size--;
+            } else {
+                long blockSize = ptr.getBlock().getSize();
+                ptr.getBlock().getHole().setRange(address, address + blockSize - 1);
+                address += blockSize;
+                moved += blockSize;
+                link(previous, ptr);
+                previous = ptr;
+            }
+            ptr = next;
+        }
+
+        policy.removeFree(last);
+        last.getBlock().getHole().setRange(address, end);
+        link(previous, last);
+        policy.addFree(last);
+        return moved;
+    }
+
+    /**
+     * Links two blocks, or makes the second the start of the list.
+     */
+    private void link(BlockNode previous, BlockNode node) {
+        if (previous == null) {
+            start = node;
         } else {
-            if (previousNode != null) {
-                previousNode.setNext(new BlockNode(freeMemoryBlock, null));
+            previous.setNext(node);
+        }
+        node.setPrev(previous);
+    }
+
+    /**
+     * One step of incremental compaction, to run between requests. Allocated
+     * blocks are slid down into the lowest free block one at a time, for as
+     * long as the bytes moved stay within the budget. Budget that is not used
+     * up is kept for the next step, so a block larger than the budget is
+     * moved once enough steps have passed.
+     *
+     * @param budget Bytes that may be moved in this step.
+     * @return bytes moved.
+     */
+    @Override
+    public long compactStep(long budget) {
+        if (!policy.allowsCompaction() || cursor == null) {
+            credit = 0;
+            return 0;
+        }
+        credit += budget;
+        long moved = 0;
+
+        while (cursor != null) {
+            //skip what is already packed
+            while (cursor != null && !cursor.getBlock().available()) {
+                cursor = cursor.getNext();
+            }
+            BlockNode next = cursor == null ? null : cursor.getNext();
+            if (next == null || next.getBlock().available()) {
+                //nothing left to slide down
+                cursor = null;
+                credit = 0;
+                break;
+            }
+            long blockSize = next.getBlock().getSize();
+            if (blockSize > credit) {
+                break;
+            }
+
+            //swap the two blocks over, so the allocated one starts where the free one did
+            BlockNode hole = cursor;
+            policy.removeFree(hole);
+            long holeStart = hole.getBlock().getHole().getStart();
+            long holeEnd = next.getBlock().getHole().getEnd();
+            Block moving = next.getBlock();
+            next.setBlock(hole.getBlock());
+            hole.setBlock(moving);
+            moving.getHole().setRange(holeStart, holeStart + blockSize - 1);
+            next.getBlock().getHole().setRange(holeStart + blockSize, holeEnd);
+            allocated.put(moving.getProcess().getReference_number(), hole);
+
+            cursor = next;
+            BlockNode after = next.getNext();
+            if (after != null && after.getBlock().available() && canMerge(next, after)) {
+                merge(next, after);
             }
+            policy.addFree(next);
+
+            credit -= blockSize;
+            moved += blockSize;
+        }
+        bytesMoved += moved;
+        return moved;
+    }
+
+    /**
+     * Gets the bytes moved by every kind of compaction so far
+     *
+     * @return total bytes moved
+     */
+    @Override
+    public long getBytesMoved() {
+        return bytesMoved;
+    }
+
+    /**
+     * Adds a block to the free blocks if it is free, or the allocated ones if not.
+     *
+     * @param node Block to add.
+     */
+    private void addToIndex(BlockNode node) {
+        if (node.getBlock().available()) {
+            policy.addFree(node);
+        } else {
+            allocated.put(node.getBlock().getProcess().getReference_number(), node);
+        }
+    }
+
+    /**
+     * Links and indexes every block again after the blocks have been moved.
+     */
+    private void rebuildIndex() {
+        policy.clear();
+        allocated.clear();
+        size = 0;
+        BlockNode previous = null;
+        for (BlockNode ptr = start; ptr != null; ptr = ptr.getNext()) {
+            ptr.setPrev(previous);
+            addToIndex(ptr);
+            previous = ptr;
+            size++;
         }
+        end = previous;
     }
 
     /**
      * This method prints the whole list of current memory.
      */
+    @Override
     public void printBlocks() {
         System.out.println("Current memory display");
         BlockNode ptr = start;
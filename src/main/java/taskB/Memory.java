@@ -0,0 +1,125 @@
+package taskB;
+
+/**
+ * Memory that processes are placed in and freed from, whatever way its
+ * blocks are stored. MainMemory keeps them as a linked list of objects and
+ * ArrayMemory keeps them in parallel arrays; both place every process in the
+ * same block for the same policy and trace.
+ */
+public interface Memory {
+
+    String USAGE = "Backends: object, array";
+
+    /**
+     * Places a process in the free block chosen by the placement policy.
+     * @param proc Process to be placed in memory
+     * @return True if successfully placed, false if it failed
+     */
+    boolean insert(Process proc);
+
+    /**
+     * Places an allocation given by its numbers alone, so that a trace can
+     * be replayed without making a Process for every request where the
+     * memory does not keep one.
+     * @param reference_number Reference number of the allocation
+     * @param bytes Size in bytes
+     * @return True if successfully placed, false if it failed
+     */
+    default boolean insert(int reference_number, long bytes) {
+        return insert(new Process(reference_number, 1, bytes));
+    }
+
+    /**
+     * De-allocates the block for the provided process_number and joins it
+     * with its free neighbours.
+     * @param process_number Process to be de-allocated
+     */
+    void deallocateBlock(int process_number);
+
+    /**
+     * Gets the free bytes in memory.
+     * @return external fragmentation of memory
+     */
+    long externalFragmentation();
+
+    /**
+     * Gets the bytes allocated to processes beyond what they asked for.
+     * @return internal fragmentation of memory
+     */
+    long internalFragmentation();
+
+    /**
+     * Moves every allocated block down to the start of memory.
+     * @return bytes moved
+     */
+    long compactMemory();
+
+    /**
+     * Opens a hole for a request by packing the cheapest run of blocks between
+     * two free blocks that frees enough, a sliding window over the free blocks.
+     * @param bytes Size of the request that did not fit
+     * @return bytes moved, or -1 if no amount of compaction can fit the request
+     */
+    long compactFor(long bytes);
+
+    /**
+     * One step of incremental compaction, within a budget of bytes.
+     * @param budget Bytes that may be moved in this step
+     * @return bytes moved
+     */
+    long compactStep(long budget);
+
+    /**
+     * Gets the bytes moved by every kind of compaction so far.
+     * @return total bytes moved
+     */
+    long getBytesMoved();
+
+    /**
+     * Gets the size of memory.
+     * @return total bytes, free or allocated
+     */
+    long getTotalBytes();
+
+    /**
+     * Gets the number of blocks, free or allocated.
+     * @return number of blocks
+     */
+    int getSize();
+
+    /**
+     * Gets the placement policy, for its name and rules.
+     * @return the policy
+     */
+    PlacementPolicy getPolicy();
+
+    /**
+     * Prints the whole of memory, block by block.
+     */
+    void printBlocks();
+
+    /**
+     * Makes an empty memory, one free block covering all of it. The size is
+     * cut down to what the policy can manage, a power of two for buddy
+     * allocation, so getTotalBytes can be less than was asked for.
+     * @param backend object or array
+     * @param totalBytes Size of memory wanted
+     * @param policyName Placement policy, see PlacementPolicy.forName
+     * @return The memory
+     * @throws IllegalArgumentException If the backend or policy is unknown
+     */
+    static Memory create(String backend, long totalBytes, String policyName) {
+        PlacementPolicy policy = PlacementPolicy.forName(policyName);
+        long usableBytes = policy.usableBytes(totalBytes);
+        switch (backend) {
+            case "object":
+                MainMemory memory = new MainMemory(usableBytes, policy);
+                memory.insertAtStart(new Block(null, new Hole(0, usableBytes - 1)));
+                return memory;
+            case "array":
+                return new ArrayMemory(usableBytes, policy);
+            default:
+                throw new IllegalArgumentException("Unknown backend " + backend + ". " + USAGE);
+        }
+    }
+}
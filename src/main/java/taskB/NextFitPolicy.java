@@ -0,0 +1,52 @@
+package taskB;
+
+/**
+ * Next fit: like first fit, but the search starts where the last process was
+ * placed and wraps round to the start of memory, so that small blocks do not
+ * pile up at the low addresses.
+ */
+public class NextFitPolicy implements PlacementPolicy {
+
+    private final FreeBlockTree free = new FreeBlockTree();
+
+    // address the next search starts from
+    private long rover = 0;
+
+    @Override
+    public String getName() {
+        return "Next Fit";
+    }
+
+    @Override
+    public Fit getFit() {
+        return Fit.NEXT;
+    }
+
+    @Override
+    public BlockNode select(long bytes) {
+        BlockNode found = free.first(rover, bytes);
+        if (found == null) {
+            found = free.first(Long.MIN_VALUE, bytes);
+        }
+        if (found != null) {
+            rover = found.getBlock().getHole().getStart() + bytes;
+        }
+        return found;
+    }
+
+    @Override
+    public void addFree(BlockNode node) {
+        free.add(node);
+    }
+
+    @Override
+    public void removeFree(BlockNode node) {
+        free.remove(node);
+    }
+
+    @Override
+    public void clear() {
+        free.clear();
+        rover = 0;
+    }
+}
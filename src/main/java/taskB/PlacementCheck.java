@@ -0,0 +1,299 @@
+package taskB;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Check of the placement policies' free block indexes against a plain scan
+ * of the list of blocks, the way placement worked before there were indexes.
+ *
+ * For first, next, best and worst fit, random traces of allocations and frees
+ * are replayed on both. After every trace memory is compacted, and the failed
+ * requests, the blocks printed before and after compaction and the bytes
+ * compaction moved must all be the same. The first mismatch of each policy is
+ * printed. Buddy blocks do not match any list scan, so for buddy every
+ * process left is freed at the end of each trace instead, and memory must
+ * have coalesced back into one free block.
+ *
+ * Usage: java taskB.PlacementCheck [traces] [seed]
+ */
+public class PlacementCheck {
+
+    private static final String[] POLICIES = {"first", "next", "best", "worst"};
+
+    /**
+     * Main method to run the check.
+     * @param args Number of traces per policy and the random seed
+     */
+    public static void main(String[] args) {
+        int traces = args.length > 0 ? Integer.parseInt(args[0]) : 3000;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 2;
+
+        boolean passed = true;
+        for (String policy : POLICIES) {
+            Random random = new Random(seed);
+            int matched = 0;
+            for (int trace = 0; trace < traces; trace++) {
+                long totalBytes = 256 + random.nextInt(2048);
+                List<Process> processes = randomTrace(random, 50 + random.nextInt(400));
+                String expected = replay(new ListScan(policy, totalBytes), processes);
+                String actual = replay(indexed(new MainMemory(totalBytes, PlacementPolicy.forName(policy))),
+                        processes);
+                if (!expected.equals(actual)) {
+                    System.out.printf("%s: trace %d differs%nlist scan:%n%s%nindex:%n%s%n", policy, trace,
+                            expected, actual);
+                    break;
+                }
+                matched++;
+            }
+            System.out.printf("%-6s %d of %d traces match%n", policy, matched, traces);
+            passed &= matched == traces;
+        }
+        passed &= checkBuddy(traces, seed);
+        if (!passed) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Replays random traces with buddy allocation, frees every process left
+     * and checks that all of memory is one free block again.
+     * @param traces Number of traces
+     * @param seed Random seed
+     * @return True if memory coalesced after every trace
+     */
+    private static boolean checkBuddy(int traces, long seed) {
+        Random random = new Random(seed);
+        int matched = 0;
+        for (int trace = 0; trace < traces; trace++) {
+            long totalBytes = 1L << (8 + random.nextInt(4));
+            Memory memory = Memory.create("object", totalBytes, "buddy");
+            List<Integer> live = new ArrayList<>();
+            for (Process process : randomTrace(random, 50 + random.nextInt(400))) {
+                if (process.isAllocating()) {
+                    if (memory.insert(process)) {
+                        live.add(process.getReference_number());
+                    }
+                } else if (live.remove(Integer.valueOf((int) process.getArgument()))) {
+                    memory.deallocateBlock((int) process.getArgument());
+                }
+            }
+            for (int reference : live) {
+                memory.deallocateBlock(reference);
+            }
+            if (memory.getSize() != 1 || memory.externalFragmentation() != totalBytes) {
+                System.out.printf("buddy: trace %d did not coalesce%n%s%n", trace, printed(memory::printBlocks));
+                break;
+            }
+            matched++;
+        }
+        System.out.printf("%-6s %d of %d traces coalesce%n", "buddy", matched, traces);
+        return matched == traces;
+    }
+
+    /**
+     * Makes a trace of allocations of small and large sizes, with about one
+     * free for every two allocations.
+     * @param random Source of randomness
+     * @param operations Number of operations
+     * @return The trace
+     */
+    static List<Process> randomTrace(Random random, int operations) {
+        List<Process> processes = new ArrayList<>();
+        List<Integer> live = new ArrayList<>();
+        for (int i = 1; i <= operations; i++) {
+            if (live.isEmpty() || random.nextInt(3) > 0) {
+                processes.add(new Process(i, 1, 1 + random.nextInt(random.nextBoolean() ? 40 : 200)));
+                live.add(i);
+            } else {
+                processes.add(new Process(i, 2, live.remove(random.nextInt(live.size()))));
+            }
+        }
+        return processes;
+    }
+
+    /**
+     * Replays a trace and compacts memory at the end.
+     * @param memory Memory to replay on
+     * @param processes Trace
+     * @return Failed requests, blocks before and after compaction and bytes moved
+     */
+    private static String replay(Replayed memory, List<Process> processes) {
+        StringBuilder result = new StringBuilder("failed:");
+        for (Process process : processes) {
+            if (process.isAllocating()) {
+                if (!memory.insert(new Process(process.getReference_number(), 1, process.getArgument()))) {
+                    result.append(' ').append(process.getReference_number());
+                }
+            } else {
+                memory.deallocateBlock((int) process.getArgument());
+            }
+        }
+        result.append('\n').append(printed(memory::printBlocks));
+        long moved = memory.compactMemory();
+        return result.append(printed(memory::printBlocks)).append("moved ").append(moved).toString();
+    }
+
+    /**
+     * Gets what a printBlocks method prints.
+     * @param printBlocks Method printing the blocks of a memory
+     * @return Printed blocks
+     */
+    static String printed(Runnable printBlocks) {
+        PrintStream out = System.out;
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(buffer));
+        try {
+            printBlocks.run();
+        } finally {
+            System.setOut(out);
+        }
+        return buffer.toString();
+    }
+
+    /**
+     * The operations a trace is replayed with, which both MainMemory and the
+     * list scan have.
+     */
+    private interface Replayed {
+
+        boolean insert(Process proc);
+
+        void deallocateBlock(int process_number);
+
+        long compactMemory();
+
+        void printBlocks();
+    }
+
+    /**
+     * Replays on a memory through its policy's index.
+     * @param memory Memory to replay on
+     * @return The memory's operations
+     */
+    private static Replayed indexed(Memory memory) {
+        return new Replayed() {
+            @Override
+            public boolean insert(Process proc) {
+                return memory.insert(proc);
+            }
+
+            @Override
+            public void deallocateBlock(int process_number) {
+                memory.deallocateBlock(process_number);
+            }
+
+            @Override
+            public long compactMemory() {
+                return memory.compactMemory();
+            }
+
+            @Override
+            public void printBlocks() {
+                memory.printBlocks();
+            }
+        };
+    }
+
+    /**
+     * Memory as a list of blocks, each the start, the size and the reference
+     * number of its process or -1 if it is free, placed by scanning the whole
+     * list for every request.
+     */
+    private static class ListScan implements Replayed {
+
+        private final String policy;
+        private final long totalBytes;
+        private final List<long[]> blocks = new ArrayList<>();
+        private long rover = 0;
+
+        ListScan(String policy, long totalBytes) {
+            this.policy = policy;
+            this.totalBytes = totalBytes;
+            blocks.add(new long[]{0, totalBytes, -1});
+        }
+
+        @Override
+        public boolean insert(Process proc) {
+            long bytes = proc.getArgument();
+            int chosen = -1;
+            for (int i = 0; i < blocks.size(); i++) {
+                long[] block = blocks.get(i);
+                if (block[2] != -1 || block[1] < bytes) {
+                    continue;
+                }
+                if (chosen < 0
+                        || policy.equals("best") && block[1] < blocks.get(chosen)[1]
+                        || policy.equals("worst") && block[1] > blocks.get(chosen)[1]
+                        || policy.equals("next") && blocks.get(chosen)[0] < rover && block[0] >= rover) {
+                    chosen = i;
+                }
+            }
+            if (chosen < 0) {
+                return false;
+            }
+            long[] block = blocks.get(chosen);
+            rover = block[0] + bytes;
+            if (block[1] > bytes) {
+                blocks.add(chosen + 1, new long[]{block[0] + bytes, block[1] - bytes, -1});
+            }
+            block[1] = bytes;
+            block[2] = proc.getReference_number();
+            return true;
+        }
+
+        @Override
+        public void deallocateBlock(int process_number) {
+            for (int i = 0; i < blocks.size(); i++) {
+                long[] block = blocks.get(i);
+                if (block[2] != process_number) {
+                    continue;
+                }
+                block[2] = -1;
+                if (i + 1 < blocks.size() && blocks.get(i + 1)[2] == -1) {
+                    block[1] += blocks.remove(i + 1)[1];
+                }
+                if (i > 0 && blocks.get(i - 1)[2] == -1) {
+                    blocks.get(i - 1)[1] += blocks.remove(i)[1];
+                }
+                return;
+            }
+        }
+
+        @Override
+        public long compactMemory() {
+            List<long[]> packed = new ArrayList<>();
+            long used = 0;
+            long moved = 0;
+            for (long[] block : blocks) {
+                if (block[2] == -1) {
+                    continue;
+                }
+                if (block[0] != used) {
+                    moved += block[1];
+                }
+                packed.add(new long[]{used, block[1], block[2]});
+                used += block[1];
+            }
+            if (used < totalBytes) {
+                packed.add(new long[]{used, totalBytes - used, -1});
+            }
+            blocks.clear();
+            blocks.addAll(packed);
+            rover = 0;
+            return moved;
+        }
+
+        @Override
+        public void printBlocks() {
+            System.out.println("Current memory display");
+            for (long[] block : blocks) {
+                System.out.printf("[%d-%d): %s\n", block[0], block[0] + block[1],
+                        block[2] == -1 ? "free" : "allocated to Process " + block[2]);
+            }
+        }
+    }
+}
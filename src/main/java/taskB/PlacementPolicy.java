@@ -0,0 +1,141 @@
+package taskB;
+
+/**
+ * Decides which free block of memory a process is placed in.
+ *
+ * A policy keeps its own index of the free blocks. MainMemory tells it about
+ * every block that becomes free with addFree and every block that stops
+ * being free, or is about to be resized, with removeFree, so the policy can
+ * answer select without walking the list of blocks. A policy also decides how
+ * a free block is split for a request and which free neighbours may be
+ * joined, which is what makes buddy allocation different from the others.
+ */
+public interface PlacementPolicy {
+
+    String USAGE = "Policies: first, next, best, worst, buddy";
+
+    /**
+     * Which free block a policy's select gives, so that a memory keeping its
+     * own index of free blocks, such as ArrayMemory, can make the same choice.
+     */
+    enum Fit {
+        /** The lowest address that fits. */
+        FIRST,
+        /** The lowest address that fits from where the last placement ended, wrapping around. */
+        NEXT,
+        /** The smallest block that fits, the lowest address of those. */
+        BEST,
+        /** The largest block, the lowest address of those. */
+        WORST,
+        /** The lowest address among blocks of the smallest power of two that fits. */
+        BUDDY
+    }
+
+    /**
+     * Name of the policy, as printed in the simulation.
+     * @return Display name such as Best Fit
+     */
+    String getName();
+
+    /**
+     * Which free block select gives.
+     * @return The kind of fit
+     */
+    Fit getFit();
+
+    /**
+     * Finds the free block to place a request in.
+     * @param bytes Size of the block needed, from blockSize
+     * @return Free block of at least that size, or null if there is none
+     */
+    BlockNode select(long bytes);
+
+    /**
+     * Adds a free block to the index.
+     * @param node Free block
+     */
+    void addFree(BlockNode node);
+
+    /**
+     * Removes a block from the index. Does nothing if it is not there.
+     * @param node Block that was free
+     */
+    void removeFree(BlockNode node);
+
+    /**
+     * Empties the index, before it is filled again after compaction.
+     */
+    void clear();
+
+    /**
+     * Size of the block a request is given.
+     * @param bytes Bytes requested
+     * @return Bytes to allocate
+     */
+    default long blockSize(long bytes) {
+        return bytes;
+    }
+
+    /**
+     * Size of the first part when a free block is split for a request. The
+     * rest becomes a new free block, and the first part is split again until
+     * it is the size of the request.
+     * @param size Size of the free block
+     * @param bytes Size of the block needed
+     * @return Size of the part that is kept
+     */
+    default long splitSize(long size, long bytes) {
+        return bytes;
+    }
+
+    /**
+     * Checks if two free blocks next to each other can be joined.
+     * @param start Start address of the block with the lower address
+     * @param firstSize Size of that block
+     * @param secondSize Size of the block directly after it
+     * @return True if they can become one block
+     */
+    default boolean canMerge(long start, long firstSize, long secondSize) {
+        return true;
+    }
+
+    /**
+     * Largest amount of memory up to some size this policy can manage.
+     * @param bytes Memory available
+     * @return Bytes to use
+     */
+    default long usableBytes(long bytes) {
+        return bytes;
+    }
+
+    /**
+     * Checks if blocks can be moved together when a request fails.
+     * @return True if compaction keeps the blocks valid for this policy
+     */
+    default boolean allowsCompaction() {
+        return true;
+    }
+
+    /**
+     * Makes a new policy, with an empty index, from its command line name.
+     * @param name first, next, best, worst or buddy
+     * @return The policy
+     * @throws IllegalArgumentException If there is no policy with that name
+     */
+    static PlacementPolicy forName(String name) {
+        switch (name) {
+            case "first":
+                return new FirstFitPolicy();
+            case "next":
+                return new NextFitPolicy();
+            case "best":
+                return new BestFitPolicy();
+            case "worst":
+                return new WorstFitPolicy();
+            case "buddy":
+                return new BuddyPolicy();
+            default:
+                throw new IllegalArgumentException("Unknown policy " + name + ". " + USAGE);
+        }
+    }
+}
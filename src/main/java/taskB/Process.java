@@ -9,7 +9,7 @@ public class Process {
     // Private variables
     private int reference_number;
     private int operation;
-    private int argument;
+    private long argument;
 
     /**
      *
@@ -21,7 +21,7 @@ public class Process {
      *                         operation; a reference number for a de-allocate
      *                         operation)
      */
-    public Process(int reference_number, int operation, int argument) {
+    public Process(int reference_number, int operation, long argument) {
         this.reference_number = reference_number;
         this.operation = operation;
         this.argument = argument;
@@ -37,7 +37,7 @@ public class Process {
         return this.operation;
     }
 
-    public int getArgument() {
+    public long getArgument() {
         return this.argument;
     }
 
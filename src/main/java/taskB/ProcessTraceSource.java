@@ -0,0 +1,46 @@
+package taskB;
+
+import java.util.List;
+
+/**
+ * A trace of Process objects already in memory, such as the empty trace
+ * replayed when there is no taskB.csv.
+ */
+public class ProcessTraceSource implements TraceSource {
+
+    private final List<Process> processes;
+    private int position = -1;
+
+    public ProcessTraceSource(List<Process> processes) {
+        this.processes = processes;
+    }
+
+    @Override
+    public boolean next() {
+        if (position + 1 >= processes.size()) {
+            return false;
+        }
+        position++;
+        return true;
+    }
+
+    @Override
+    public int getReference_number() {
+        return processes.get(position).getReference_number();
+    }
+
+    @Override
+    public int getOperation() {
+        return processes.get(position).getOperation();
+    }
+
+    @Override
+    public long getArgument() {
+        return processes.get(position).getArgument();
+    }
+
+    @Override
+    public void rewind() {
+        position = -1;
+    }
+}
@@ -1,10 +1,12 @@
 package taskB;
 
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.FileWriter;
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.List;
-import java.util.Scanner;
+import java.util.concurrent.CountDownLatch;
 
 /**
  *
@@ -12,8 +14,8 @@ import java.util.Scanner;
  */
 public class TaskB {
 
-    // size of memory
-    public static final int TOTAL_BYTES = 1024;
+    // size of memory, unless --memory gives another
+    public static final long TOTAL_BYTES = 1024;
 
     /*
      * The first number is the reference id of job. The second number is a request
@@ -22,90 +24,542 @@ public class TaskB {
      * 1024 bytes. If it is deallocate, the third argument will be the reference id
      * to deallocate from memory.
      *
-     * NOTE: you should read the process input from taskB.txt instead of putting it
-     * in the Java file
+     * NOTE: the process input is read from taskB.csv, or the file given by
+     * --trace, a line at a time as it is replayed
      */
-    private static List<int[]> alloc = new ArrayList<>();
+    private static final String TRACE_FILE = "taskB.csv";
 
-    // Keep track of all processes created
-    private static ArrayList<Process> listof_processes;
+    // policies run by --policy=all, in the order they are reported
+    private static final String[] POLICIES = {"first", "next", "best", "worst", "buddy"};
 
-    public static void createProcesses() {
-        Process proc;
+    // size of memory, the number of operations and how many allocations are
+    // live at a time for the synthetic trace of --benchmark
+    private static final long BENCHMARK_BYTES = 8 * 1024 * 1024;
+    private static final int BENCHMARK_OPERATIONS = 1_000_000;
+    private static final int BENCHMARK_LIVE = 10_000;
 
-        listof_processes = new ArrayList<>();
-        for (int[] parts : alloc) {
-            proc = new Process(parts[0], parts[1], parts[2]);
-            listof_processes.add(proc);
+    // distributions and allocate ratio of the trace made by --generate,
+    // unless --sizes, --lifetimes and --allocate-ratio give others
+    private static final String GENERATE_SIZES = "uniform:1:512";
+    private static final String GENERATE_LIFETIMES = "exponential:10000";
+    private static final double GENERATE_ALLOCATE_RATIO = 0.5;
+
+    // bytes incremental compaction may move after each operation, 0 for none
+    private static long compactBudget = 0;
+
+    // how blocks are stored, see Memory.create
+    private static String backend = "object";
+
+    /**
+     * Makes the synthetic trace of --benchmark: allocations of 1 to 512
+     * bytes, each freed once its lifetime is over, with lifetimes long enough
+     * that about the given number of allocations are live at any time.
+     *
+     * @param operations Number of operations in the trace.
+     * @param liveTarget Number of allocations to keep live.
+     * @param seed Seed of the random trace.
+     * @return The trace, made up as it is read.
+     */
+    private static TraceGenerator benchmarkTrace(long operations, int liveTarget, long seed) {
+        return new TraceGenerator(operations, Distribution.uniform(1, 512),
+                Distribution.exponential(2.0 * liveTarget), 0.5, seed);
+    }
+
+    /**
+     * This method runs the memory allocation simulation using a linked list
+     * and the given placement policy. Loops through the Processes in the
+     * trace and allocates appropriately. If it cannot allocate, it will
+     * compact memory if the policy allows it and try again, and if it still
+     * cannot it will fail and print why accordingly. If it succeeds it will
+     * print 'Success'.
+     *
+     * @param policyName Placement policy to simulate.
+     * @param totalBytes Size of memory.
+     * @param trace Processes to replay.
+     * @throws IOException If the trace cannot be read.
+     */
+    private static void simulate(String policyName, long totalBytes, TraceSource trace) throws IOException {
+        Memory manager = Memory.create(backend, totalBytes, policyName);
+        System.out.println("----------" + manager.getPolicy().getName() + "----------");
+        if (manager.getTotalBytes() != totalBytes) {
+            System.out.println("Using " + manager.getTotalBytes() + " of the " + totalBytes + " bytes of memory.");
+        }
+
+        if (!replay(manager, trace, true).stopped) {
+            System.out.println("Success");
+            manager.printBlocks();
         }
     }
 
     /**
-     * This method runs the Best Fit Memory Allocation simulation using a linked
-     * list. Loops through the Processes in the Process list and allocates
-     * appropriately. If it cannot allocate, it will fail and print why accordingly.
-     * If it succeeds it will print 'Success'.
+     * What happened when the processes were replayed against one policy.
      */
-    private static void bestFit() {
-        MainMemory manager = new MainMemory();
-        manager.insertAtStart(new Block());
+    private static final class Result {
+        int operations = 0;
+        int placed = 0;
+        int compactions = 0;
+        boolean stopped = false;
+    }
 
-        for (Process proc : listof_processes) {
-            if (proc.isAllocating()) {
-                boolean placed = manager.bestFitInsert(proc);
+    /**
+     * Replays a trace against a memory, stopping at the first request that
+     * cannot be placed even after compaction. A request that does not fit
+     * compacts only as much of memory as it takes to fit it. The trace is
+     * read an operation at a time, and no Process is made for a request
+     * unless the memory keeps one.
+     *
+     * @param manager Memory to allocate from.
+     * @param trace Processes to replay, from the start.
+     * @param verbose True to print each failure and the memory around it.
+     * @return What happened.
+     * @throws IOException If the trace cannot be read.
+     */
+    private static Result replay(Memory manager, TraceSource trace, boolean verbose) throws IOException {
+        Result result = new Result();
+
+        while (trace.next()) {
+            result.operations++;
+            if (trace.isAllocating()) {
+                int reference_number = trace.getReference_number();
+                long bytes = trace.getArgument();
+                boolean placed = manager.insert(reference_number, bytes);
                 if (!placed) {
-                    System.out.println("Request " + proc.getReference_number()
-                            + " failed at allocating " + proc.getArgument() + " bytes.");
-                    System.out.println("External Fragmentation is "
-                            + manager.externalFragmentation() + " bytes.");
-                    manager.printBlocks();
-                    manager.compactMemory();
-                    System.out.println("-------After Compaction ------");
-                    manager.printBlocks();
-
-                    boolean retry = manager.bestFitInsert(proc);
-                    if (!retry) {
-                        System.out.println("Request " + proc.getReference_number()
-                                + " failed at allocating " + proc.getArgument() + " bytes.");
+                    if (verbose) {
+                        System.out.println("Request " + reference_number
+                                + " failed at allocating " + bytes + " bytes.");
                         System.out.println("External Fragmentation is "
                                 + manager.externalFragmentation() + " bytes.");
-                        return;
+                        manager.printBlocks();
+                    }
+                    //no compaction if the policy forbids it or there is not enough free memory
+                    long moved = manager.getPolicy().allowsCompaction() ? manager.compactFor(bytes) : -1;
+                    if (moved < 0) {
+                        result.stopped = true;
+                        return result;
+                    }
+                    result.compactions++;
+                    if (verbose) {
+                        System.out.println("-------After Compaction ------");
+                        System.out.println("Moved " + moved + " bytes.");
+                        manager.printBlocks();
+                    }
+
+                    boolean retry = manager.insert(reference_number, bytes);
+                    if (!retry) {
+                        if (verbose) {
+                            System.out.println("Request " + reference_number
+                                    + " failed at allocating " + bytes + " bytes.");
+                            System.out.println("External Fragmentation is "
+                                    + manager.externalFragmentation() + " bytes.");
+                        }
+                        result.stopped = true;
+                        return result;
                     }
                 }
-            } else if (proc.isDeallocating()) {
-                manager.deallocateBlock(proc.getArgument());
+                result.placed++;
+            } else if (trace.isDeallocating()) {
+                manager.deallocateBlock((int) trace.getArgument());
+            }
+            if (compactBudget > 0) {
+                manager.compactStep(compactBudget);
             }
         }
-        System.out.println("Success");
-        manager.printBlocks();
+        return result;
     }
 
     /**
-     * Main function for memory management.
-     * @param args command line arguments
+     * Replays a trace against each policy and prints a table of how far each
+     * got, how fragmented memory was left and how fast it ran. A policy that
+     * cannot manage all of memory, such as buddy allocation with memory that
+     * is not a power of two, is noted under the table with the size it used.
+     *
+     * @param names Policies to run.
+     * @param totalBytes Size of memory.
+     * @param trace Processes to replay, rewound for each policy.
+     * @throws IOException If the trace cannot be read.
      */
+    private static void comparePolicies(String[] names, long totalBytes, TraceSource trace) throws IOException {
+        System.out.printf("%-10s %10s %8s %11s %12s %9s %9s %12s%n", "Policy", "Operations", "Placed",
+                "Compactions", "Bytes moved", "External", "Internal", "Ops/second");
+        boolean stopped = false;
+        StringBuilder cutDown = new StringBuilder();
+        for (String name : names) {
+            Memory manager = Memory.create(backend, totalBytes, name);
+            if (manager.getTotalBytes() != totalBytes) {
+                cutDown.append(String.format("%s used %d of the %d bytes of memory%n", manager.getPolicy().getName(),
+                        manager.getTotalBytes(), totalBytes));
+            }
+            trace.rewind();
+
+            long begin = System.nanoTime();
+            Result result = replay(manager, trace, false);
+            long elapsed = Math.max(1, System.nanoTime() - begin);
+
+            String placed = result.placed + (result.stopped ? "*" : "");
+            stopped |= result.stopped;
+            System.out.printf("%-10s %10d %8s %11d %12d %9d %9d %12d%n", manager.getPolicy().getName(),
+                    result.operations, placed, result.compactions, manager.getBytesMoved(),
+                    manager.externalFragmentation(),
+                    manager.internalFragmentation(), result.operations * 1_000_000_000L / elapsed);
+        }
+        if (stopped) {
+            System.out.println("* stopped at a request that could not be placed");
+        }
+        System.out.print(cutDown);
+    }
+
+    /**
+     * Replays synthetic traces from many threads at once against a
+     * ConcurrentMemory, one trace and one arena per thread, and prints a
+     * table of how many allocations per second each number of threads
+     * manages. The operations are shared out between the threads, so every
+     * row does the same amount of work.
+     *
+     * @param names Policies to run.
+     * @param threadCounts Numbers of threads to try.
+     * @param operations Operations in total for each run.
+     * @param totalBytes Size of memory.
+     */
+    private static void replayConcurrently(String[] names, int[] threadCounts, int operations, long totalBytes)
+            throws InterruptedException {
+        System.out.printf("%-10s %7s %10s %8s %7s %9s %12s%n", "Policy", "Threads", "Operations", "Placed",
+                "Failed", "Fallbacks", "Allocs/sec");
+        for (String name : names) {
+            for (int threads : threadCounts) {
+                ConcurrentMemory memory = new ConcurrentMemory(totalBytes, threads, name, backend);
+                int perThread = operations / threads;
+                TraceGenerator[] traces = new TraceGenerator[threads];
+                for (int t = 0; t < threads; t++) {
+                    traces[t] = benchmarkTrace(perThread, Math.max(1, BENCHMARK_LIVE / threads), 42 + t);
+                }
+
+                int[] placed = new int[threads];
+                int[] failed = new int[threads];
+                CountDownLatch ready = new CountDownLatch(1);
+                Thread[] workers = new Thread[threads];
+                for (int t = 0; t < threads; t++) {
+                    int worker = t;
+                    workers[t] = new Thread(() -> {
+                        try {
+                            ready.await();
+                        } catch (InterruptedException e) {
+                            return;
+                        }
+                        // every thread's reference numbers start after the last thread's
+                        TraceGenerator trace = traces[worker];
+                        int first = worker * perThread;
+                        while (trace.next()) {
+                            if (trace.isAllocating()) {
+                                Process proc = new Process(first + trace.getReference_number(), 1,
+                                        trace.getArgument());
+                                if (memory.insert(proc)) {
+                                    placed[worker]++;
+                                } else {
+                                    failed[worker]++;
+                                }
+                            } else if (trace.isDeallocating()) {
+                                memory.deallocateBlock(first + (int) trace.getArgument());
+                            }
+                        }
+                    }, "replay-" + t);
+                    workers[t].start();
+                }
+
+                long begin = System.nanoTime();
+                ready.countDown();
+                for (Thread worker : workers) {
+                    worker.join();
+                }
+                long elapsed = Math.max(1, System.nanoTime() - begin);
 
-    public static void main(String[] args) {
+                int allocations = 0;
+                int failures = 0;
+                for (int t = 0; t < threads; t++) {
+                    allocations += placed[t];
+                    failures += failed[t];
+                }
+                System.out.printf("%-10s %7d %10d %8d %7d %9d %12d%n", PlacementPolicy.forName(name).getName(),
+                        threads, perThread * threads, allocations, failures, memory.getFallbacks(),
+                        (allocations + failures) * 1_000_000_000L / elapsed);
+            }
+        }
+    }
+
+    /**
+     * Parses a number of bytes with an optional K, M, G or T suffix, in
+     * powers of 1024.
+     *
+     * @param text Size such as 1024, 64K or 2T.
+     * @return Number of bytes.
+     * @throws IllegalArgumentException If the size is not valid.
+     */
+    public static long parseSize(String text) {
+        String digits = text.trim().toUpperCase();
+        int shift = 0;
+        if (!digits.isEmpty()) {
+            int unit = "KMGT".indexOf(digits.charAt(digits.length() - 1));
+            if (unit >= 0) {
+                shift = 10 * (unit + 1);
+                digits = digits.substring(0, digits.length() - 1);
+            }
+        }
         try {
-            File file = new File("taskB.csv");
-            Scanner scanner = new Scanner(file);
-            while (scanner.hasNextLine()) {
-                String line = scanner.nextLine();
-                String[] chunks = line.split(",");
+            long value = Long.parseLong(digits);
+            if (value < 0 || value > Long.MAX_VALUE >> shift) {
+                throw new NumberFormatException();
+            }
+            return value << shift;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid size " + text);
+        }
+    }
+
+    /**
+     * Opens a trace file, in the binary format if it starts like one and as
+     * CSV otherwise.
+     *
+     * @param file Trace file.
+     * @return The trace.
+     * @throws FileNotFoundException If there is no such file.
+     * @throws IOException If the file cannot be read.
+     */
+    private static TraceSource openTrace(File file) throws IOException {
+        if (!file.isFile()) {
+            throw new FileNotFoundException(file.toString());
+        }
+        if (BinaryTraceSource.isBinary(file)) {
+            return new BinaryTraceSource(file);
+        }
+        return new CsvTraceSource(file);
+    }
+
+    /**
+     * Writes a trace out, in the binary format if the file name ends in .bin
+     * and otherwise as CSV, in the form taskB.csv is read in.
+     *
+     * @param trace Processes to write, from the start.
+     * @param file File to write to.
+     * @throws IOException If the trace cannot be read or the file written.
+     */
+    private static void saveTrace(TraceSource trace, File file) throws IOException {
+        if (file.getName().endsWith(".bin")) {
+            BinaryTraceSource.write(trace, file);
+            return;
+        }
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(file))) {
+            while (trace.next()) {
+                writer.write(Integer.toString(trace.getReference_number()));
+                writer.write(',');
+                writer.write(Integer.toString(trace.getOperation()));
+                writer.write(',');
+                writer.write(Long.toString(trace.getArgument()));
+                writer.newLine();
+            }
+        }
+    }
 
-                int reference_number = Integer.parseInt(chunks[0]);
-                int operation = Integer.parseInt(chunks[1]);
-                int argument = Integer.parseInt(chunks[2]);
+    /**
+     * Main function for memory management.
+     * @param args command line arguments: --policy=first, next, best, worst,
+     *             buddy or all, best by default, and --benchmark[=operations]
+     *             to compare the policies on a synthetic trace instead of taskB.csv,
+     *             and --compact-budget=bytes to compact a little after every operation,
+     *             and --threads=n[,n...] to replay the synthetic trace from that
+     *             many threads at once against per-thread arenas; --memory=size
+     *             sets the size of memory, such as 64K, 16M or 2T, cut down to a power
+     *             of two for buddy allocation, and --backend=object
+     *             or array chooses how blocks are stored. --trace=file replays another
+     *             trace, CSV or binary, and --generate=operations compares the policies
+     *             on a generated trace shaped by --sizes, --lifetimes, --allocate-ratio
+     *             and --seed. --save=file writes the trace out instead of replaying it,
+     *             in the binary format if the name ends in .bin, which converts a CSV
+     *             trace
+     * @throws InterruptedException If interrupted while replaying from several threads
+     * @throws IOException If a trace cannot be read or written
+     */
+
+    public static void main(String[] args) throws InterruptedException, IOException {
+        String usage = "Usage: TaskB [--policy=first|next|best|worst|buddy|all] [--memory=size]"
+                + " [--backend=object|array] [--benchmark[=operations]] [--compact-budget=bytes]"
+                + " [--threads=n[,n...]] [--trace=file]"
+                + " [--generate=operations [--sizes=distribution] [--lifetimes=distribution]"
+                + " [--allocate-ratio=fraction] [--seed=n]] [--save=file[.bin]]";
+        String policyName = "best";
+        long memoryBytes = 0;
+        int benchmark = 0;
+        int[] threadCounts = null;
+        String traceFile = TRACE_FILE;
+        long generate = 0;
+        String sizes = GENERATE_SIZES;
+        String lifetimes = GENERATE_LIFETIMES;
+        double allocateRatio = GENERATE_ALLOCATE_RATIO;
+        long seed = 42;
+        String saveFile = null;
+        for (String arg : args) {
+            if (arg.startsWith("--policy=")) {
+                policyName = arg.substring("--policy=".length());
+            } else if (arg.startsWith("--compact-budget=")) {
+                try {
+                    compactBudget = parseSize(arg.substring("--compact-budget=".length()));
+                } catch (IllegalArgumentException e) {
+                    System.err.println(e.getMessage());
+                    System.exit(1);
+                }
+            } else if (arg.startsWith("--memory=")) {
+                try {
+                    memoryBytes = parseSize(arg.substring("--memory=".length()));
+                } catch (IllegalArgumentException e) {
+                    System.err.println(e.getMessage());
+                    System.exit(1);
+                }
+                if (memoryBytes == 0) {
+                    System.err.println(usage);
+                    System.exit(1);
+                }
+            } else if (arg.startsWith("--backend=")) {
+                backend = arg.substring("--backend=".length());
+                if (!backend.equals("object") && !backend.equals("array")) {
+                    System.err.println("Unknown backend " + backend + ". " + Memory.USAGE);
+                    System.exit(1);
+                }
+            } else if (arg.startsWith("--threads=")) {
+                String[] counts = arg.substring("--threads=".length()).split(",");
+                threadCounts = new int[counts.length];
+                try {
+                    for (int i = 0; i < counts.length; i++) {
+                        threadCounts[i] = Integer.parseInt(counts[i].trim());
+                        if (threadCounts[i] <= 0) {
+                            throw new NumberFormatException();
+                        }
+                    }
+                } catch (NumberFormatException e) {
+                    System.err.println(usage);
+                    System.exit(1);
+                }
+            } else if (arg.equals("--benchmark")) {
+                benchmark = BENCHMARK_OPERATIONS;
+            } else if (arg.startsWith("--benchmark=")) {
+                try {
+                    benchmark = Integer.parseInt(arg.substring("--benchmark=".length()));
+                } catch (NumberFormatException e) {
+                    benchmark = -1;
+                }
+                if (benchmark <= 0) {
+                    System.err.println(usage);
+                    System.exit(1);
+                }
+            } else if (arg.startsWith("--trace=")) {
+                traceFile = arg.substring("--trace=".length());
+            } else if (arg.startsWith("--generate=")) {
+                try {
+                    generate = parseSize(arg.substring("--generate=".length()));
+                } catch (IllegalArgumentException e) {
+                    generate = -1;
+                }
+                if (generate <= 0 || generate > Integer.MAX_VALUE) {
+                    System.err.println(usage);
+                    System.exit(1);
+                }
+            } else if (arg.startsWith("--sizes=")) {
+                sizes = arg.substring("--sizes=".length());
+            } else if (arg.startsWith("--lifetimes=")) {
+                lifetimes = arg.substring("--lifetimes=".length());
+            } else if (arg.startsWith("--allocate-ratio=")) {
+                try {
+                    allocateRatio = Double.parseDouble(arg.substring("--allocate-ratio=".length()));
+                } catch (NumberFormatException e) {
+                    allocateRatio = -1;
+                }
+                if (!(allocateRatio >= 0 && allocateRatio <= 1)) {
+                    System.err.println(usage);
+                    System.exit(1);
+                }
+            } else if (arg.startsWith("--seed=")) {
+                try {
+                    seed = Long.parseLong(arg.substring("--seed=".length()));
+                } catch (NumberFormatException e) {
+                    System.err.println(usage);
+                    System.exit(1);
+                }
+            } else if (arg.startsWith("--save=")) {
+                saveFile = arg.substring("--save=".length());
+            } else {
+                System.err.println(usage);
+                System.exit(1);
+            }
+        }
+        PlacementPolicy policy = null;
+        if (!policyName.equals("all")) {
+            try {
+                policy = PlacementPolicy.forName(policyName);
+            } catch (IllegalArgumentException e) {
+                System.err.println(e.getMessage());
+                System.exit(1);
+            }
+        }
+        String[] names = policy == null ? POLICIES : new String[]{policyName};
 
-                alloc.add(new int[]{reference_number, operation, argument});
+        if (threadCounts != null) {
+            replayConcurrently(names, threadCounts,
+                    benchmark > 0 ? benchmark : BENCHMARK_OPERATIONS, memoryBytes > 0 ? memoryBytes : BENCHMARK_BYTES);
+            return;
+        }
+        if (benchmark > 0) {
+            comparePolicies(names, memoryBytes > 0 ? memoryBytes : BENCHMARK_BYTES,
+                    benchmarkTrace(benchmark, BENCHMARK_LIVE, 42));
+            return;
+        }
+        if (generate > 0) {
+            TraceGenerator trace = null;
+            try {
+                trace = new TraceGenerator(generate, Distribution.forName(sizes),
+                        Distribution.forName(lifetimes), allocateRatio, seed);
+            } catch (IllegalArgumentException e) {
+                System.err.println(e.getMessage());
+                System.exit(1);
+            }
+            if (saveFile != null) {
+                try {
+                    saveTrace(trace, new File(saveFile));
+                } catch (IOException e) {
+                    System.err.println(e.getMessage());
+                    System.exit(1);
+                }
+            } else {
+                comparePolicies(names, memoryBytes > 0 ? memoryBytes : BENCHMARK_BYTES, trace);
             }
-            scanner.close();
-        } catch (FileNotFoundException e) {
-            System.out.println("file not found");
+            return;
         }
-        createProcesses();
 
-        System.out.println("----------Best Fit----------");
-        bestFit();
+        // a trace that cannot be read, such as a truncated binary one, is reported like a missing one
+        try {
+            TraceSource trace;
+            try {
+                trace = openTrace(new File(traceFile));
+            } catch (FileNotFoundException e) {
+                System.out.println("file not found");
+                trace = new ProcessTraceSource(new ArrayList<>());
+            }
+            if (saveFile != null) {
+                try (TraceSource processes = trace) {
+                    saveTrace(processes, new File(saveFile));
+                }
+                return;
+            }
+
+            if (memoryBytes == 0) {
+                memoryBytes = TOTAL_BYTES;
+            }
+            try (TraceSource processes = trace) {
+                if (policy == null) {
+                    comparePolicies(names, memoryBytes, processes);
+                } else {
+                    simulate(policyName, memoryBytes, processes);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+        }
     }
 }
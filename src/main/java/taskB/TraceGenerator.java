@@ -0,0 +1,148 @@
+package taskB;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * A synthetic trace made up as it is read, so a trace of 10^8 operations
+ * takes no more memory than the allocations live at one time.
+ *
+ * An allocation's size is drawn from the size distribution, and it is given
+ * a lifetime, a number of operations drawn from the lifetime distribution.
+ * Once its lifetime is over it may be freed: each operation frees the
+ * allocation whose lifetime ended first, if there is one, unless it is made
+ * an allocation by chance, which it is with the given probability, the
+ * allocate ratio. The live allocations are kept in a binary heap of
+ * primitive arrays ordered by when their lifetimes end.
+ *
+ * With a ratio of 0.5 or less, allocations are freed as soon as their
+ * lifetimes end and memory use levels off at about half the mean lifetime
+ * in allocations. With more than 0.5 there are not enough frees to keep up,
+ * and memory use grows until allocations start to fail.
+ */
+public class TraceGenerator implements TraceSource {
+
+    private final long operations;
+    private final Distribution sizes;
+    private final Distribution lifetimes;
+    private final double allocateRatio;
+    private final long seed;
+
+    private Random random;
+    private long count;
+
+    // the live allocations, a heap by the operation at which each ends
+    private long[] ends = new long[16];
+    private int[] references = new int[16];
+    private int live;
+
+    private int reference_number;
+    private int operation;
+    private long argument;
+
+    /**
+     * Constructor
+     *
+     * @param operations Number of operations in the trace, below 2^31.
+     * @param sizes Sizes of allocations in bytes.
+     * @param lifetimes Number of operations each allocation lives.
+     * @param allocateRatio Chance of an operation being an allocation even
+     *                      when there is an allocation to free, from 0 to 1.
+     * @param seed Seed, the same seed giving the same trace.
+     */
+    public TraceGenerator(long operations, Distribution sizes, Distribution lifetimes,
+                          double allocateRatio, long seed) {
+        if (operations < 0 || operations > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("A trace has from 0 to " + Integer.MAX_VALUE + " operations");
+        }
+        if (!(allocateRatio >= 0 && allocateRatio <= 1)) {
+            throw new IllegalArgumentException("The allocate ratio must be from 0 to 1");
+        }
+        this.operations = operations;
+        this.sizes = sizes;
+        this.lifetimes = lifetimes;
+        this.allocateRatio = allocateRatio;
+        this.seed = seed;
+        rewind();
+    }
+
+    @Override
+    public boolean next() {
+        if (count == operations) {
+            return false;
+        }
+        reference_number = (int) ++count;
+        if (live > 0 && ends[0] <= count && random.nextDouble() >= allocateRatio) {
+            operation = 2;
+            argument = references[0];
+            pop();
+        } else {
+            operation = 1;
+            argument = sizes.sample(random);
+            push(count + lifetimes.sample(random), reference_number);
+        }
+        return true;
+    }
+
+    @Override
+    public int getReference_number() {
+        return reference_number;
+    }
+
+    @Override
+    public int getOperation() {
+        return operation;
+    }
+
+    @Override
+    public long getArgument() {
+        return argument;
+    }
+
+    @Override
+    public void rewind() {
+        random = new Random(seed);
+        count = 0;
+        live = 0;
+    }
+
+    private void push(long end, int reference) {
+        if (live == ends.length) {
+            ends = Arrays.copyOf(ends, live * 2);
+            references = Arrays.copyOf(references, live * 2);
+        }
+        int i = live++;
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            if (ends[parent] <= end) {
+                break;
+            }
+            ends[i] = ends[parent];
+            references[i] = references[parent];
+            i = parent;
+        }
+        ends[i] = end;
+        references[i] = reference;
+    }
+
+    private void pop() {
+        live--;
+        long end = ends[live];
+        int reference = references[live];
+        int i = 0;
+        while (2 * i + 1 < live) {
+            int child = 2 * i + 1;
+            if (child + 1 < live && ends[child + 1] < ends[child]) {
+                child++;
+            }
+            if (ends[child] >= end) {
+                break;
+            }
+            ends[i] = ends[child];
+            references[i] = references[child];
+            i = child;
+        }
+        ends[i] = end;
+        references[i] = reference;
+    }
+}
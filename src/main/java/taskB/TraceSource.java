@@ -0,0 +1,57 @@
+package taskB;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * A trace of operations read one at a time, so that a trace of any length
+ * can be replayed without holding it in memory. Each call to next moves on to
+ * the next operation, whose reference number, operation and argument are then
+ * read as primitives, the same three numbers a Process holds.
+ */
+public interface TraceSource extends Closeable {
+
+    /**
+     * Moves on to the next operation.
+     * @return True if there is one, false at the end of the trace
+     * @throws IOException If the trace cannot be read
+     */
+    boolean next() throws IOException;
+
+    /**
+     * Reference number of the current operation.
+     * @return A unique identifier for the operation
+     */
+    int getReference_number();
+
+    /**
+     * The current operation.
+     * @return 1 to allocate, 2 to de-allocate
+     */
+    int getOperation();
+
+    /**
+     * Argument of the current operation.
+     * @return Size in bytes to allocate, or reference number to de-allocate
+     */
+    long getArgument();
+
+    /**
+     * Starts the trace again from its first operation, so the same trace can
+     * be replayed against another policy.
+     * @throws IOException If the trace cannot be read again
+     */
+    void rewind() throws IOException;
+
+    default boolean isAllocating() {
+        return getOperation() == 1;
+    }
+
+    default boolean isDeallocating() {
+        return getOperation() == 2;
+    }
+
+    @Override
+    default void close() throws IOException {
+    }
+}
@@ -0,0 +1,49 @@
+package taskB;
+
+import java.util.Comparator;
+import java.util.TreeSet;
+
+/**
+ * Worst fit: the largest free block, and the one with the lowest address if
+ * several are that size, so that what is left over stays as large as
+ * possible. The free blocks are kept largest first.
+ */
+public class WorstFitPolicy implements PlacementPolicy {
+
+    private final TreeSet<BlockNode> freeBySize = new TreeSet<>(Comparator
+            .comparingLong((BlockNode node) -> -node.getBlock().getSize())
+            .thenComparingLong(node -> node.getBlock().getHole().getStart()));
+
+    @Override
+    public String getName() {
+        return "Worst Fit";
+    }
+
+    @Override
+    public Fit getFit() {
+        return Fit.WORST;
+    }
+
+    @Override
+    public BlockNode select(long bytes) {
+        if (freeBySize.isEmpty() || freeBySize.first().getBlock().getSize() < bytes) {
+            return null;
+        }
+        return freeBySize.first();
+    }
+
+    @Override
+    public void addFree(BlockNode node) {
+        freeBySize.add(node);
+    }
+
+    @Override
+    public void removeFree(BlockNode node) {
+        freeBySize.remove(node);
+    }
+
+    @Override
+    public void clear() {
+        freeBySize.clear();
+    }
+}